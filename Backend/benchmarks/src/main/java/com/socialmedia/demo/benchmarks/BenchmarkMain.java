@@ -0,0 +1,36 @@
+package com.socialmedia.demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Điểm vào của target/benchmarks.jar: chạy JMH như org.openjdk.jmh.Main nhưng mặc định ghi kết quả dạng JSON
+ * vào jmh-result.json, để lưu lại theo commit và so sánh giữa các lần chạy (ví dụ bằng JMH Visualizer).
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar                                   # tất cả, ghi jmh-result.json
+ * java -jar target/benchmarks.jar Mapper -rff results/$(git rev-parse --short HEAD).json
+ * </pre>
+ * Truyền -rf để chọn định dạng khác; các tham số còn lại được chuyển nguyên cho JMH.
+ */
+public final class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+            if (!jmhArgs.contains("-rff")) {
+                jmhArgs.add("-rff");
+                jmhArgs.add(DEFAULT_RESULT_FILE);
+            }
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
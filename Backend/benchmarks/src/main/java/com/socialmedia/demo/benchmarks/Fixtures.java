@@ -0,0 +1,114 @@
+package com.socialmedia.demo.benchmarks;
+
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.mappers.ChatMapper;
+import com.socialmedia.demo.mappers.ChatMapperImpl;
+import com.socialmedia.demo.mappers.MediaUrlMapper;
+import com.socialmedia.demo.mappers.MessageMapper;
+import com.socialmedia.demo.mappers.MessageMapperImpl;
+import com.socialmedia.demo.mappers.PostMapper;
+import com.socialmedia.demo.mappers.PostMapperImpl;
+import com.socialmedia.demo.mappers.UserMapperImpl;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dữ liệu mẫu có kích thước giống thực tế (id UUID, nội dung vài chục ký tự, user có avatar)
+ * và các mapper MapStruct được nối với nhau như trong ứng dụng.
+ */
+final class Fixtures {
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private Fixtures() {
+    }
+
+    // Các mapper sinh ra dùng @Autowired nên được dựng trong một context nhỏ chỉ gồm mapper
+    static AnnotationConfigApplicationContext mapperContext() {
+        return new AnnotationConfigApplicationContext(
+                MediaUrlMapper.class, UserMapperImpl.class, MessageMapperImpl.class, PostMapperImpl.class, ChatMapperImpl.class);
+    }
+
+    static PostMapper postMapper(AnnotationConfigApplicationContext context) {
+        return context.getBean(PostMapper.class);
+    }
+
+    static MessageMapper messageMapper(AnnotationConfigApplicationContext context) {
+        return context.getBean(MessageMapper.class);
+    }
+
+    static ChatMapper chatMapper(AnnotationConfigApplicationContext context) {
+        return context.getBean(ChatMapper.class);
+    }
+
+    static User user(int i) {
+        return User.builder()
+                .id(UUID.randomUUID().toString())
+                .email("user" + i + "@example.com")
+                .username("user" + i)
+                .fullname("User Number " + i)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6oQ4cP6Y5k7lR3fF8m1dC2e")
+                .bio("Hello, I am user " + i)
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .avatarKey("avatars/" + UUID.randomUUID() + ".jpg")
+                .build();
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    static Post post(User author) {
+        return Post.builder()
+                .id(UUID.randomUUID().toString())
+                .author(author)
+                .content("Just finished a 10k run along the river, the weather was perfect today!")
+                .imageKey("posts/" + UUID.randomUUID() + ".jpg")
+                .imageSize(245_760L)
+                .imageType("image/jpeg")
+                .createAt(BASE_TIME)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build();
+    }
+
+    static Message message(Chat chat, User sender, int i) {
+        return Message.builder()
+                .id(UUID.randomUUID().toString())
+                .chat(chat)
+                .sender(sender)
+                .content("Message number " + i + ", are we still meeting at 7?")
+                .sendAt(BASE_TIME.plusSeconds(i))
+                .seq((long) i + 1)
+                .build();
+    }
+
+    // Chat nhóm: tin nhắn được gửi lần lượt bởi các thành viên
+    static Chat chat(int memberCount, int messageCount) {
+        List<User> members = users(memberCount);
+        Chat chat = Chat.builder()
+                .id(UUID.randomUUID().toString())
+                .members(members)
+                .createAt(BASE_TIME)
+                .build();
+        List<Message> messages = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(message(chat, members.get(i % memberCount), i));
+        }
+        chat.setMessages(messages);
+        return chat;
+    }
+}
@@ -0,0 +1,70 @@
+package com.socialmedia.demo.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.mappers.MessageMapper;
+import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.MessageResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize ApiResponse&lt;List&lt;MessageResponse&gt;&gt; (một trang lịch sử chat) sang JSON bằng ObjectMapper
+ * cấu hình như Spring Boot (JavaTimeModule, ngày dạng ISO).
+ * Kích thước trang 50 là mặc định của /api/v1/messages/chat/{chatId}, 100 là app.messages.max-page-size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+    @Param({"1", "50", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter typedWriter;
+    private ApiResponse<List<MessageResponse>> response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TypeFactory types = objectMapper.getTypeFactory();
+        typedWriter = objectMapper.writerFor(types.constructParametricType(ApiResponse.class,
+                types.constructCollectionType(List.class, MessageResponse.class)));
+
+        List<MessageResponse> items = new ArrayList<>(pageSize);
+        try (AnnotationConfigApplicationContext context = Fixtures.mapperContext()) {
+            MessageMapper messageMapper = Fixtures.messageMapper(context);
+            Chat chat = Fixtures.chat(10, pageSize);
+            for (Message message : chat.getMessages()) {
+                items.add(messageMapper.toResponse(message));
+            }
+        }
+        response = new ApiResponse<>();
+        response.setCode("200");
+        response.setResult(items);
+    }
+
+    // Như MappingJackson2HttpMessageConverter: ObjectMapper dùng chung, kiểu lấy từ giá trị runtime
+    @Benchmark
+    public byte[] writeValueAsBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    // ObjectWriter dựng sẵn cho đúng kiểu generic
+    @Benchmark
+    public byte[] prebuiltTypedWriter() throws Exception {
+        return typedWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,70 @@
+package com.socialmedia.demo.benchmarks;
+
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.security.AuthenticatedUser;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí tạo JWT (đăng nhập) và xác thực JWT cho mỗi request.
+ * legacyParsePerCall tái hiện cách làm cũ: tạo lại key và JwtParser, parse token 3 lần
+ * (validateToken, getUserIdFromJWT, getRoleFromJWT).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final int EXPIRATION_MS = 3_600_000;
+
+    private JwtTokenProvider cachedProvider;
+    private JwtTokenProvider uncachedProvider;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedProvider = new JwtTokenProvider(SECRET, EXPIRATION_MS, 10_000);
+        uncachedProvider = new JwtTokenProvider(SECRET, EXPIRATION_MS, 0);
+        user = User.builder().id("5f0c7a52-8d7e-4c1b-9a55-2f4e7e0b6d31").role(ROLE.USER).build();
+        token = cachedProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachedProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public void legacyParsePerCall(Blackhole blackhole) {
+        for (int i = 0; i < 3; i++) {
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            blackhole.consume(claims);
+        }
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyWithPrebuiltParser() {
+        return uncachedProvider.authenticate(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyWithVerifiedTokenCache() {
+        return cachedProvider.authenticate(token);
+    }
+}
@@ -0,0 +1,85 @@
+package com.socialmedia.demo.benchmarks;
+
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.mappers.ChatMapper;
+import com.socialmedia.demo.mappers.MessageMapper;
+import com.socialmedia.demo.mappers.PostMapper;
+import com.socialmedia.demo.responses.ChatResponse;
+import com.socialmedia.demo.responses.MessageResponse;
+import com.socialmedia.demo.responses.PostResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí map entity sang DTO của các mapper MapStruct trên đường đọc.
+ * ChatMapper.toResponse map toàn bộ thành viên và tin nhắn của chat, nên được đo với chat 1-1 và chat nhóm lớn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Mappers {
+        AnnotationConfigApplicationContext context;
+        PostMapper postMapper;
+        MessageMapper messageMapper;
+        ChatMapper chatMapper;
+        Post post;
+        Message message;
+
+        @Setup
+        public void setUp() {
+            context = Fixtures.mapperContext();
+            postMapper = Fixtures.postMapper(context);
+            messageMapper = Fixtures.messageMapper(context);
+            chatMapper = Fixtures.chatMapper(context);
+            Chat chat = Fixtures.chat(2, 1);
+            post = Fixtures.post(chat.getMembers().get(0));
+            message = chat.getMessages().get(0);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ChatState {
+        @Param({"2", "50"})
+        int members;
+
+        @Param({"50", "500"})
+        int messages;
+
+        Chat chat;
+
+        @Setup
+        public void setUp() {
+            chat = Fixtures.chat(members, messages);
+        }
+    }
+
+    @Benchmark
+    public PostResponse postToResponse(Mappers mappers) {
+        return mappers.postMapper.toResponse(mappers.post);
+    }
+
+    @Benchmark
+    public MessageResponse messageToResponse(Mappers mappers) {
+        return mappers.messageMapper.toResponse(mappers.message);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ChatResponse chatToResponse(Mappers mappers, ChatState state) {
+        return mappers.chatMapper.toResponse(state.chat);
+    }
+}
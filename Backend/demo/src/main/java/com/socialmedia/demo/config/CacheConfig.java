@@ -0,0 +1,52 @@
+package com.socialmedia.demo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cache read-through cho các response theo ID (users, posts, chats), lưu trong Caffeine (W-TinyLFU, có giới hạn).
+ * Mỗi vùng có kích thước và TTL riêng (app.cache.*). Các phương thức update/delete trong service evict entry tương ứng;
+ * TTL giới hạn thời gian dữ liệu nhúng (ví dụ avatar của tác giả trong post) có thể bị cũ.
+ * Hit/miss được ghi lại (recordStats) và actuator công bố qua metric cache.gets.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.users.max-size:10000}") long usersMaxSize,
+            @Value("${app.cache.users.ttl:10m}") Duration usersTtl,
+            @Value("${app.cache.posts.max-size:50000}") long postsMaxSize,
+            @Value("${app.cache.posts.ttl:5m}") Duration postsTtl,
+            @Value("${app.cache.chats.max-size:5000}") long chatsMaxSize,
+            @Value("${app.cache.chats.ttl:1m}") Duration chatsTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Chỉ dùng các vùng đã khai báo, tránh tạo cache không giới hạn do gõ sai tên
+        cacheManager.setCacheNames(List.of());
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(CacheNames.USERS, region(usersMaxSize, usersTtl));
+        cacheManager.registerCustomCache(CacheNames.POSTS, region(postsMaxSize, postsTtl));
+        cacheManager.registerCustomCache(CacheNames.CHATS, region(chatsMaxSize, chatsTtl));
+        // Put/evict chỉ được áp dụng sau khi transaction commit, để request khác không nạp lại dữ liệu cũ
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private static Cache<Object, Object> region(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
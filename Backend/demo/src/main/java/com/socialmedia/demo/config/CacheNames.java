@@ -0,0 +1,12 @@
+package com.socialmedia.demo.config;
+
+// Tên các vùng cache; cấu hình kích thước/TTL trong CacheConfig
+public final class CacheNames {
+
+    public static final String USERS = "users";
+    public static final String POSTS = "posts";
+    public static final String CHATS = "chats";
+
+    private CacheNames() {
+    }
+}
@@ -4,12 +4,22 @@ import com.socialmedia.demo.security.JwtAuthenticationEntryPoint;
 import com.socialmedia.demo.security.JwtAuthenticationFilter;
 import com.socialmedia.demo.services.CustomUserDetailsService; // Import CustomUserDetailsService
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.Base64;
 
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider; // Import
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider; // Import
@@ -22,6 +32,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.util.StringUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -40,6 +51,12 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService; // Inject UserDetailsService
 
+    @Value("${app.metrics.scrape-username:prometheus}")
+    private String scrapeUsername;
+
+    @Value("${app.metrics.scrape-password:}")
+    private String scrapePassword;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -71,11 +88,22 @@ public class SecurityConfig {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
             .authorizeHttpRequests(authz -> authz
+                // sendError() forward sang /error: không mở thì status gốc (404, 416...) bị thay bằng 401
+                .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/v1/users").permitAll()
+                // Ảnh được nhúng bằng <img src>, không gửi được JWT; key là hash SHA-256 nên không đoán được
+                .requestMatchers(HttpMethod.GET, "/api/v1/media/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                // Cho phép truy cập endpoint WebSocket mà không cần JWT ban đầu (xác thực STOMP sẽ xử lý sau)
+                // Actuator: health mở cho load balancer, prometheus cho Admin hoặc scraper có credential riêng,
+                // các endpoint còn lại (metrics, caches) chỉ cho Admin
+                .requestMatchers("/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/prometheus").access(AuthorizationManagers.anyOf(
+                        (authentication, context) -> new AuthorizationDecision(hasScrapeCredential(context.getRequest())),
+                        AuthorityAuthorizationManager.hasRole("ADMIN")))
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                // Handshake WebSocket không cần JWT; StompAuthChannelInterceptor xác thực ở frame STOMP CONNECT
                 .requestMatchers("/ws/**").permitAll()
                 .anyRequest().authenticated()
             )
@@ -86,6 +114,24 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    // Prometheus gửi credential bằng HTTP Basic (basic_auth trong scrape config); để trống mật khẩu thì chỉ Admin scrape được.
+    // JWT không dùng được ở đây vì không có user nào cho scraper và token hết hạn
+    private boolean hasScrapeCredential(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (!StringUtils.hasText(scrapePassword) || header == null || !header.startsWith("Basic ")) {
+            return false;
+        }
+        byte[] presented;
+        try {
+            presented = Base64.getDecoder().decode(header.substring(6).trim());
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        byte[] expected = (scrapeUsername + ":" + scrapePassword).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(presented, expected);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
     CorsConfiguration configuration = new CorsConfiguration();
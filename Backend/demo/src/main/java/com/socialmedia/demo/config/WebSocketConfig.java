@@ -1,28 +1,181 @@
 package com.socialmedia.demo.config;
 
+import com.socialmedia.demo.monitoring.QueryMetricsChannelInterceptor;
+import com.socialmedia.demo.monitoring.WebSocketMetrics;
+import com.socialmedia.demo.security.StompAuthChannelInterceptor;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker // Enables WebSocket message handling, backed by a message broker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final QueryMetricsChannelInterceptor queryMetricsChannelInterceptor;
+    private final WebSocketMetrics webSocketMetrics;
+
+    // simple: broker trong bộ nhớ, chỉ client kết nối cùng JVM nhận được tin nhắn.
+    // relay: chuyển tiếp /topic tới broker STOMP bên ngoài (RabbitMQ, Artemis...) để mọi node cùng nhận.
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode = "simple";
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost = "localhost";
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort = 61613;
+
+    @Value("${app.websocket.relay.client-login:guest}")
+    private String clientLogin = "guest";
+
+    @Value("${app.websocket.relay.client-passcode:guest}")
+    private String clientPasscode = "guest";
+
+    @Value("${app.websocket.relay.system-login:guest}")
+    private String systemLogin = "guest";
+
+    @Value("${app.websocket.relay.system-passcode:guest}")
+    private String systemPasscode = "guest";
+
+    @Value("${app.websocket.relay.virtual-host:}")
+    private String virtualHost;
+
+    // Giới hạn cho mỗi session: tin nhắn chờ gửi tới một client chậm vượt quá buffer hoặc thời gian
+    // thì session đó bị đóng, thay vì giữ thread outbound và làm chậm mọi người khác trong chat
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit = 512 * 1024;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs = 15000;
+
+    @Value("${app.websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit = 64 * 1024;
+
+    // Heartbeat server -> client và client -> server (ms), 0 để tắt
+    @Value("${app.websocket.heartbeat.interval-ms:10000}")
+    private long heartbeatIntervalMs = 10000;
+
+    @Value("${app.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize = 8;
+
+    @Value("${app.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize = 32;
+
+    @Value("${app.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity = 10000;
+
+    @Value("${app.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize = 8;
+
+    @Value("${app.websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize = 32;
+
+    @Value("${app.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity = 10000;
+
+    // Scheduler riêng cho heartbeat, không dùng chung với các job @Scheduled của ứng dụng.
+    // Không khai báo là bean để không thành TaskScheduler thứ hai mà @EnableScheduling phải chọn.
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker to carry messages back to the client on destinations prefixed with "/topic"
-        config.enableSimpleBroker("/topic");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Mỗi node giữ một "system" connection tới broker để gửi tin (convertAndSend),
+            // và mở một connection riêng cho mỗi client để chuyển tiếp SUBSCRIBE/MESSAGE
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(clientLogin)
+                    .setClientPasscode(clientPasscode)
+                    .setSystemLogin(systemLogin)
+                    .setSystemPasscode(systemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatIntervalMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatIntervalMs)
+                    .setTaskScheduler(heartbeatScheduler());
+            if (StringUtils.hasText(virtualHost)) {
+                relay.setVirtualHost(virtualHost);
+            }
+        } else if ("simple".equalsIgnoreCase(brokerMode)) {
+            // Enable a simple in-memory message broker to carry messages back to the client on destinations prefixed with "/topic"
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[]{heartbeatIntervalMs, heartbeatIntervalMs})
+                    .setTaskScheduler(heartbeatScheduler());
+        } else {
+            throw new IllegalStateException("Unknown app.websocket.broker '" + brokerMode + "', expected 'simple' or 'relay'");
+        }
+        // Đánh dấu thời điểm publish để đo độ trễ fan-out (websocket.broker.fanout)
+        config.configureBrokerChannel().interceptors(webSocketMetrics.brokerChannelInterceptor());
         // Designates the "/app" prefix for messages that are bound for @MessageMapping-annotated methods.
         config.setApplicationDestinationPrefixes("/app");
+        // Tin gửi tới cùng một session đi ra theo đúng thứ tự publish, dù clientOutboundChannel có nhiều thread
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        // Registers the "/ws" endpoint, enabling SockJS fallback options so that alternate transports may be used
-        // if WebSocket is not available. SockJS is used to enable fallback options for browsers that don’t support WebSocket.
         // Allow all origins for simplicity during development. Configure appropriately for production.
+        // "/ws" nhận WebSocket thuần (frontend kết nối thẳng, không qua handshake SockJS);
+        // client cũ dùng SockJS vẫn vào được qua "/ws/**" (info, websocket, xhr-streaming...) làm fallback.
+        registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // Frame của cùng một session được xử lý lần lượt theo thứ tự nhận (các session khác vẫn song song
+        // trên pool inbound), nên tin nhắn gửi liên tiếp từ một client được cấp seq theo đúng thứ tự gửi
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Xác thực JWT một lần lúc CONNECT, kiểm tra thành viên chat cho SEND/SUBSCRIBE; đếm câu SQL mỗi frame
+        registration.interceptors(stompAuthChannelInterceptor, queryMetricsChannelInterceptor);
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketMetrics.outboundChannelInterceptor());
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    private synchronized ThreadPoolTaskScheduler heartbeatScheduler() {
+        if (heartbeatScheduler == null) {
+            heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(1);
+            heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+            heartbeatScheduler.setRemoveOnCancelPolicy(true);
+            heartbeatScheduler.initialize();
+        }
+        return heartbeatScheduler;
+    }
+
+    @PreDestroy
+    public synchronized void shutdownHeartbeatScheduler() {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
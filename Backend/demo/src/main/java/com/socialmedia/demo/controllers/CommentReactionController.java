@@ -3,6 +3,8 @@ package com.socialmedia.demo.controllers;
 import com.socialmedia.demo.requests.CommentReaction.CommentReactionCreateRequest;
 import com.socialmedia.demo.responses.ApiResponse;
 import com.socialmedia.demo.responses.CommentReactionResponse;
+import com.socialmedia.demo.responses.ReactionSummaryResponse;
+import com.socialmedia.demo.security.SecurityUtils;
 import com.socialmedia.demo.services.CommentReactionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -53,6 +55,16 @@ public class CommentReactionController {
         return ResponseEntity.ok(response);
     }
 
+    // Endpoint để lấy số lượng reaction theo từng loại của một comment và reaction của người dùng hiện tại
+    @GetMapping("/comments/{commentId}/reactions/summary")
+    public ResponseEntity<ApiResponse<ReactionSummaryResponse>> getReactionSummary(@PathVariable String commentId) {
+        ReactionSummaryResponse summary = commentReactionService.getReactionSummary(commentId, SecurityUtils.currentUserId());
+        ApiResponse<ReactionSummaryResponse> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(summary);
+        return ResponseEntity.ok(response);
+    }
+
     // Endpoint to get all reactions made by a specific user
     @GetMapping("/users/{userId}/comment-reactions")
     public ResponseEntity<ApiResponse<List<CommentReactionResponse>>> getReactionsByUserId(@PathVariable String userId) {
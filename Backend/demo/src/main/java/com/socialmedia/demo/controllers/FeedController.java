@@ -0,0 +1,31 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.PostResponse;
+import com.socialmedia.demo.security.SecurityUtils;
+import com.socialmedia.demo.services.FeedService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/feed") // Base path cho home feed của người dùng hiện tại
+@RequiredArgsConstructor
+public class FeedController {
+
+    private final FeedService feedService;
+
+    // Endpoint để lấy home feed (bài đăng của mình và bạn bè), cuộn bằng ?cursor=<nextCursor>&limit=20
+    @GetMapping
+    public ResponseEntity<ApiResponse<CursorPage<PostResponse>>> getFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        CursorPage<PostResponse> feed = feedService.getFeed(SecurityUtils.currentUserId(), cursor, limit);
+        ApiResponse<CursorPage<PostResponse>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(feed);
+        return ResponseEntity.ok(response);
+    }
+}
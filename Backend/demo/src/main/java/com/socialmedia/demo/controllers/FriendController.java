@@ -0,0 +1,90 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.UserSummary;
+import com.socialmedia.demo.security.SecurityUtils;
+import com.socialmedia.demo.services.FriendService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/friends") // Base path cho bạn bè của người dùng hiện tại
+@RequiredArgsConstructor
+public class FriendController {
+
+    private final FriendService friendService;
+
+    // Endpoint để lấy danh sách bạn bè của người dùng hiện tại
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<UserSummary>>> getFriends() {
+        List<UserSummary> friends = friendService.getFriends(SecurityUtils.currentUserId());
+        ApiResponse<List<UserSummary>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(friends);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để xem lời mời kết bạn nhận được
+    @GetMapping("/requests")
+    public ResponseEntity<ApiResponse<List<UserSummary>>> getIncomingRequests() {
+        List<UserSummary> senders = friendService.getIncomingRequests(SecurityUtils.currentUserId());
+        ApiResponse<List<UserSummary>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(senders);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để xem lời mời kết bạn đã gửi
+    @GetMapping("/requests/sent")
+    public ResponseEntity<ApiResponse<List<UserSummary>>> getOutgoingRequests() {
+        List<UserSummary> receivers = friendService.getOutgoingRequests(SecurityUtils.currentUserId());
+        ApiResponse<List<UserSummary>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(receivers);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để gửi lời mời kết bạn (chỉ thành bạn bè khi người kia chấp nhận)
+    @PostMapping("/requests/{userId}")
+    public ResponseEntity<ApiResponse<UserSummary>> sendFriendRequest(@PathVariable String userId) {
+        UserSummary receiver = friendService.sendFriendRequest(SecurityUtils.currentUserId(), userId);
+        ApiResponse<UserSummary> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.CREATED.value())); // 201
+        response.setResult(receiver);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    // Endpoint để chấp nhận lời mời kết bạn của senderId
+    @PostMapping("/requests/{senderId}/accept")
+    public ResponseEntity<ApiResponse<UserSummary>> acceptFriendRequest(@PathVariable String senderId) {
+        UserSummary friend = friendService.acceptFriendRequest(SecurityUtils.currentUserId(), senderId);
+        ApiResponse<UserSummary> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.CREATED.value())); // 201
+        response.setResult(friend);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    // Endpoint để từ chối lời mời nhận được hoặc hủy lời mời đã gửi
+    @DeleteMapping("/requests/{userId}")
+    public ResponseEntity<ApiResponse<String>> deleteFriendRequest(@PathVariable String userId) {
+        friendService.deleteFriendRequest(SecurityUtils.currentUserId(), userId);
+        ApiResponse<String> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult("Friend request removed for user: " + userId);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để hủy kết bạn
+    @DeleteMapping("/{friendId}")
+    public ResponseEntity<ApiResponse<String>> removeFriend(@PathVariable String friendId) {
+        friendService.removeFriend(SecurityUtils.currentUserId(), friendId);
+        ApiResponse<String> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult("Friend removed successfully with id: " + friendId);
+        return ResponseEntity.ok(response);
+    }
+}
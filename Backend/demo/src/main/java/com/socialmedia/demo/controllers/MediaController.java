@@ -0,0 +1,146 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.media.MediaKeys;
+import com.socialmedia.demo.media.MediaStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/media")
+@RequiredArgsConstructor
+public class MediaController {
+
+    // Thuộc tính request mà Tomcat NIO connector dùng cho sendfile (zero-copy từ page cache ra socket)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final MediaStore mediaStore;
+
+    // File nhỏ hơn ngưỡng này ghi thẳng qua FileChannel rẻ hơn là chuyển cho poller của sendfile
+    @Value("${app.media.sendfile-min-size:49152}")
+    private long sendfileMinSize;
+
+    /**
+     * Trả về bytes của media theo key.
+     * Key là hash nội dung nên ETag mạnh = key và response có thể cache vĩnh viễn.
+     * Hỗ trợ If-None-Match (304), Range một đoạn (206/416) và HEAD.
+     */
+    @GetMapping("/{key:.+}")
+    public void getMedia(@PathVariable String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource resource = mediaStore.get(key).orElse(null);
+        if (resource == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + key + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return; // 304 (hoặc 412 nếu If-Match không khớp), header ETag đã được set
+        }
+
+        long length = resource.contentLength();
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = parseRanges(request, etag);
+        if (ranges == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        // Nhiều đoạn (multipart/byteranges) hiếm gặp với ảnh: trả về toàn bộ file là hợp lệ theo RFC 9110
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaKeys.contentTypeFor(key));
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (resource.isFile()) {
+            File file = resource.getFile();
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR)) && count >= sendfileMinSize) {
+                // Tomcat tự gửi file bằng sendfile sau khi handler trả về, bytes không đi qua heap
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, end + 1);
+                return;
+            }
+            transfer(file, start, count, response.getOutputStream());
+        } else {
+            try (InputStream in = resource.getInputStream()) {
+                StreamUtils.copyRange(in, response.getOutputStream(), start, end);
+            }
+        }
+    }
+
+    // Trả về danh sách range cần phục vụ (rỗng = toàn bộ file), hoặc null nếu header Range không hợp lệ
+    private List<HttpRange> parseRanges(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+        // If-Range với ETag khác (bản cũ) thì bỏ qua Range và gửi toàn bộ
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private void transfer(File file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.socialmedia.demo.controllers;
 
+import com.socialmedia.demo.exceptions.InvalidCursorException;
 import com.socialmedia.demo.requests.Message.MessageCreateRequest;
 import com.socialmedia.demo.requests.Message.MessageUpdateRequest;
+import com.socialmedia.demo.requests.Message.TypingRequest;
 import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.CursorPage;
 import com.socialmedia.demo.responses.MessageResponse;
 import com.socialmedia.demo.services.MessageService;
+import com.socialmedia.demo.services.TypingIndicatorService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,7 +17,8 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.security.Principal;
+
 
 @RestController
 @RequestMapping("/api/v1/messages") // Base path cho REST endpoints
@@ -21,6 +26,7 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final TypingIndicatorService typingIndicatorService;
 
     // --- REST Endpoints ---
 
@@ -34,11 +40,25 @@ public class MessageController {
         return ResponseEntity.ok(response);
     }
 
-    // Endpoint để lấy tất cả tin nhắn trong một chat
+    // Endpoint để lấy tin nhắn trong một chat, phân trang theo cursor
+    // Không có cursor: trang mới nhất; ?before=<cursor>: cuộn lên tin cũ hơn; ?after=<cursor>: lấy tin mới hơn
+    // (newestCursor của trang bất kỳ dùng được làm after)
+    // ?afterSeq=<seq>: resync sau khi kết nối lại, đúng các tin có seq lớn hơn seq cuối cùng client đã nhận,
+    // liền nhau tới seq đầu tiên chưa được ghi; seq mất hẳn nằm trong missingSeqs
     @GetMapping("/chat/{chatId}")
-    public ResponseEntity<ApiResponse<List<MessageResponse>>> getMessagesByChatId(@PathVariable String chatId) {
-        List<MessageResponse> messages = messageService.getMessagesByChatId(chatId);
-        ApiResponse<List<MessageResponse>> response = new ApiResponse<>();
+    public ResponseEntity<ApiResponse<CursorPage<MessageResponse>>> getMessagesByChatId(
+            @PathVariable String chatId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (afterSeq != null && (before != null || after != null)) {
+            throw new InvalidCursorException("'afterSeq' cannot be combined with 'before' or 'after'");
+        }
+        CursorPage<MessageResponse> messages = afterSeq != null
+                ? messageService.getMessagesAfterSeq(chatId, afterSeq, limit)
+                : messageService.getMessagesByChatId(chatId, before, after, limit);
+        ApiResponse<CursorPage<MessageResponse>> response = new ApiResponse<>();
         response.setCode(String.valueOf(HttpStatus.OK.value()));
         response.setResult(messages);
         return ResponseEntity.ok(response);
@@ -90,17 +110,19 @@ public class MessageController {
      */
     @MessageMapping("/chat/{chatId}") // Lắng nghe tin nhắn gửi đến /app/chat/{chatId}
     // @SendTo("/topic/chats/{chatId}") // Gửi kết quả trả về đến topic này (Service đã làm việc này rồi)
-    public void handleChatMessage(@DestinationVariable String chatId, @Payload MessageCreateRequest request) {
+    public void handleChatMessage(@DestinationVariable String chatId, @Payload MessageCreateRequest request,
+                                  Principal principal) {
          // Kiểm tra xem chatId trong path và trong payload có khớp không (tùy chọn)
-         if (!chatId.equals(request.getChatId())) {
+         if (request.getChatId() != null && !chatId.equals(request.getChatId())) {
              // Xử lý lỗi hoặc bỏ qua
              System.err.println("Chat ID mismatch in WebSocket message!");
              return;
          }
 
-        // Lấy senderId từ Principal hoặc SecurityContext nếu đã cấu hình xác thực WebSocket
-        // String senderId = principal.getName(); // Ví dụ nếu dùng Principal
-        // request.setSenderId(senderId);
+        // Người gửi luôn là principal của session (xác thực lúc CONNECT), không tin senderId trong payload.
+        // StompAuthChannelInterceptor đã kiểm tra thành viên chat trước khi frame tới đây.
+        request.setSenderId(principal.getName());
+        request.setChatId(chatId);
 
         // Gọi service để tạo và lưu tin nhắn, service sẽ tự động broadcast
         messageService.createMessage(request);
@@ -109,6 +131,15 @@ public class MessageController {
         // return messageResponse;
     }
 
+    /**
+     * Chỉ báo "đang gõ": client gửi tới /app/chat/{chatId}/typing, broadcast tới /topic/chats/{chatId}/typing.
+     * Xử lý hoàn toàn trong bộ nhớ (có gộp và giới hạn tần suất), không chạm tới database.
+     */
+    @MessageMapping("/chat/{chatId}/typing")
+    public void handleTyping(@DestinationVariable String chatId, @Payload TypingRequest request, Principal principal) {
+        typingIndicatorService.typing(chatId, principal.getName(), request.isTyping());
+    }
+
     // --- Helper method to get current user ID (Cần implement dựa trên cơ chế xác thực của bạn) ---
     /*
     private String getCurrentUserId() {
@@ -4,12 +4,18 @@ import com.socialmedia.demo.enums.PrivacySetting;
 import com.socialmedia.demo.requests.Post.PostCreateRequest;
 import com.socialmedia.demo.requests.Post.PostUpdateRequest;
 import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.CursorPage;
 import com.socialmedia.demo.responses.PostResponse;
+import com.socialmedia.demo.responses.SliceResponse;
 import com.socialmedia.demo.services.PostService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -40,16 +46,41 @@ public class PostController {
         return ResponseEntity.ok(response);
     }
 
-    // Endpoint để lấy danh sách tất cả bài đăng
+    // Endpoint để lấy danh sách bài đăng theo trang (?page=0&size=20), mới nhất trước
     @GetMapping
-    public ResponseEntity<ApiResponse<List<PostResponse>>> getAllPosts() {
-        List<PostResponse> posts = postService.getAllPosts();
-        ApiResponse<List<PostResponse>> response = new ApiResponse<>();
+    public ResponseEntity<ApiResponse<SliceResponse<PostResponse>>> getAllPosts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        SliceResponse<PostResponse> posts = postService.getAllPosts(page, size);
+        ApiResponse<SliceResponse<PostResponse>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(posts);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để cuộn danh sách bài đăng theo cursor (?cursor=<nextCursor>&limit=20), phù hợp cho cuộn vô hạn
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<PostResponse>>> scrollPosts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        CursorPage<PostResponse> posts = postService.getPostsByCursor(cursor, limit);
+        ApiResponse<CursorPage<PostResponse>> response = new ApiResponse<>();
         response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
         response.setResult(posts);
         return ResponseEntity.ok(response);
     }
 
+    // Endpoint export toàn bộ bài đăng dạng NDJSON (chỉ Admin), ghi dần ra response thay vì gom vào bộ nhớ
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPosts() {
+        StreamingResponseBody body = postService::exportPosts;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.ndjson\"")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     // Endpoint để lấy danh sách bài đăng theo ID tác giả
     @GetMapping("/author/{authorId}")
     public ResponseEntity<ApiResponse<List<PostResponse>>> getPostsByAuthorId(@PathVariable String authorId) {
@@ -3,6 +3,8 @@ package com.socialmedia.demo.controllers;
 import com.socialmedia.demo.requests.PostReaction.PostReactionCreateRequest;
 import com.socialmedia.demo.responses.ApiResponse;
 import com.socialmedia.demo.responses.PostReactionResponse;
+import com.socialmedia.demo.responses.ReactionSummaryResponse;
+import com.socialmedia.demo.security.SecurityUtils;
 import com.socialmedia.demo.services.PostReactionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -56,6 +58,16 @@ public class PostReactionController {
         return ResponseEntity.ok(response);
     }
 
+    // Endpoint để lấy số lượng reaction theo từng loại của một bài đăng và reaction của người dùng hiện tại
+    @GetMapping("/posts/{postId}/reactions/summary")
+    public ResponseEntity<ApiResponse<ReactionSummaryResponse>> getReactionSummary(@PathVariable String postId) {
+        ReactionSummaryResponse summary = postReactionService.getReactionSummary(postId, SecurityUtils.currentUserId());
+        ApiResponse<ReactionSummaryResponse> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(summary);
+        return ResponseEntity.ok(response);
+    }
+
     // Endpoint để lấy tất cả reactions của một người dùng cụ thể (giữ nguyên)
     @GetMapping("/users/{userId}/reactions")
     public ResponseEntity<ApiResponse<List<PostReactionResponse>>> getReactionsByUserId(@PathVariable String userId) {
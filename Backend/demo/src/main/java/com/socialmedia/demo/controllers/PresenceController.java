@@ -0,0 +1,45 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.exceptions.BadRequestException;
+import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.security.SecurityUtils;
+import com.socialmedia.demo.services.FriendService;
+import com.socialmedia.demo.services.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/v1/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceRegistry presenceRegistry;
+    private final FriendService friendService;
+
+    @Value("${app.realtime.presence.max-user-ids:200}")
+    private int maxUserIds = 200;
+
+    // Trạng thái online hiện tại của các user (ví dụ danh sách bạn bè); thay đổi sau đó nhận qua /topic/presence/{userId}.
+    // Chỉ trả về chính mình và bạn bè, các id khác bị bỏ qua như không tồn tại
+    @GetMapping
+    public ResponseEntity<ApiResponse<Map<String, Boolean>>> getPresence(@RequestParam List<String> userIds) {
+        Set<String> requested = new LinkedHashSet<>(userIds);
+        if (requested.size() > maxUserIds) {
+            throw new BadRequestException("At most " + maxUserIds + " userIds may be requested");
+        }
+        Set<String> visible = friendService.visibleUserIds(SecurityUtils.currentUserId(), requested);
+        requested.retainAll(visible);
+        ApiResponse<Map<String, Boolean>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value()));
+        response.setResult(presenceRegistry.onlineStatus(requested));
+        return ResponseEntity.ok(response);
+    }
+}
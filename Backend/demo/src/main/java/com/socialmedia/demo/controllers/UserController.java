@@ -3,6 +3,8 @@ package com.socialmedia.demo.controllers;
 import com.socialmedia.demo.requests.User.UserCreateRequest;
 import com.socialmedia.demo.requests.User.UserUpdateRequest;
 import com.socialmedia.demo.responses.ApiResponse;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.SliceResponse;
 import com.socialmedia.demo.responses.UserResponse;
 import com.socialmedia.demo.services.UserService;
 import lombok.RequiredArgsConstructor;
@@ -10,7 +12,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/users") // Base path cho tất cả các endpoint trong controller này
@@ -59,11 +60,25 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
-    // Endpoint để lấy danh sách tất cả người dùng
+    // Endpoint để lấy danh sách người dùng theo trang (?page=0&size=20), mới nhất trước
     @GetMapping
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
-        ApiResponse<List<UserResponse>> response = new ApiResponse<>();
+    public ResponseEntity<ApiResponse<SliceResponse<UserResponse>>> getAllUsers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        SliceResponse<UserResponse> users = userService.getAllUsers(page, size);
+        ApiResponse<SliceResponse<UserResponse>> response = new ApiResponse<>();
+        response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
+        response.setResult(users);
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint để cuộn danh sách người dùng theo cursor (?cursor=<nextCursor>&limit=20)
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<UserResponse>>> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        CursorPage<UserResponse> users = userService.getUsersByCursor(cursor, limit);
+        ApiResponse<CursorPage<UserResponse>> response = new ApiResponse<>();
         response.setCode(String.valueOf(HttpStatus.OK.value())); // 200
         response.setResult(users);
         return ResponseEntity.ok(response);
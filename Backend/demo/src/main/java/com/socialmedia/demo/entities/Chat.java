@@ -10,6 +10,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+// Fetch plan cho ChatMapper.toResponse, tách làm hai câu truy vấn để không nhân chéo hai collection
+// (members x messages): một câu lấy chat + thành viên, một câu lấy tin nhắn + người gửi
+@NamedEntityGraph(name = "Chat.members", attributeNodes = @NamedAttributeNode("members"))
+@NamedEntityGraph(name = "Chat.messages",
+    attributeNodes = @NamedAttributeNode(value = "messages", subgraph = "Chat.messages.sender"),
+    subgraphs = @NamedSubgraph(name = "Chat.messages.sender", attributeNodes = @NamedAttributeNode("sender")))
 @Table(name = "chats")
 @Data
 @Builder
@@ -24,7 +30,9 @@ public class Chat {
     @JoinTable(
         name = "chat_members",
         joinColumns = @JoinColumn(name = "chat_id"),
-        inverseJoinColumns = @JoinColumn(name = "user_id")
+        inverseJoinColumns = @JoinColumn(name = "user_id"),
+        // Kiểm tra thành viên khi gửi tin nhắn (ChatRepository.existsByChatIdAndUserId)
+        indexes = @Index(name = "idx_chat_members_chat_user", columnList = "chat_id, user_id")
     )
     private List<User> members;
     
@@ -0,0 +1,32 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Số thứ tự tin nhắn cuối cùng đã cấp cho một chat; tăng bằng upsert trong MessageSequencer (chỉ khóa dòng của chat đó)
+@Entity
+@Table(name = "chat_message_sequences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageSequence {
+    @Id
+    @Column(name = "chat_id")
+    private String chatId;
+
+    // Xóa chat thì DB tự xóa bộ đếm của nó
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "chat_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Chat chat;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+}
@@ -10,7 +10,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "comments")
+// Fetch plan cho CommentMapper.toResponse: comment + tác giả (post chỉ cần id, lấy từ khóa ngoại)
+@NamedEntityGraph(name = "Comment.author", attributeNodes = @NamedAttributeNode("author"))
+@Table(name = "comments", indexes = {
+    // MediaGarbageCollector kiểm tra key nào còn được tham chiếu
+    @Index(name = "idx_comments_image_key", columnList = "image_key")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,20 +25,23 @@ public class Comment {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id")
     private User author;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id")
     private Post post;
     
     @Column(columnDefinition = "TEXT")
     private String content;
     
-    @Lob
-    @Column(name = "image_data")
-    private byte[] imageData;
+    // Ảnh được lưu trong MediaStore, row chỉ giữ key/size/type
+    @Column(name = "image_key")
+    private String imageKey;
+
+    @Column(name = "image_size")
+    private Long imageSize;
     
     @Column(name = "image_type")
     private String imageType;
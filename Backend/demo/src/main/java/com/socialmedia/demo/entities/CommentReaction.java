@@ -10,7 +10,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comment_reactions")
+// Fetch plan cho CommentReactionMapper.toResponse: reaction + user (comment chỉ cần id)
+@NamedEntityGraph(name = "CommentReaction.user", attributeNodes = @NamedAttributeNode("user"))
+@Table(name = "comment_reactions", uniqueConstraints = {
+    // Mỗi user chỉ có một reaction trên một comment; cũng là đích của INSERT ... ON CONFLICT khi upsert
+    @UniqueConstraint(name = "uk_comment_reactions_comment_user", columnNames = {"comment_id", "user_id"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,11 +25,11 @@ public class CommentReaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "comment_id")
     private Comment comment;
     
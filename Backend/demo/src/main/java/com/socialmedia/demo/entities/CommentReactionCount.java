@@ -0,0 +1,31 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Bộ đếm reaction theo loại của một comment, được cập nhật cùng transaction với comment_reactions
+@Entity
+@Table(name = "comment_reaction_counts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentReactionCount {
+    @EmbeddedId
+    private CommentReactionCountId id;
+
+    // Xóa comment thì DB tự xóa các bộ đếm của nó
+    @MapsId("commentId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "comment_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Comment comment;
+
+    @Column(nullable = false)
+    private long count;
+}
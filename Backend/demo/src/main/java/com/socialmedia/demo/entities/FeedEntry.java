@@ -0,0 +1,50 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// Một dòng trong timeline (home feed) của người dùng: bài đăng đã được fan-out tới người đó khi đăng
+@Entity
+@Table(name = "feed_entries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_feed_entries_user_post", columnNames = {"user_id", "post_id"}),
+    indexes = {
+        // Một trang feed là một lần đọc theo khoảng trên index này
+        @Index(name = "idx_feed_entries_user_create_at_post", columnList = "user_id, create_at, post_id")
+    })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    // Chủ của timeline
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Post post;
+
+    // Tác giả của bài đăng, dùng để gỡ bài khỏi timeline khi hủy kết bạn
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User author;
+
+    // Bằng createAt của bài đăng, để sắp xếp timeline mà không cần join
+    @Column(name = "create_at", nullable = false)
+    private LocalDateTime createAt;
+}
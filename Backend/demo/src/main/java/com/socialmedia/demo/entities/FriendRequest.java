@@ -0,0 +1,39 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.Date;
+
+// Lời mời kết bạn đang chờ: chỉ khi receiver chấp nhận thì hai dòng user_friends mới được ghi
+@Entity
+@Table(name = "friend_requests",
+    uniqueConstraints = @UniqueConstraint(name = "uk_friend_requests_sender_receiver", columnNames = {"sender_id", "receiver_id"}),
+    indexes = @Index(name = "idx_friend_requests_receiver", columnList = "receiver_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRequest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sender_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User sender;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "receiver_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User receiver;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+}
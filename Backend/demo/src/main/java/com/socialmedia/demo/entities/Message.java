@@ -9,7 +9,15 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+// Fetch plan cho MessageMapper.toResponse: tin nhắn + người gửi (chat chỉ cần id)
+@NamedEntityGraph(name = "Message.sender", attributeNodes = @NamedAttributeNode("sender"))
+@Table(name = "messages", indexes = {
+    // Phục vụ phân trang keyset lịch sử chat: WHERE chat_id = ? AND (send_at, id) < (?, ?)
+    @Index(name = "idx_messages_chat_send_at_id", columnList = "chat_id, send_at, id")
+}, uniqueConstraints = {
+    // Mỗi seq chỉ thuộc một tin nhắn của chat; index này cũng phục vụ resync WHERE chat_id = ? AND seq > ?
+    @UniqueConstraint(name = "uk_messages_chat_seq", columnNames = {"chat_id", "seq"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -19,15 +27,18 @@ public class Message {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id")
     private User sender;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chat_id")
     private Chat chat;
     
     private LocalDateTime sendAt;
+
+    // Số thứ tự trong chat, cấp bởi MessageSequencer; thứ tự mà client dùng để đối chiếu tin nhắn
+    private Long seq;
     
     @Column(columnDefinition = "TEXT")
     private String content;
@@ -35,6 +46,8 @@ public class Message {
     
     @PrePersist
     protected void onCreate() {
-        sendAt = LocalDateTime.now();
+        if (sendAt == null) {
+            sendAt = LocalDateTime.now();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Tin nhắn đã broadcast nhưng MessageWriteBehind không ghi được sau số lần thử tối đa.
+// Không có khóa ngoại để vẫn giữ được khi chat/user bị xóa; nội dung lưu dạng byte UTF-8 vì chính nội dung
+// có thể là lý do bị từ chối (ví dụ ký tự \u0000 không hợp lệ trong cột TEXT)
+@Entity
+@Table(name = "message_dead_letters", indexes = {
+    @Index(name = "idx_message_dead_letters_chat_seq", columnList = "chat_id, seq")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageDeadLetter {
+    @Id
+    private String id;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    @Column(name = "sender_id")
+    private String senderId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    private LocalDateTime sendAt;
+
+    private byte[] content;
+
+    @Column(length = 1000)
+    private String error;
+
+    private LocalDateTime deadAt;
+}
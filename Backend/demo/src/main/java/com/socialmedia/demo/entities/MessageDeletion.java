@@ -0,0 +1,33 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Seq của tin nhắn đã bị xóa: dòng messages bị xóa hẳn, dòng này cho resync biết khoảng trống đó là tin đã xóa
+// chứ không phải tin chưa được ghi. Không có khóa ngoại, giống message_dead_letters
+@Entity
+@Table(name = "message_deletions", indexes = {
+    @Index(name = "idx_message_deletions_chat_seq", columnList = "chat_id, seq")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageDeletion {
+    // Id của tin nhắn đã xóa
+    @Id
+    private String id;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    private LocalDateTime deletedAt;
+}
@@ -11,7 +11,16 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "posts")
+// Fetch plan cho PostMapper.toResponse: bài đăng + tác giả trong một câu truy vấn
+@NamedEntityGraph(name = "Post.author", attributeNodes = @NamedAttributeNode("author"))
+@Table(name = "posts", indexes = {
+    // Phục vụ phân trang keyset danh sách bài đăng: ORDER BY create_at DESC, id DESC
+    @Index(name = "idx_posts_create_at_id", columnList = "create_at, id"),
+    // Phục vụ đọc bài đăng của các tác giả nhiều bạn bè khi ghép feed lúc đọc
+    @Index(name = "idx_posts_author_create_at_id", columnList = "author_id, create_at, id"),
+    // MediaGarbageCollector kiểm tra key nào còn được tham chiếu
+    @Index(name = "idx_posts_image_key", columnList = "image_key")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -21,16 +30,19 @@ public class Post {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id")
     private User author;
     
     @Column(columnDefinition = "TEXT")
     private String content;
     
-    @Lob
-    @Column(name = "image_data")
-    private byte[] imageData;
+    // Ảnh được lưu trong MediaStore, row chỉ giữ key/size/type
+    @Column(name = "image_key")
+    private String imageKey;
+
+    @Column(name = "image_size")
+    private Long imageSize;
     
     @Column(name = "image_type")
     private String imageType;
@@ -10,7 +10,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "post_reactions")
+// Fetch plan cho PostReactionMapper.toResponse: reaction + user (post chỉ cần id)
+@NamedEntityGraph(name = "PostReaction.user", attributeNodes = @NamedAttributeNode("user"))
+@Table(name = "post_reactions", uniqueConstraints = {
+    // Mỗi user chỉ có một reaction trên một bài đăng; cũng là đích của INSERT ... ON CONFLICT khi upsert
+    @UniqueConstraint(name = "uk_post_reactions_post_user", columnNames = {"post_id", "user_id"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,11 +25,11 @@ public class PostReaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id")
     private Post post;
     
@@ -0,0 +1,31 @@
+package com.socialmedia.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Bộ đếm reaction theo loại của một post, được cập nhật cùng transaction với post_reactions
+@Entity
+@Table(name = "post_reaction_counts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostReactionCount {
+    @EmbeddedId
+    private PostReactionCountId id;
+
+    // Xóa post thì DB tự xóa các bộ đếm của nó
+    @MapsId("postId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Post post;
+
+    @Column(nullable = false)
+    private long count;
+}
@@ -0,0 +1,22 @@
+package com.socialmedia.demo.entities;
+
+import com.socialmedia.demo.enums.ReactionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostReactionCountId implements Serializable {
+    @Column(name = "post_id")
+    private String postId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reaction_type", length = 16)
+    private ReactionType reactionType;
+}
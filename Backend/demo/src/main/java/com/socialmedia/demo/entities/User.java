@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -17,7 +18,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    // Phục vụ phân trang keyset danh sách người dùng: ORDER BY created_at DESC, id DESC
+    @Index(name = "idx_users_created_at_id", columnList = "created_at, id"),
+    // MediaGarbageCollector kiểm tra key nào còn được tham chiếu
+    @Index(name = "idx_users_avatar_key", columnList = "avatar_key"),
+    @Index(name = "idx_users_cover_picture_key", columnList = "cover_picture_key")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -42,16 +49,21 @@ public class User implements UserDetails  {
     @Enumerated(EnumType.STRING)
     private PrivacySetting privacySetting;
 
-    @Lob
-    @Column(name = "avatar_data")
-    private byte[] avatar;
+    // Avatar và ảnh bìa được lưu trong MediaStore, row chỉ giữ key/size/type
+    @Column(name = "avatar_key")
+    private String avatarKey;
+
+    @Column(name = "avatar_size")
+    private Long avatarSize;
     
     @Column(name = "avatar_type")
     private String avatarType;
     
-    @Lob
-    @Column(name = "cover_picture_data")
-    private byte[] coverPicture;
+    @Column(name = "cover_picture_key")
+    private String coverPictureKey;
+
+    @Column(name = "cover_picture_size")
+    private Long coverPictureSize;
     
     @Column(name = "cover_picture_type")
     private String coverPictureType;
@@ -60,6 +72,18 @@ public class User implements UserDetails  {
     @Column(nullable = false)
     private ROLE role;
 
+    // Số bạn bè, cập nhật bởi FriendService; quyết định fan-out lúc ghi hay ghép lúc đọc cho feed
+    @Column(name = "friend_count", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private int friendCount = 0;
+
+    // Được ghi vào JWT; tăng giá trị này để thu hồi tất cả token đã phát hành cho user
+    @Column(name = "token_version", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private int tokenVersion = 0;
+
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL)
     private List<Post> posts;
     @ManyToMany(mappedBy = "members")
@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.util.Date;
 
 @Entity
-@Table(name = "user_friends")
+@Table(name = "user_friends",
+    uniqueConstraints = @UniqueConstraint(name = "uk_user_friends_user_friend", columnNames = {"user_id", "friend_id"}),
+    indexes = @Index(name = "idx_user_friends_friend", columnList = "friend_id"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,11 +20,11 @@ public class UserFriend {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "friend_id")
     private User friend;
 
@@ -0,0 +1,16 @@
+package com.socialmedia.demo.exceptions;
+
+/**
+ * Tham số do client gửi không hợp lệ, được GlobalExeptionHandler trả về 400.
+ * Chỉ ném ở nơi chắc chắn lỗi đến từ input của request; lỗi nội bộ vẫn là 500.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
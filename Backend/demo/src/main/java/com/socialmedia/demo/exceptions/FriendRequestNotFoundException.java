@@ -0,0 +1,16 @@
+package com.socialmedia.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class FriendRequestNotFoundException extends RuntimeException {
+
+    public FriendRequestNotFoundException(String message) {
+        super(message);
+    }
+
+    public FriendRequestNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
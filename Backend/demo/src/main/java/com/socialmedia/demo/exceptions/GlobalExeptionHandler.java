@@ -21,6 +21,15 @@ public class GlobalExeptionHandler {
         return new ResponseEntity<>(apiResponse, HttpStatus.NOT_FOUND);
     }
 
+    // Không có lời mời kết bạn đang chờ để chấp nhận/từ chối
+    @ExceptionHandler(FriendRequestNotFoundException.class)
+    public ResponseEntity<ApiResponse<String>> handleFriendRequestNotFoundException(FriendRequestNotFoundException ex, WebRequest request) {
+        ApiResponse<String> apiResponse = new ApiResponse<>();
+        apiResponse.setCode(String.valueOf(HttpStatus.NOT_FOUND.value())); // 404
+        apiResponse.setResult(ex.getMessage());
+        return new ResponseEntity<>(apiResponse, HttpStatus.NOT_FOUND);
+    }
+
     // Handler cho lỗi vi phạm ràng buộc dữ liệu (ví dụ: email/username đã tồn tại)
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<ApiResponse<String>> handleDataIntegrityViolationException(DataIntegrityViolationException ex, WebRequest request) {
@@ -31,6 +40,16 @@ public class GlobalExeptionHandler {
         return new ResponseEntity<>(apiResponse, HttpStatus.CONFLICT);
     }
 
+    // Handler cho tham số client gửi không hợp lệ (ví dụ: InvalidCursorException khi cursor phân trang sai định dạng).
+    // Không bắt IllegalArgumentException chung: lỗi đó từ thư viện hay service là lỗi nội bộ (500), không phải lỗi client
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiResponse<String>> handleBadRequestException(BadRequestException ex, WebRequest request) {
+        ApiResponse<String> apiResponse = new ApiResponse<>();
+        apiResponse.setCode(String.valueOf(HttpStatus.BAD_REQUEST.value())); // 400
+        apiResponse.setResult(ex.getMessage());
+        return new ResponseEntity<>(apiResponse, HttpStatus.BAD_REQUEST);
+    }
+
     // Handler chung cho các RuntimeException khác (nên đặt cuối cùng)
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @ExceptionHandler(value = RuntimeException.class)
@@ -0,0 +1,13 @@
+package com.socialmedia.demo.exceptions;
+
+// Cursor phân trang sai định dạng hoặc các tham số cursor không được dùng cùng nhau
+public class InvalidCursorException extends BadRequestException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
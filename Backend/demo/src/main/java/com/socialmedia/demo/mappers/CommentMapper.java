@@ -6,7 +6,7 @@ import com.socialmedia.demo.requests.Comment.CommentUpdateRequest;
 import com.socialmedia.demo.responses.CommentResponse;
 import org.mapstruct.*;
 
-@Mapper(componentModel = "spring", uses = {UserMapper.class}) // Sử dụng UserMapper để map author
+@Mapper(componentModel = "spring", uses = {UserMapper.class, MediaUrlMapper.class}) // Sử dụng UserMapper để map author
 public interface CommentMapper {
 
     @Mapping(target = "id", ignore = true) // Bỏ qua id vì nó được tạo tự động
@@ -14,6 +14,9 @@ public interface CommentMapper {
     @Mapping(target = "post", ignore = true) // Post sẽ được set thủ công trong service
     @Mapping(target = "createAt", ignore = true) // createAt được set bởi @PrePersist
     @Mapping(target = "commentReactions", ignore = true) // Bỏ qua các mối quan hệ khác
+    @Mapping(target = "imageKey", ignore = true) // Ảnh được service ghi vào MediaStore
+    @Mapping(target = "imageSize", ignore = true)
+    @Mapping(target = "imageType", ignore = true)
     Comment toEntity(CommentCreateRequest request);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE) // Chỉ cập nhật các trường không null
@@ -22,11 +25,15 @@ public interface CommentMapper {
     @Mapping(target = "post", ignore = true) // Không cho phép cập nhật post qua mapper
     @Mapping(target = "createAt", ignore = true) // Không cho phép cập nhật ngày tạo
     @Mapping(target = "commentReactions", ignore = true) // Bỏ qua các mối quan hệ khác
+    @Mapping(target = "imageKey", ignore = true) // Ảnh được service ghi vào MediaStore
+    @Mapping(target = "imageSize", ignore = true)
+    @Mapping(target = "imageType", ignore = true)
     void updateEntityFromRequest(CommentUpdateRequest request, @MappingTarget Comment comment);
 
     // Map từ Comment entity sang CommentResponse DTO
     // UserMapper sẽ tự động được sử dụng cho trường 'author'
     @Mapping(source = "post.id", target = "postId") // Map ID của Post entity sang postId trong response
+    @Mapping(source = "imageKey", target = "imageUrl", qualifiedByName = "mediaUrl") // Bytes ảnh do MediaController phục vụ
     CommentResponse toResponse(Comment comment);
 
     // Phương thức tiện ích để cập nhật entity (tùy chọn)
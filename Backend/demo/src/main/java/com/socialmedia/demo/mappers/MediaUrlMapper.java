@@ -0,0 +1,18 @@
+package com.socialmedia.demo.mappers;
+
+import org.mapstruct.Named;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Chuyển media key thành URL của MediaController, dùng chung cho các mapper có ảnh
+@Component
+public class MediaUrlMapper {
+
+    @Value("${app.media.base-url:/api/v1/media}")
+    private String baseUrl;
+
+    @Named("mediaUrl")
+    public String toUrl(String key) {
+        return key != null ? baseUrl + "/" + key : null;
+    }
+}
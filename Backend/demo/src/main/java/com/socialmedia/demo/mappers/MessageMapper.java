@@ -1,18 +1,20 @@
 package com.socialmedia.demo.mappers;
 
 import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.projections.MessageView;
 import com.socialmedia.demo.requests.Message.MessageCreateRequest;
 import com.socialmedia.demo.requests.Message.MessageUpdateRequest;
 import com.socialmedia.demo.responses.MessageResponse;
 import org.mapstruct.*;
 
-@Mapper(componentModel = "spring", uses = {UserMapper.class}) // Sử dụng UserMapper để map sender
+@Mapper(componentModel = "spring", uses = {UserMapper.class, MediaUrlMapper.class}) // Sử dụng UserMapper để map sender
 public interface MessageMapper {
 
     @Mapping(target = "id", ignore = true) // Bỏ qua id vì nó được tạo tự động
     @Mapping(target = "sender", ignore = true) // Sender sẽ được set thủ công trong service
     @Mapping(target = "chat", ignore = true) // Chat sẽ được set thủ công trong service dựa trên chatId từ request
     @Mapping(target = "sendAt", ignore = true) // sendAt được set bởi @PrePersist
+    @Mapping(target = "seq", ignore = true) // seq được cấp trong service
     Message toEntity(MessageCreateRequest request);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE) // Chỉ cập nhật các trường không null
@@ -20,6 +22,7 @@ public interface MessageMapper {
     @Mapping(target = "sender", ignore = true) // Không cho phép cập nhật sender qua mapper
     @Mapping(target = "chat", ignore = true) // Không cho phép cập nhật chat qua mapper
     @Mapping(target = "sendAt", ignore = true) // Không cho phép cập nhật ngày gửi
+    @Mapping(target = "seq", ignore = true)
     void updateEntityFromRequest(MessageUpdateRequest request, @MappingTarget Message message);
 
     // Map từ Message entity sang MessageResponse DTO
@@ -27,6 +30,13 @@ public interface MessageMapper {
     @Mapping(source = "chat.id", target = "chatId") // Map ID của Chat entity sang chatId trong response
     MessageResponse toResponse(Message message);
 
+    // Map từ projection (không load entity User) sang MessageResponse
+    @Mapping(source = "senderId", target = "sender.id")
+    @Mapping(source = "senderUsername", target = "sender.username")
+    @Mapping(source = "senderFullname", target = "sender.fullname")
+    @Mapping(source = "senderAvatarKey", target = "sender.avatarUrl", qualifiedByName = "mediaUrl")
+    MessageResponse toResponse(MessageView view);
+
     // Phương thức tiện ích để cập nhật entity (tùy chọn)
     default Message updateEntity(Message message, MessageUpdateRequest request) {
         updateEntityFromRequest(request, message);
@@ -6,7 +6,7 @@ import com.socialmedia.demo.requests.Post.PostUpdateRequest;
 import com.socialmedia.demo.responses.PostResponse;
 import org.mapstruct.*;
 
-@Mapper(componentModel = "spring", uses = UserMapper.class) // Use UserMapper for author mapping
+@Mapper(componentModel = "spring", uses = {UserMapper.class, MediaUrlMapper.class}) // Use UserMapper for author mapping
 public interface PostMapper {
 
     @Mapping(target = "id", ignore = true) // Ignore ID as it's auto-generated
@@ -14,6 +14,9 @@ public interface PostMapper {
     @Mapping(target = "createAt", ignore = true) // createAt is set by @PrePersist
     @Mapping(target = "comments", ignore = true) // Ignore relationships
     @Mapping(target = "postReactions", ignore = true) // Ignore relationships
+    @Mapping(target = "imageKey", ignore = true) // Image is written to the MediaStore by the service
+    @Mapping(target = "imageSize", ignore = true)
+    @Mapping(target = "imageType", ignore = true)
     Post toEntity(PostCreateRequest request);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE) // Update only non-null fields
@@ -22,10 +25,14 @@ public interface PostMapper {
     @Mapping(target = "createAt", ignore = true) // Do not update creation timestamp
     @Mapping(target = "comments", ignore = true) // Ignore relationships
     @Mapping(target = "postReactions", ignore = true) // Ignore relationships
+    @Mapping(target = "imageKey", ignore = true) // Image is written to the MediaStore by the service
+    @Mapping(target = "imageSize", ignore = true)
+    @Mapping(target = "imageType", ignore = true)
     void updateEntityFromRequest(PostUpdateRequest request, @MappingTarget Post post);
 
     // Map from Post entity to PostResponse DTO
     // UserMapper will be used automatically for the 'author' field mapping (Post.author -> UserResponse)
+    @Mapping(source = "imageKey", target = "imageUrl", qualifiedByName = "mediaUrl") // Image bytes are served by MediaController
     PostResponse toResponse(Post post);
 
     // Utility method to update entity
@@ -4,11 +4,12 @@ import com.socialmedia.demo.entities.User;
 import com.socialmedia.demo.requests.User.UserCreateRequest;
 import com.socialmedia.demo.requests.User.UserUpdateRequest;
 import com.socialmedia.demo.responses.UserResponse;
+import com.socialmedia.demo.responses.UserSummary;
 import org.mapstruct.*;
 
 import java.util.Date;
 
-@Mapper(componentModel = "spring", imports = Date.class)
+@Mapper(componentModel = "spring", imports = Date.class, uses = MediaUrlMapper.class)
 public interface UserMapper {
 
     @Mapping(target = "id", ignore = true) 
@@ -17,6 +18,8 @@ public interface UserMapper {
     @Mapping(target = "chats", ignore = true)
     @Mapping(target = "friendRelations", ignore = true)
     @Mapping(target = "blacklistRelations", ignore = true)
+    @Mapping(target = "friendCount", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     User toEntity(UserCreateRequest request);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE) // Chỉ cập nhật các trường không null
@@ -27,11 +30,29 @@ public interface UserMapper {
     @Mapping(target = "chats", ignore = true)
     @Mapping(target = "friendRelations", ignore = true)
     @Mapping(target = "blacklistRelations", ignore = true)
+    @Mapping(target = "friendCount", ignore = true) // Do FriendService quản lý
+    @Mapping(target = "tokenVersion", ignore = true) // Do UserService quản lý khi thu hồi token
+    @Mapping(target = "avatarKey", ignore = true) // Ảnh được service ghi vào MediaStore
+    @Mapping(target = "avatarSize", ignore = true)
+    @Mapping(target = "avatarType", ignore = true)
+    @Mapping(target = "coverPictureKey", ignore = true)
+    @Mapping(target = "coverPictureSize", ignore = true)
+    @Mapping(target = "coverPictureType", ignore = true)
     void updateEntityFromRequest(UserUpdateRequest request, @MappingTarget User user);
 
     // Map từ User entity sang UserResponse DTO
+    // Ảnh được trả về dưới dạng URL tới MediaController thay vì bytes
+    @Mapping(source = "avatarKey", target = "avatarUrl", qualifiedByName = "mediaUrl")
+    @Mapping(source = "coverPictureKey", target = "coverPictureUrl", qualifiedByName = "mediaUrl")
     UserResponse toResponse(User user);
 
+    // Bản rút gọn dùng khi user được nhúng trong post, comment, message, reaction, chat
+    @Mapping(source = "avatarKey", target = "avatarUrl", qualifiedByName = "mediaUrl")
+    UserSummary toSummary(User user);
+
+    // Từ UserResponse đã cache (UserService.getUserById), không cần load entity
+    UserSummary toSummary(UserResponse response);
+
     // Phương thức tiện ích để cập nhật entity
     default User updateEntity(User user, UserUpdateRequest request) {
         updateEntityFromRequest(request, user);
@@ -0,0 +1,143 @@
+package com.socialmedia.demo.media;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * MediaStore lưu file trên đĩa theo địa chỉ nội dung: {root}/ab/cd/abcd....png.
+ * Ghi vào file tạm rồi move nguyên tử, nên reader không bao giờ thấy file ghi dở
+ * và hai upload trùng nội dung chỉ tạo ra một file.
+ */
+@Component
+@ConditionalOnProperty(name = "app.media.store", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemMediaStore implements MediaStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemMediaStore.class);
+
+    private final Path root;
+
+    public FileSystemMediaStore(@Value("${app.media.root-dir}") String rootDir) throws IOException {
+        this.root = Paths.get(rootDir).toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+        logger.info("Media store root: {}", this.root);
+    }
+
+    @Override
+    public StoredMedia put(byte[] data, String contentType) {
+        String key = MediaKeys.keyFor(data, contentType);
+        Path target = resolve(key);
+        if (!Files.exists(target)) {
+            write(target, data);
+        } else {
+            touch(target);
+        }
+        return new StoredMedia(key, data.length, MediaKeys.contentTypeFor(key));
+    }
+
+    @Override
+    public Optional<Resource> get(String key) {
+        if (!MediaKeys.isValid(key)) {
+            return Optional.empty();
+        }
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return MediaKeys.isValid(key) && Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void forEachKeyWrittenBefore(Instant cutoff, Consumer<String> action) {
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            files.filter(path -> MediaKeys.isValid(path.getFileName().toString()))
+                    .filter(path -> writtenBefore(path, cutoff))
+                    .forEach(path -> action.accept(path.getFileName().toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list media store " + root, e);
+        }
+    }
+
+    @Override
+    public boolean deleteIfWrittenBefore(String key, Instant cutoff) {
+        if (!MediaKeys.isValid(key)) {
+            return false;
+        }
+        Path path = resolve(key);
+        if (!writtenBefore(path, cutoff)) {
+            return false;
+        }
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete media " + key, e);
+        }
+    }
+
+    private static boolean writtenBefore(Path path, Instant cutoff) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false; // File vừa bị xóa hoặc không đọc được: bỏ qua lần này
+        }
+    }
+
+    // Upload trùng nội dung với file cũ: làm mới thời điểm ghi để MediaGarbageCollector không xóa nó
+    private static void touch(Path target) {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            logger.warn("Could not refresh modification time of {}", target, e);
+        }
+    }
+
+    private Path resolve(String key) {
+        if (!MediaKeys.isValid(key)) {
+            throw new IllegalArgumentException("Invalid media key: " + key);
+        }
+        // Chia thư mục theo 2 cấp để tránh hàng triệu file trong một thư mục
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private void write(Path target, byte[] data) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (FileAlreadyExistsException e) {
+            // Upload đồng thời cùng nội dung: file kia đã thắng, nội dung giống hệt
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store media " + target.getFileName(), e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    logger.warn("Could not remove temporary upload {}", tmp, e);
+                }
+            }
+        }
+    }
+}
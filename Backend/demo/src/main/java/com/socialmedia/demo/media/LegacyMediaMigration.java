@@ -0,0 +1,113 @@
+package com.socialmedia.demo.media;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Blob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chuyển ảnh cũ đang nằm trong các cột @Lob (image_data, avatar_data, cover_picture_data)
+ * sang MediaStore, ghi key/size vào cột mới rồi xóa bytes khỏi row.
+ * Chỉ chạy khi bật rõ ràng (app.media.migrate-legacy-blobs=true), lúc khởi động, theo từng batch nhỏ,
+ * và idempotent: chỉ xử lý row còn bytes mà chưa có key. Khi cả ba bảng đã sạch có thể drop các cột cũ.
+ * Chạy khi mọi singleton đã tạo xong (sau khi Hibernate thêm cột key) nhưng trước khi web server khởi động,
+ * nên không request nào thấy row chưa chuyển với URL ảnh null.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.media.migrate-legacy-blobs", havingValue = "true")
+public class LegacyMediaMigration implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyMediaMigration.class);
+
+    private static final int BATCH_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaStore mediaStore;
+
+    @Value("${app.media.migration-batch-size:" + BATCH_SIZE + "}")
+    private int batchSize = BATCH_SIZE;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate("posts", "image_data", "image_type", "image_key", "image_size");
+        migrate("comments", "image_data", "image_type", "image_key", "image_size");
+        migrate("users", "avatar_data", "avatar_type", "avatar_key", "avatar_size");
+        migrate("users", "cover_picture_data", "cover_picture_type", "cover_picture_key", "cover_picture_size");
+    }
+
+    private void migrate(String table, String dataColumn, String typeColumn, String keyColumn, String sizeColumn) {
+        if (!columnExists(table, dataColumn)) {
+            return;
+        }
+        int total = 0;
+        int moved;
+        do {
+            // Mỗi batch một transaction: large object của PostgreSQL chỉ đọc được khi autocommit tắt
+            Integer count = transactionTemplate.execute(status ->
+                    migrateBatch(table, dataColumn, typeColumn, keyColumn, sizeColumn));
+            moved = count != null ? count : 0;
+            total += moved;
+        } while (moved == batchSize);
+        if (total > 0) {
+            logger.info("Moved {} legacy blobs from {}.{} to the media store", total, table, dataColumn);
+        }
+    }
+
+    private int migrateBatch(String table, String dataColumn, String typeColumn, String keyColumn, String sizeColumn) {
+        String select = "SELECT id, " + dataColumn + ", " + typeColumn + " FROM " + table
+                + " WHERE " + dataColumn + " IS NOT NULL AND " + keyColumn + " IS NULL LIMIT " + batchSize;
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> largeObjects = new ArrayList<>();
+        jdbcTemplate.query(select, rs -> {
+            byte[] data = readBytes(rs, 2, largeObjects);
+            StoredMedia media = mediaStore.put(data, rs.getString(3));
+            updates.add(new Object[]{media.getKey(), media.getSize(), media.getContentType(), rs.getString(1)});
+        });
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET " + keyColumn + " = ?, " + sizeColumn + " = ?, "
+                + typeColumn + " = ?, " + dataColumn + " = NULL WHERE id = ?", updates);
+        // Với cột oid, xóa tham chiếu chưa đủ: phải unlink để PostgreSQL giải phóng large object
+        for (Long oid : largeObjects) {
+            jdbcTemplate.queryForObject("SELECT lo_unlink(?)", Integer.class, oid);
+        }
+        return updates.size();
+    }
+
+    private byte[] readBytes(ResultSet rs, int column, List<Long> largeObjects) throws SQLException {
+        int type = rs.getMetaData().getColumnType(column);
+        if (type == Types.BINARY || type == Types.VARBINARY || type == Types.LONGVARBINARY) {
+            return rs.getBytes(column);
+        }
+        // Hibernate 6 ánh xạ @Lob byte[] trên PostgreSQL thành cột oid (large object)
+        largeObjects.add(rs.getLong(column));
+        Blob blob = rs.getBlob(column);
+        try {
+            return blob.getBytes(1, (int) blob.length());
+        } finally {
+            blob.free();
+        }
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
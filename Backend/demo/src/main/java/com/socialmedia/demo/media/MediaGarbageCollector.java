@@ -0,0 +1,89 @@
+package com.socialmedia.demo.media;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dọn các file trong MediaStore không còn row nào tham chiếu (ảnh bị thay, post/comment/user bị xóa).
+ * Key theo nội dung và dùng chung giữa các row, nên không xóa ngay khi một row bỏ ảnh mà quét định kỳ:
+ * key chỉ bị xóa khi không có trong posts.image_key, comments.image_key, users.avatar_key, users.cover_picture_key
+ * và lần ghi cuối cũ hơn app.media.gc.min-age. Khoảng chờ này che upload vừa ghi file mà row chưa commit;
+ * put lại một key đã có sẽ làm mới thời điểm ghi nên key đang được dùng lại cũng không bị xóa.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.media.gc.enabled", havingValue = "true", matchIfMissing = true)
+public class MediaGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaGarbageCollector.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MediaStore mediaStore;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.media.gc.min-age:1h}")
+    private Duration minAge = Duration.ofHours(1);
+
+    @Scheduled(initialDelayString = "${app.media.gc.interval-ms:3600000}",
+               fixedDelayString = "${app.media.gc.interval-ms:3600000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(minAge);
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        int[] deleted = {0};
+        mediaStore.forEachKeyWrittenBefore(cutoff, key -> {
+            batch.add(key);
+            if (batch.size() == BATCH_SIZE) {
+                deleted[0] += deleteUnreferenced(batch, cutoff);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            deleted[0] += deleteUnreferenced(batch, cutoff);
+        }
+        if (deleted[0] > 0) {
+            logger.info("Removed {} unreferenced media files", deleted[0]);
+        }
+    }
+
+    private int deleteUnreferenced(List<String> keys, Instant cutoff) {
+        Set<String> referenced = referenced(keys);
+        int deleted = 0;
+        for (String key : keys) {
+            if (!referenced.contains(key) && mediaStore.deleteIfWrittenBefore(key, cutoff)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    // Mỗi cột có index riêng, nên một batch là bốn lần tra index
+    private Set<String> referenced(List<String> keys) {
+        String in = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        String sql = "SELECT image_key FROM posts WHERE image_key IN (" + in + ") "
+                + "UNION SELECT image_key FROM comments WHERE image_key IN (" + in + ") "
+                + "UNION SELECT avatar_key FROM users WHERE avatar_key IN (" + in + ") "
+                + "UNION SELECT cover_picture_key FROM users WHERE cover_picture_key IN (" + in + ")";
+        Object[] args = new Object[keys.size() * 4];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < keys.size(); j++) {
+                args[i * keys.size() + j] = keys.get(j);
+            }
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, args));
+    }
+}
@@ -0,0 +1,78 @@
+package com.socialmedia.demo.media;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Quy ước đặt key cho media: SHA-256 của nội dung (hex) + phần mở rộng suy ra từ content type,
+ * ví dụ "9f86d0...0a08.png". Phần mở rộng cho phép phục vụ đúng Content-Type mà không cần tra DB.
+ */
+public final class MediaKeys {
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+
+    // Chỉ các định dạng ảnh raster; svg bị loại để tránh phục vụ script cùng origin
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif",
+            "image/webp", "webp",
+            "image/bmp", "bmp",
+            "image/avif", "avif"
+    );
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "bmp", "image/bmp",
+            "avif", "image/avif"
+    );
+
+    private MediaKeys() {
+    }
+
+    public static String keyFor(byte[] data, String contentType) {
+        return sha256Hex(data) + "." + extensionFor(contentType);
+    }
+
+    public static boolean isValid(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches();
+    }
+
+    public static String extensionFor(String contentType) {
+        if (contentType == null) {
+            return "bin";
+        }
+        String normalized = contentType.toLowerCase(Locale.ROOT).split(";")[0].trim();
+        return EXTENSIONS.getOrDefault(normalized, "bin");
+    }
+
+    public static String contentTypeFor(String key) {
+        int dot = key.lastIndexOf('.');
+        if (dot < 0) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        return CONTENT_TYPES.getOrDefault(key.substring(dot + 1), DEFAULT_CONTENT_TYPE);
+    }
+
+    public static String normalizeContentType(String contentType) {
+        return contentTypeFor("." + extensionFor(contentType));
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 luôn có sẵn trên mọi JVM
+            throw new IllegalStateException(e);
+        }
+    }
+}
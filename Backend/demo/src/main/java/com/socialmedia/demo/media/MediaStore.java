@@ -0,0 +1,31 @@
+package com.socialmedia.demo.media;
+
+import org.springframework.core.io.Resource;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Lưu trữ ảnh (post, comment, avatar, cover) bên ngoài các bảng entity.
+ * Entity chỉ giữ lại key, kích thước và content type; bytes được đọc qua {@link #get(String)}.
+ * Key theo nội dung nên nhiều row có thể dùng chung một key: không xóa khi một row đổi/xóa ảnh,
+ * MediaGarbageCollector xóa các key không còn row nào tham chiếu.
+ */
+public interface MediaStore {
+
+    // Lưu bytes và trả về key định danh nội dung (cùng nội dung -> cùng key).
+    // Key đã có thì được đánh dấu vừa ghi, để không bị dọn trước khi row tham chiếu tới nó commit
+    StoredMedia put(byte[] data, String contentType);
+
+    // Trả về resource cho key, hoặc empty nếu không tồn tại
+    Optional<Resource> get(String key);
+
+    boolean exists(String key);
+
+    // Gọi action cho mỗi key được ghi (hoặc put lại) lần cuối trước cutoff
+    void forEachKeyWrittenBefore(Instant cutoff, Consumer<String> action);
+
+    // Xóa key nếu lần ghi cuối vẫn trước cutoff (không có put nào vừa dùng lại nó); trả về true nếu đã xóa
+    boolean deleteIfWrittenBefore(String key, Instant cutoff);
+}
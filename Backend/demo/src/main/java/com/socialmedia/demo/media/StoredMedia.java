@@ -0,0 +1,16 @@
+package com.socialmedia.demo.media;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredMedia {
+    private String key;
+    private long size;
+    private String contentType;
+}
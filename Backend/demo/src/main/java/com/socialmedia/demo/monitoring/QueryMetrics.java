@@ -0,0 +1,42 @@
+package com.socialmedia.demo.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi QueryStats của một HTTP request hoặc frame STOMP thành metric, gắn tag theo loại và endpoint:
+ * sql.statements, sql.rows (DistributionSummary) và sql.time (Timer).
+ * Ví dụ: /actuator/metrics/sql.statements?tag=type:http&amp;tag=endpoint:GET /api/v1/posts/{postId}
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryMetrics {
+
+    public static final String TYPE_HTTP = "http";
+    public static final String TYPE_STOMP = "stomp";
+
+    private final MeterRegistry meterRegistry;
+
+    public void record(String type, String endpoint, QueryStats stats) {
+        DistributionSummary.builder("sql.statements")
+                .description("SQL statements executed per request or STOMP frame")
+                .tags("type", type, "endpoint", endpoint)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("sql.rows")
+                .description("Rows read or written per request or STOMP frame")
+                .tags("type", type, "endpoint", endpoint)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("sql.time")
+                .description("Time spent executing SQL per request or STOMP frame")
+                .tags("type", type, "endpoint", endpoint)
+                .register(meterRegistry)
+                .record(stats.getTimeNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,99 @@
+package com.socialmedia.demo.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageMappingInfo;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.PathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đếm câu SQL khi xử lý mỗi frame STOMP gửi tới @MessageMapping (chạy trên thread của inbound executor),
+ * endpoint là command + pattern của @MessageMapping khớp với destination, ví dụ "SEND /app/chat/{chatId}".
+ * Destination do client tự chọn nên frame không khớp mapping nào gộp chung tag "UNMAPPED" như QueryMetricsFilter,
+ * để số tag không tăng theo destination.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryMetricsChannelInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String UNMAPPED = "UNMAPPED";
+
+    private final QueryMetrics queryMetrics;
+
+    private final ThreadLocal<QueryStats> currentFrame = new ThreadLocal<>();
+    // Pattern của các @MessageMapping theo handler, đọc một lần khi frame đầu tiên tới
+    private final Map<SimpAnnotationMethodMessageHandler, List<String>> patterns = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        // Mỗi handler nhận frame trong một task riêng; chỉ các @MessageMapping (handler của /app) chạm tới DB
+        if (handler instanceof SimpAnnotationMethodMessageHandler annotationHandler) {
+            String endpoint = endpointOf(message, annotationHandler);
+            if (endpoint != null) {
+                currentFrame.set(QueryTracker.start(endpoint));
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        QueryStats stats = currentFrame.get();
+        if (stats == null) {
+            return;
+        }
+        currentFrame.remove();
+        stats.close();
+        queryMetrics.record(QueryMetrics.TYPE_STOMP, stats.getName(), stats);
+    }
+
+    // null với frame không có destination (CONNECT, DISCONNECT, heartbeat)
+    private String endpointOf(Message<?> message, SimpAnnotationMethodMessageHandler handler) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null || accessor.getDestination() == null) {
+            return null;
+        }
+        String destination = accessor.getDestination();
+        // Prefix được chuẩn hóa với "/" ở cuối ("/app/") còn pattern bắt đầu bằng "/" ("/chat/{chatId}")
+        for (String prefix : handler.getDestinationPrefixes()) {
+            if (destination.startsWith(prefix)) {
+                String base = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+                String pattern = matchingPattern(handler, destination.substring(base.length()));
+                return pattern != null ? accessor.getCommand().name() + " " + base + pattern : UNMAPPED;
+            }
+        }
+        return UNMAPPED;
+    }
+
+    // Pattern cụ thể nhất khớp với destination (đã bỏ prefix), giống cách handler chọn phương thức
+    private String matchingPattern(SimpAnnotationMethodMessageHandler handler, String lookupDestination) {
+        PathMatcher pathMatcher = handler.getPathMatcher();
+        String best = null;
+        for (String pattern : patterns.computeIfAbsent(handler, QueryMetricsChannelInterceptor::patternsOf)) {
+            if (pathMatcher.match(pattern, lookupDestination)
+                    && (best == null || pathMatcher.getPatternComparator(lookupDestination).compare(pattern, best) < 0)) {
+                best = pattern;
+            }
+        }
+        return best;
+    }
+
+    private static List<String> patternsOf(SimpAnnotationMethodMessageHandler handler) {
+        List<String> patterns = new ArrayList<>();
+        for (SimpMessageMappingInfo mapping : handler.getHandlerMethods().keySet()) {
+            patterns.addAll(mapping.getDestinationConditions().getPatterns());
+        }
+        return patterns;
+    }
+}
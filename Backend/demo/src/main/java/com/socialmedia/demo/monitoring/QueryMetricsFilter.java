@@ -0,0 +1,41 @@
+package com.socialmedia.demo.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Đếm câu SQL của mỗi HTTP request (kể cả phần xác thực trong security filter) và ghi vào QueryMetrics,
+ * endpoint là method + pattern của handler (ví dụ "GET /api/v1/posts/{postId}") để số tag không phụ thuộc id.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class QueryMetricsFilter extends OncePerRequestFilter {
+
+    private final QueryMetrics queryMetrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryTracker.start(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            stats.close();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            // Request không tới được handler (401, 404, ...) gộp chung một tag
+            String endpoint = pattern != null ? request.getMethod() + " " + pattern : "UNMAPPED";
+            queryMetrics.record(QueryMetrics.TYPE_HTTP, endpoint, stats);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.socialmedia.demo.monitoring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số câu SQL, số dòng (đọc qua ResultSet hoặc bị INSERT/UPDATE/DELETE tác động) và tổng thời gian chạy
+ * của một phạm vi theo dõi (một HTTP request, một frame STOMP hoặc một đoạn code trong test).
+ * Mở bằng QueryTracker.start() và đóng bằng close(); chỉ dùng trên thread đã mở nó.
+ */
+public class QueryStats implements AutoCloseable {
+
+    private final String name;
+    private long statements;
+    private long rows;
+    private long timeNanos;
+
+    QueryStats(String name) {
+        this.name = name;
+    }
+
+    void addStatement(long elapsedMillis, long affectedRows) {
+        statements++;
+        rows += affectedRows;
+        timeNanos += TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
+    }
+
+    void addRows(long count) {
+        rows += count;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    @Override
+    public void close() {
+        QueryTracker.stop(this);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + statements + " statements, " + rows + " rows, "
+                + TimeUnit.NANOSECONDS.toMillis(timeNanos) + " ms";
+    }
+}
@@ -0,0 +1,67 @@
+package com.socialmedia.demo.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Các phạm vi QueryStats đang mở trên thread hiện tại.
+ * Một câu SQL được cộng vào mọi phạm vi đang mở, nên phạm vi lồng nhau (test bọc quanh một request) đều thấy nó.
+ * Câu SQL chạy ngoài mọi phạm vi (job nền, flush write-behind) không được tính.
+ */
+public final class QueryTracker {
+
+    // Không dùng withInitial: get() trên thread không có phạm vi nào (job nền, thread flush) chỉ trả về null,
+    // không tạo deque, vì recordRows được gọi cho mỗi ResultSet.next()
+    private static final ThreadLocal<Deque<QueryStats>> SCOPES = new ThreadLocal<>();
+
+    private QueryTracker() {
+    }
+
+    public static QueryStats start(String name) {
+        QueryStats stats = new QueryStats(name);
+        Deque<QueryStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        scopes.push(stats);
+        return stats;
+    }
+
+    // Phạm vi trong cùng (gần nhất) đang mở, null nếu không có
+    public static QueryStats current() {
+        Deque<QueryStats> scopes = SCOPES.get();
+        return scopes != null ? scopes.peek() : null;
+    }
+
+    static void stop(QueryStats stats) {
+        Deque<QueryStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(stats);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    static void recordStatement(long elapsedMillis, long affectedRows) {
+        Deque<QueryStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        for (QueryStats stats : scopes) {
+            stats.addStatement(elapsedMillis, affectedRows);
+        }
+    }
+
+    static void recordRows(long count) {
+        Deque<QueryStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        for (QueryStats stats : scopes) {
+            stats.addRows(count);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.socialmedia.demo.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timer service.invocations cho mọi method public của các class *Service trong package services,
+ * gắn tag class, method và exception (tên class của exception, "none" nếu thành công).
+ * Histogram được publish để Prometheus tính p50/p99 (histogram_quantile) trên nhiều instance.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceTimingAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.socialmedia.demo.services.*Service.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("service.invocations")
+                    .description("Duration of public *Service method invocations")
+                    .tags("class", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                            "method", joinPoint.getSignature().getName(),
+                            "exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
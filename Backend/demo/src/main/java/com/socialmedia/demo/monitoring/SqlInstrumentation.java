@@ -0,0 +1,108 @@
+package com.socialmedia.demo.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Bọc DataSource bằng datasource-proxy (tắt bằng app.sql.instrumentation.enabled=false).
+ * Mỗi câu SQL được cộng vào các phạm vi QueryTracker đang mở trên thread (số câu, số dòng, thời gian);
+ * số dòng của SELECT được đếm qua ResultSet.next(), của INSERT/UPDATE/DELETE lấy từ update count.
+ * Câu chạy lâu hơn app.sql.slow-query-threshold-ms được log WARN kèm tham số bind và phạm vi đang chạy.
+ * Thay cho spring.jpa.show-sql: chỉ đếm trong bộ nhớ, không ghi mọi câu ra stdout.
+ */
+@Component
+public class SqlInstrumentation implements BeanPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlInstrumentation.class);
+
+    private final boolean enabled;
+    private final long slowQueryThresholdMs;
+
+    public SqlInstrumentation(@Value("${app.sql.instrumentation.enabled:true}") boolean enabled,
+                              @Value("${app.sql.slow-query-threshold-ms:200}") long slowQueryThresholdMs) {
+        this.enabled = enabled;
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+        Listener listener = new Listener(slowQueryThresholdMs);
+        return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                .listener(listener)
+                .methodListener(listener)
+                .proxyResultSet()
+                .build();
+    }
+
+    private static class Listener implements QueryExecutionListener, MethodExecutionListener {
+
+        private final long slowQueryThresholdMs;
+        private final DefaultQueryLogEntryCreator logEntryCreator = new DefaultQueryLogEntryCreator();
+
+        private Listener(long slowQueryThresholdMs) {
+            this.slowQueryThresholdMs = slowQueryThresholdMs;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            QueryTracker.recordStatement(execInfo.getElapsedTime(), updatedRows(execInfo.getResult()));
+            if (execInfo.getElapsedTime() >= slowQueryThresholdMs) {
+                QueryStats scope = QueryTracker.current();
+                logger.warn("Slow query ({} ms) in {}: {}", execInfo.getElapsedTime(),
+                        scope != null ? scope.getName() : "background",
+                        logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false, false));
+            }
+        }
+
+        @Override
+        public void beforeMethod(MethodExecutionContext executionContext) {
+        }
+
+        @Override
+        public void afterMethod(MethodExecutionContext executionContext) {
+            // Mỗi lần ResultSet.next() trả về true là một dòng được đọc
+            if (executionContext.getTarget() instanceof ResultSet
+                    && Boolean.TRUE.equals(executionContext.getResult())
+                    && "next".equals(executionContext.getMethod().getName())) {
+                QueryTracker.recordRows(1);
+            }
+        }
+
+        // executeUpdate trả về số dòng, executeBatch trả về mảng; SELECT (ResultSet) được đếm ở afterMethod
+        private static long updatedRows(Object result) {
+            if (result instanceof Integer count) {
+                return Math.max(count, 0);
+            }
+            if (result instanceof int[] counts) {
+                long total = 0;
+                for (int count : counts) {
+                    total += Math.max(count, 0);
+                }
+                return total;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.socialmedia.demo.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Metric của WebSocket/STOMP:
+ * - websocket.sessions (gauge, tag transport) và websocket.sessions.closed (counter, tag reason)
+ * - websocket.channel.queue.size / websocket.channel.active.threads (gauge, tag channel=inbound|outbound)
+ * - websocket.broker.fanout (timer): từ lúc tin nhắn vào broker channel tới khi được giao cho session của từng
+ *   subscriber. Chỉ đo được với simple broker; với relay, tin nhắn quay về từ broker ngoài không còn header mốc.
+ * Các bean WebSocket được lấy lúc đọc gauge nên không tạo vòng phụ thuộc với WebSocketConfig.
+ */
+@Component
+public class WebSocketMetrics implements MeterBinder {
+
+    static final String PUBLISHED_AT_HEADER = "publishedAtNanos";
+
+    private final ObjectProvider<WebSocketMessageBrokerStats> brokerStats;
+    private final ObjectProvider<ThreadPoolTaskExecutor> inboundExecutor;
+    private final ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor;
+    private final Timer fanoutTimer;
+
+    public WebSocketMetrics(MeterRegistry meterRegistry,
+                            ObjectProvider<WebSocketMessageBrokerStats> brokerStats,
+                            @Qualifier("clientInboundChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> inboundExecutor,
+                            @Qualifier("clientOutboundChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor) {
+        this.brokerStats = brokerStats;
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.fanoutTimer = Timer.builder("websocket.broker.fanout")
+                .description("Time from a message entering the broker channel to its hand-off to a subscriber session")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        sessionGauge(registry, "websocket", SubProtocolWebSocketHandler.Stats::getWebSocketSessions);
+        sessionGauge(registry, "http-streaming", SubProtocolWebSocketHandler.Stats::getHttpStreamingSessions);
+        sessionGauge(registry, "http-polling", SubProtocolWebSocketHandler.Stats::getHttpPollingSessions);
+        closedCounter(registry, "send-limit-exceeded", SubProtocolWebSocketHandler.Stats::getLimitExceededSessions);
+        closedCounter(registry, "no-messages-received", SubProtocolWebSocketHandler.Stats::getNoMessagesReceivedSessions);
+        closedCounter(registry, "transport-error", SubProtocolWebSocketHandler.Stats::getTransportErrorSessions);
+        executorGauges(registry, "inbound", inboundExecutor);
+        executorGauges(registry, "outbound", outboundExecutor);
+    }
+
+    // Đăng ký trên broker channel: đánh dấu thời điểm tin nhắn được publish
+    public ChannelInterceptor brokerChannelInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (message.getHeaders().containsKey(PUBLISHED_AT_HEADER)) {
+                    return message;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                accessor.setHeader(PUBLISHED_AT_HEADER, System.nanoTime());
+                return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+            }
+        };
+    }
+
+    // Đăng ký trên client outbound channel: simple broker chép header mốc sang tin nhắn của từng subscriber
+    public ChannelInterceptor outboundChannelInterceptor() {
+        return new ExecutorChannelInterceptor() {
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                Long publishedAt = message.getHeaders().get(PUBLISHED_AT_HEADER, Long.class);
+                if (publishedAt != null) {
+                    fanoutTimer.record(System.nanoTime() - publishedAt, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+
+    private void sessionGauge(MeterRegistry registry, String transport, ToIntFunction<SubProtocolWebSocketHandler.Stats> value) {
+        Gauge.builder("websocket.sessions", brokerStats, provider -> {
+                    SubProtocolWebSocketHandler.Stats stats = sessionStats(provider);
+                    return stats != null ? value.applyAsInt(stats) : Double.NaN;
+                })
+                .description("Open WebSocket/SockJS sessions")
+                .tag("transport", transport)
+                .register(registry);
+    }
+
+    private void closedCounter(MeterRegistry registry, String reason, ToIntFunction<SubProtocolWebSocketHandler.Stats> value) {
+        FunctionCounter.builder("websocket.sessions.closed", brokerStats, provider -> {
+                    SubProtocolWebSocketHandler.Stats stats = sessionStats(provider);
+                    return stats != null ? value.applyAsInt(stats) : 0;
+                })
+                .description("Sessions closed by the server")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static void executorGauges(MeterRegistry registry, String channel, ObjectProvider<ThreadPoolTaskExecutor> executor) {
+        Gauge.builder("websocket.channel.queue.size", executor, provider -> {
+                    ThreadPoolExecutor pool = threadPool(provider);
+                    return pool != null ? pool.getQueue().size() : Double.NaN;
+                })
+                .description("Messages waiting in the client channel executor queue")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("websocket.channel.active.threads", executor, provider -> {
+                    ThreadPoolExecutor pool = threadPool(provider);
+                    return pool != null ? pool.getActiveCount() : Double.NaN;
+                })
+                .description("Threads currently handling client channel messages")
+                .tag("channel", channel)
+                .register(registry);
+    }
+
+    private static SubProtocolWebSocketHandler.Stats sessionStats(ObjectProvider<WebSocketMessageBrokerStats> provider) {
+        WebSocketMessageBrokerStats stats = provider.getIfAvailable();
+        return stats != null ? stats.getWebSocketSessionStats() : null;
+    }
+
+    private static ThreadPoolExecutor threadPool(ObjectProvider<ThreadPoolTaskExecutor> provider) {
+        ThreadPoolTaskExecutor executor = provider.getIfAvailable();
+        return executor != null ? executor.getThreadPoolExecutor() : null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.socialmedia.demo.pagination;
+
+import com.socialmedia.demo.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Vị trí trong một danh sách sắp xếp theo (timestamp, id).
+ * Được mã hóa thành chuỗi base64url mờ để client chỉ cần gửi lại nguyên văn.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime timestamp;
+    private final String id;
+
+    public String encode() {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // IllegalArgumentException: chuỗi không phải base64url
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.socialmedia.demo.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO projection cho lịch sử tin nhắn: chỉ các cột message và 4 cột của người gửi,
+ * được tạo trực tiếp bằng JPQL constructor expression nên entity User không bao giờ được load.
+ */
+@Getter
+@AllArgsConstructor
+public class MessageView {
+    private String id;
+    private String chatId;
+    private String content;
+    private LocalDateTime sendAt;
+    private Long seq;
+    private String senderId;
+    private String senderUsername;
+    private String senderFullname;
+    private String senderAvatarKey;
+}
@@ -0,0 +1,13 @@
+package com.socialmedia.demo.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả của câu lệnh thêm/đổi/xóa reaction (RETURNING): id và thời điểm tạo của dòng,
+ * cùng loại reaction trước câu lệnh (null nếu dòng vừa được tạo) để cập nhật bộ đếm.
+ */
+public interface ReactionWriteResult {
+    Long getId();
+    LocalDateTime getCreateAt();
+    String getPreviousType();
+}
@@ -1,11 +1,13 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.Chat;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,10 +18,25 @@ public interface ChatRepository extends JpaRepository<Chat, String> {
     // Spring Data JPA can derive this query from the method name and the relationship in the Chat entity
     List<Chat> findByMembers_Id(String userId);
 
+    // Fetch plan cho ChatResponse: chat + thành viên, và (câu thứ hai) tin nhắn + người gửi.
+    // Câu thứ hai khởi tạo collection messages của các chat đã nằm trong persistence context.
+    @EntityGraph("Chat.members")
+    Optional<Chat> findWithMembersById(String id);
+
+    @EntityGraph("Chat.members")
+    List<Chat> findWithMembersByIdIn(Collection<String> ids);
+
+    @EntityGraph("Chat.messages")
+    List<Chat> findWithMessagesByIdIn(Collection<String> ids);
+
     // Optional: Find a specific chat between exactly two users (more complex query)
     // This query finds chats that have exactly two members AND both specified user IDs are present in the members list.
     @Query("SELECT c FROM Chat c JOIN c.members m1 JOIN c.members m2 WHERE m1.id = :userId1 AND m2.id = :userId2 AND SIZE(c.members) = 2")
     Optional<Chat> findDirectChatBetweenUsers(@Param("userId1") String userId1, @Param("userId2") String userId2);
 
+    // Kiểm tra thành viên chỉ trên bảng chat_members (index (chat_id, user_id)), không join chats và không load members
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM chat_members WHERE chat_id = :chatId AND user_id = :userId)", nativeQuery = true)
+    boolean existsByChatIdAndUserId(@Param("chatId") String chatId, @Param("userId") String userId);
+
     // You can add other custom query methods here as needed.
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.CommentReactionCount;
+import com.socialmedia.demo.entities.CommentReactionCountId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CommentReactionCountRepository extends JpaRepository<CommentReactionCount, CommentReactionCountId> {
+
+    // Tối đa một dòng cho mỗi loại reaction
+    List<CommentReactionCount> findByIdCommentId(String commentId);
+
+    // Cộng delta vào bộ đếm bằng một câu lệnh nguyên tử (tạo dòng nếu chưa có), không bao giờ xuống dưới 0
+    @Modifying
+    @Query(value = "INSERT INTO comment_reaction_counts (comment_id, reaction_type, count) " +
+                   "VALUES (:commentId, :reactionType, GREATEST(:delta, 0)) " +
+                   "ON CONFLICT (comment_id, reaction_type) " +
+                   "DO UPDATE SET count = GREATEST(comment_reaction_counts.count + :delta, 0)", nativeQuery = true)
+    int adjust(@Param("commentId") String commentId, @Param("reactionType") String reactionType, @Param("delta") long delta);
+
+    // Tính lại toàn bộ bộ đếm từ bảng comment_reactions (dùng khi khởi tạo hoặc sửa lệch)
+    @Modifying
+    @Query(value = "INSERT INTO comment_reaction_counts (comment_id, reaction_type, count) " +
+                   "SELECT r.comment_id, r.reaction_type, COUNT(*) FROM comment_reactions r " +
+                   "WHERE r.comment_id IS NOT NULL AND r.reaction_type IS NOT NULL " +
+                   "GROUP BY r.comment_id, r.reaction_type " +
+                   "ON CONFLICT (comment_id, reaction_type) DO UPDATE SET count = EXCLUDED.count", nativeQuery = true)
+    int rebuildAll();
+}
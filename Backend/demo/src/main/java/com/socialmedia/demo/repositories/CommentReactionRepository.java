@@ -1,23 +1,64 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.CommentReaction;
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.projections.ReactionWriteResult;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommentReactionRepository extends JpaRepository<CommentReaction, Long> {
 
+    // Map sang CommentReactionResponse nên nạp kèm user (fetch plan "CommentReaction.user")
+    @Override
+    @EntityGraph("CommentReaction.user")
+    Optional<CommentReaction> findById(Long id);
+
     // Tìm tất cả các reaction thuộc về một comment cụ thể
+    @EntityGraph("CommentReaction.user")
     List<CommentReaction> findByCommentId(String commentId);
 
     // Tìm tất cả các reaction được tạo bởi một người dùng cụ thể
+    @EntityGraph("CommentReaction.user")
     List<CommentReaction> findByUserId(String userId);
 
     // Tìm một reaction cụ thể bởi userId và commentId (hữu ích để kiểm tra xem người dùng đã reaction chưa)
     Optional<CommentReaction> findByUserIdAndCommentId(String userId, String commentId);
 
+    // Chỉ lấy loại reaction của user trên comment (dùng cho "did I react" trong summary)
+    @Query("SELECT r.reactionType FROM CommentReaction r WHERE r.user.id = :userId AND r.comment.id = :commentId")
+    Optional<ReactionType> findReactionType(@Param("userId") String userId, @Param("commentId") String commentId);
+
+    // Đổi loại reaction đã có, chỉ dùng id (không load User/Comment). Loại trước đó được đọc trong subquery
+    // FOR UPDATE nên là giá trị mới nhất đã commit dưới khóa dòng, không phải snapshot đầu câu lệnh;
+    // rỗng nếu user chưa có reaction trên comment này
+    @Query(value = "UPDATE comment_reactions r SET reaction_type = :reactionType " +
+                   "FROM (SELECT id, reaction_type FROM comment_reactions WHERE user_id = :userId AND comment_id = :commentId FOR UPDATE) previous " +
+                   "WHERE r.id = previous.id " +
+                   "RETURNING r.id AS \"id\", r.create_at AS \"createAt\", previous.reaction_type AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> updateReturningPrevious(@Param("userId") String userId, @Param("commentId") String commentId,
+                                                          @Param("reactionType") String reactionType);
+
+    // Tạo reaction nếu chưa có dòng nào; rỗng nếu request đồng thời vừa tạo trước (khi đó gọi lại update).
+    // User/comment không tồn tại gây vi phạm khóa ngoại
+    @Query(value = "INSERT INTO comment_reactions (user_id, comment_id, reaction_type, create_at) " +
+                   "VALUES (:userId, :commentId, :reactionType, :createAt) " +
+                   "ON CONFLICT (comment_id, user_id) DO NOTHING " +
+                   "RETURNING id AS \"id\", create_at AS \"createAt\", NULL AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> insertIfAbsent(@Param("userId") String userId, @Param("commentId") String commentId,
+                                                 @Param("reactionType") String reactionType, @Param("createAt") LocalDateTime createAt);
+
+    // Xóa reaction và trả về loại reaction đã xóa (rỗng nếu không có)
+    @Query(value = "DELETE FROM comment_reactions WHERE user_id = :userId AND comment_id = :commentId " +
+                   "RETURNING id AS \"id\", create_at AS \"createAt\", reaction_type AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> deleteReturning(@Param("userId") String userId, @Param("commentId") String commentId);
+
     // Bạn có thể thêm các phương thức truy vấn tùy chỉnh khác ở đây nếu cần
 }
\ No newline at end of file
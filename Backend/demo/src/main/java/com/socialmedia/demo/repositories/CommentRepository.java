@@ -1,18 +1,27 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.Comment;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, String> {
 
+    // Các đường đọc đều map sang CommentResponse nên nạp kèm tác giả (fetch plan "Comment.author")
+    @Override
+    @EntityGraph("Comment.author")
+    Optional<Comment> findById(String id);
+
     // Tìm tất cả các comment thuộc về một bài đăng (Post) cụ thể
+    @EntityGraph("Comment.author")
     List<Comment> findByPostId(String postId);
 
     // Tìm tất cả các comment được viết bởi một người dùng (User) cụ thể
+    @EntityGraph("Comment.author")
     List<Comment> findByAuthorId(String authorId);
 
     // Bạn có thể thêm các phương thức truy vấn tùy chỉnh khác ở đây nếu cần
@@ -0,0 +1,81 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.FeedEntry;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.enums.PrivacySetting;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, String> {
+
+    // Thêm bài đăng vào timeline của một người dùng (bỏ qua nếu đã có)
+    @Modifying
+    @Query(value = "INSERT INTO feed_entries (id, user_id, post_id, author_id, create_at) " +
+                   "VALUES (gen_random_uuid()::text, :userId, :postId, :authorId, :createAt) " +
+                   "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int insertEntry(@Param("userId") String userId, @Param("postId") String postId,
+                    @Param("authorId") String authorId, @Param("createAt") LocalDateTime createAt);
+
+    // Fan-out on write: một câu lệnh chèn bài đăng vào timeline của tất cả bạn bè của tác giả
+    @Modifying
+    @Query(value = "INSERT INTO feed_entries (id, user_id, post_id, author_id, create_at) " +
+                   "SELECT gen_random_uuid()::text, f.friend_id, :postId, :authorId, :createAt " +
+                   "FROM user_friends f WHERE f.user_id = :authorId " +
+                   "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int fanOutToFriends(@Param("postId") String postId, @Param("authorId") String authorId,
+                        @Param("createAt") LocalDateTime createAt);
+
+    // Khi vừa kết bạn: đưa các bài đăng gần nhất (không riêng tư) của tác giả vào timeline của người dùng
+    @Modifying
+    @Query(value = "INSERT INTO feed_entries (id, user_id, post_id, author_id, create_at) " +
+                   "SELECT gen_random_uuid()::text, :userId, p.id, p.author_id, p.create_at FROM posts p " +
+                   "WHERE p.author_id = :authorId AND p.privacy_setting <> 'PRIVATE' " +
+                   "ORDER BY p.create_at DESC LIMIT :limit " +
+                   "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfill(@Param("userId") String userId, @Param("authorId") String authorId, @Param("limit") int limit);
+
+    // Tác giả vừa xuống dưới ngưỡng fan-out: bài của họ không còn được ghép lúc đọc nên phải có trong
+    // timeline của từng người bạn; đưa các bài gần nhất (không riêng tư) vào timeline của tất cả bạn bè
+    @Modifying
+    @Query(value = "INSERT INTO feed_entries (id, user_id, post_id, author_id, create_at) " +
+                   "SELECT gen_random_uuid()::text, f.friend_id, p.id, p.author_id, p.create_at " +
+                   "FROM (SELECT id, author_id, create_at FROM posts WHERE author_id = :authorId " +
+                   "AND privacy_setting <> 'PRIVATE' ORDER BY create_at DESC LIMIT :limit) p " +
+                   "CROSS JOIN user_friends f WHERE f.user_id = :authorId " +
+                   "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfillToFriends(@Param("authorId") String authorId, @Param("limit") int limit);
+
+    // Khi hủy kết bạn: gỡ bài đăng của tác giả khỏi timeline của người dùng
+    @Modifying
+    @Query("DELETE FROM FeedEntry e WHERE e.user.id = :userId AND e.author.id = :authorId")
+    int deleteByUserIdAndAuthorId(@Param("userId") String userId, @Param("authorId") String authorId);
+
+    // Bài đăng đổi tác giả hoặc chuyển sang PRIVATE: gỡ bài khỏi mọi timeline trừ timeline của tác giả hiện tại
+    @Modifying
+    @Query("DELETE FROM FeedEntry e WHERE e.post.id = :postId AND e.user.id <> :authorId")
+    int deleteByPostIdExceptUser(@Param("postId") String postId, @Param("authorId") String authorId);
+
+    // Trang mới nhất của timeline. Quyền riêng tư được kiểm tra lại lúc đọc vì bài đăng có thể đã đổi privacy.
+    @Query("SELECT p FROM FeedEntry e JOIN e.post p LEFT JOIN FETCH p.author " +
+           "WHERE e.user.id = :userId AND (p.privacySetting <> :hidden OR p.author.id = :userId) " +
+           "ORDER BY e.createAt DESC, e.post.id DESC")
+    List<Post> findLatestTimeline(@Param("userId") String userId, @Param("hidden") PrivacySetting hidden,
+                                  Limit limit);
+
+    // Các bài đăng cũ hơn cursor trong timeline
+    @Query("SELECT p FROM FeedEntry e JOIN e.post p LEFT JOIN FETCH p.author " +
+           "WHERE e.user.id = :userId AND (p.privacySetting <> :hidden OR p.author.id = :userId) " +
+           "AND (e.createAt < :createAt OR (e.createAt = :createAt AND e.post.id < :postId)) " +
+           "ORDER BY e.createAt DESC, e.post.id DESC")
+    List<Post> findTimelineBefore(@Param("userId") String userId, @Param("hidden") PrivacySetting hidden,
+                                  @Param("createAt") LocalDateTime createAt, @Param("postId") String postId,
+                                  Limit limit);
+}
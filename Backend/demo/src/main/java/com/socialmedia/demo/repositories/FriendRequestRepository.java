@@ -0,0 +1,41 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.FriendRequest;
+import com.socialmedia.demo.entities.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface FriendRequestRepository extends JpaRepository<FriendRequest, String> {
+
+    // Trả về 1 khi vừa gửi lời mời, 0 khi lời mời đã tồn tại (gửi lại không lỗi unique)
+    @Modifying
+    @Query(value = "INSERT INTO friend_requests (id, sender_id, receiver_id, created_at) " +
+                   "VALUES (gen_random_uuid()::text, :senderId, :receiverId, :createdAt) " +
+                   "ON CONFLICT (sender_id, receiver_id) DO NOTHING", nativeQuery = true)
+    int insertRequest(@Param("senderId") String senderId, @Param("receiverId") String receiverId,
+                      @Param("createdAt") Date createdAt);
+
+    // Xóa là cách duy nhất để "nhận" một lời mời: hai request chấp nhận đồng thời chỉ có một cái xóa được dòng
+    @Modifying
+    @Query("DELETE FROM FriendRequest r WHERE r.sender.id = :senderId AND r.receiver.id = :receiverId")
+    int deleteRequest(@Param("senderId") String senderId, @Param("receiverId") String receiverId);
+
+    // Xóa lời mời theo cả hai chiều, khi hai người đã thành bạn bè
+    @Modifying
+    @Query("DELETE FROM FriendRequest r WHERE (r.sender.id = :userId AND r.receiver.id = :otherId) " +
+           "OR (r.sender.id = :otherId AND r.receiver.id = :userId)")
+    int deleteRequestsBetween(@Param("userId") String userId, @Param("otherId") String otherId);
+
+    @Query("SELECT r.sender FROM FriendRequest r WHERE r.receiver.id = :receiverId ORDER BY r.createdAt DESC")
+    List<User> findSendersTo(@Param("receiverId") String receiverId);
+
+    @Query("SELECT r.receiver FROM FriendRequest r WHERE r.sender.id = :senderId ORDER BY r.createdAt DESC")
+    List<User> findReceiversFrom(@Param("senderId") String senderId);
+}
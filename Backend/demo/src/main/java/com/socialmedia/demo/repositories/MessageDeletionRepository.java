@@ -0,0 +1,18 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.MessageDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MessageDeletionRepository extends JpaRepository<MessageDeletion, String> {
+
+    // Seq đã bị xóa của chat trong khoảng (afterSeq, beforeSeq), dùng khi resync gặp khoảng trống
+    @Query("SELECT d.seq FROM MessageDeletion d WHERE d.chatId = :chatId AND d.seq > :afterSeq AND d.seq < :beforeSeq")
+    List<Long> findSeqsBetween(@Param("chatId") String chatId, @Param("afterSeq") long afterSeq,
+                               @Param("beforeSeq") long beforeSeq);
+}
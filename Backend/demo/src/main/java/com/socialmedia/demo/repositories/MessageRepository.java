@@ -1,17 +1,65 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.projections.MessageView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, String> {
 
+    // Đọc/sửa/xóa một tin nhắn đều map sang MessageResponse nên nạp kèm người gửi
+    @Override
+    @EntityGraph("Message.sender")
+    Optional<Message> findById(String id);
+
     // Find all messages belonging to a specific chat, ordered by send time
+    @EntityGraph("Message.sender")
     List<Message> findByChatIdOrderBySendAtAsc(String chatId);
 
+    // Phân trang keyset trên index (chat_id, send_at, id), chỉ lấy các cột cần cho response.
+    // Chi phí mỗi trang chỉ phụ thuộc vào limit, không phụ thuộc vào độ dài lịch sử chat.
+
+    // Trang mới nhất (mới -> cũ)
+    @Query("SELECT new com.socialmedia.demo.projections.MessageView(m.id, m.chat.id, m.content, m.sendAt, m.seq, " +
+           "s.id, s.username, s.fullname, s.avatarKey) " +
+           "FROM Message m LEFT JOIN m.sender s WHERE m.chat.id = :chatId " +
+           "ORDER BY m.sendAt DESC, m.id DESC")
+    List<MessageView> findLatestViews(@Param("chatId") String chatId, Limit limit);
+
+    // Các tin nhắn cũ hơn cursor (mới -> cũ)
+    @Query("SELECT new com.socialmedia.demo.projections.MessageView(m.id, m.chat.id, m.content, m.sendAt, m.seq, " +
+           "s.id, s.username, s.fullname, s.avatarKey) " +
+           "FROM Message m LEFT JOIN m.sender s WHERE m.chat.id = :chatId AND m.sendAt <= :sendAt " +
+           "AND (m.sendAt < :sendAt OR m.id < :id) " +
+           "ORDER BY m.sendAt DESC, m.id DESC")
+    List<MessageView> findViewsBefore(@Param("chatId") String chatId, @Param("sendAt") LocalDateTime sendAt,
+                                      @Param("id") String id, Limit limit);
+
+    // Các tin nhắn mới hơn cursor (cũ -> mới)
+    @Query("SELECT new com.socialmedia.demo.projections.MessageView(m.id, m.chat.id, m.content, m.sendAt, m.seq, " +
+           "s.id, s.username, s.fullname, s.avatarKey) " +
+           "FROM Message m LEFT JOIN m.sender s WHERE m.chat.id = :chatId AND m.sendAt >= :sendAt " +
+           "AND (m.sendAt > :sendAt OR m.id > :id) " +
+           "ORDER BY m.sendAt ASC, m.id ASC")
+    List<MessageView> findViewsAfter(@Param("chatId") String chatId, @Param("sendAt") LocalDateTime sendAt,
+                                     @Param("id") String id, Limit limit);
+
+    // Resync: các tin nhắn có seq lớn hơn afterSeq (cũ -> mới), dùng unique index (chat_id, seq)
+    @Query("SELECT new com.socialmedia.demo.projections.MessageView(m.id, m.chat.id, m.content, m.sendAt, m.seq, " +
+           "s.id, s.username, s.fullname, s.avatarKey) " +
+           "FROM Message m LEFT JOIN m.sender s WHERE m.chat.id = :chatId AND m.seq > :afterSeq " +
+           "ORDER BY m.seq ASC")
+    List<MessageView> findViewsAfterSeq(@Param("chatId") String chatId, @Param("afterSeq") long afterSeq, Limit limit);
+
     // You can add other custom query methods here as needed.
     // For example, find messages sent by a specific user:
     // List<Message> findBySenderId(String senderId);
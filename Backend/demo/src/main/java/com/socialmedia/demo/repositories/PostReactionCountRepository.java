@@ -0,0 +1,35 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.PostReactionCount;
+import com.socialmedia.demo.entities.PostReactionCountId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PostReactionCountRepository extends JpaRepository<PostReactionCount, PostReactionCountId> {
+
+    // Tối đa một dòng cho mỗi loại reaction
+    List<PostReactionCount> findByIdPostId(String postId);
+
+    // Cộng delta vào bộ đếm bằng một câu lệnh nguyên tử (tạo dòng nếu chưa có), không bao giờ xuống dưới 0
+    @Modifying
+    @Query(value = "INSERT INTO post_reaction_counts (post_id, reaction_type, count) " +
+                   "VALUES (:postId, :reactionType, GREATEST(:delta, 0)) " +
+                   "ON CONFLICT (post_id, reaction_type) " +
+                   "DO UPDATE SET count = GREATEST(post_reaction_counts.count + :delta, 0)", nativeQuery = true)
+    int adjust(@Param("postId") String postId, @Param("reactionType") String reactionType, @Param("delta") long delta);
+
+    // Tính lại toàn bộ bộ đếm từ bảng post_reactions (dùng khi khởi tạo hoặc sửa lệch)
+    @Modifying
+    @Query(value = "INSERT INTO post_reaction_counts (post_id, reaction_type, count) " +
+                   "SELECT r.post_id, r.reaction_type, COUNT(*) FROM post_reactions r " +
+                   "WHERE r.post_id IS NOT NULL AND r.reaction_type IS NOT NULL " +
+                   "GROUP BY r.post_id, r.reaction_type " +
+                   "ON CONFLICT (post_id, reaction_type) DO UPDATE SET count = EXCLUDED.count", nativeQuery = true)
+    int rebuildAll();
+}
@@ -1,23 +1,64 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.PostReaction;
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.projections.ReactionWriteResult;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostReactionRepository extends JpaRepository<PostReaction, Long> {
 
+    // Mapped to PostReactionResponse, so load the user with it (fetch plan "PostReaction.user")
+    @Override
+    @EntityGraph("PostReaction.user")
+    Optional<PostReaction> findById(Long id);
+
     // Find reactions by post ID
+    @EntityGraph("PostReaction.user")
     List<PostReaction> findByPostId(String postId);
 
     // Find reactions by user ID
+    @EntityGraph("PostReaction.user")
     List<PostReaction> findByUserId(String userId);
 
     // Find a specific reaction by user ID and post ID (useful for checking if a user already reacted)
     Optional<PostReaction> findByUserIdAndPostId(String userId, String postId);
 
+    // Chỉ lấy loại reaction của user trên bài đăng (dùng cho "did I react" trong summary)
+    @Query("SELECT r.reactionType FROM PostReaction r WHERE r.user.id = :userId AND r.post.id = :postId")
+    Optional<ReactionType> findReactionType(@Param("userId") String userId, @Param("postId") String postId);
+
+    // Đổi loại reaction đã có, chỉ dùng id (không load User/Post). Loại trước đó được đọc trong subquery
+    // FOR UPDATE nên là giá trị mới nhất đã commit dưới khóa dòng, không phải snapshot đầu câu lệnh;
+    // rỗng nếu user chưa có reaction trên bài đăng này
+    @Query(value = "UPDATE post_reactions r SET reaction_type = :reactionType " +
+                   "FROM (SELECT id, reaction_type FROM post_reactions WHERE user_id = :userId AND post_id = :postId FOR UPDATE) previous " +
+                   "WHERE r.id = previous.id " +
+                   "RETURNING r.id AS \"id\", r.create_at AS \"createAt\", previous.reaction_type AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> updateReturningPrevious(@Param("userId") String userId, @Param("postId") String postId,
+                                                          @Param("reactionType") String reactionType);
+
+    // Tạo reaction nếu chưa có dòng nào; rỗng nếu request đồng thời vừa tạo trước (khi đó gọi lại update).
+    // User/post không tồn tại gây vi phạm khóa ngoại
+    @Query(value = "INSERT INTO post_reactions (user_id, post_id, reaction_type, create_at) " +
+                   "VALUES (:userId, :postId, :reactionType, :createAt) " +
+                   "ON CONFLICT (post_id, user_id) DO NOTHING " +
+                   "RETURNING id AS \"id\", create_at AS \"createAt\", NULL AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> insertIfAbsent(@Param("userId") String userId, @Param("postId") String postId,
+                                                 @Param("reactionType") String reactionType, @Param("createAt") LocalDateTime createAt);
+
+    // Xóa reaction và trả về loại reaction đã xóa (rỗng nếu không có)
+    @Query(value = "DELETE FROM post_reactions WHERE user_id = :userId AND post_id = :postId " +
+                   "RETURNING id AS \"id\", create_at AS \"createAt\", reaction_type AS \"previousType\"", nativeQuery = true)
+    Optional<ReactionWriteResult> deleteReturning(@Param("userId") String userId, @Param("postId") String postId);
+
     // You can add more custom query methods here as needed.
 }
\ No newline at end of file
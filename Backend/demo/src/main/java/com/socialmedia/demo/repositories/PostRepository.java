@@ -3,18 +3,78 @@ package com.socialmedia.demo.repositories;
 import com.socialmedia.demo.entities.Post;
 import com.socialmedia.demo.enums.PrivacySetting;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, String> {
 
     // Bạn có thể thêm các phương thức truy vấn tùy chỉnh ở đây nếu cần
+    // Các đường đọc đều map sang PostResponse nên nạp kèm tác giả (fetch plan "Post.author")
+    @Override
+    @EntityGraph("Post.author")
+    Optional<Post> findById(String id);
+
     // Ví dụ: Tìm tất cả các bài đăng của một người dùng cụ thể
+    @EntityGraph("Post.author")
     List<Post> findByAuthorId(String authorId);
 
     // Ví dụ: Tìm tất cả các bài đăng công khai
+    @EntityGraph("Post.author")
     List<Post> findByPrivacySetting(PrivacySetting privacySetting);
+
+    // Phân trang theo page/size, trả về Slice để không phải chạy COUNT(*) trên toàn bảng
+    @EntityGraph("Post.author")
+    Slice<Post> findAllBy(Pageable pageable);
+
+    // Phân trang keyset trên index (create_at, id): trang mới nhất và các trang cũ hơn cursor
+    @EntityGraph("Post.author")
+    List<Post> findAllByOrderByCreateAtDescIdDesc(Limit limit);
+
+    @EntityGraph("Post.author")
+    @Query("SELECT p FROM Post p WHERE p.createAt < :createAt OR (p.createAt = :createAt AND p.id < :id) " +
+           "ORDER BY p.createAt DESC, p.id DESC")
+    List<Post> findBefore(@Param("createAt") LocalDateTime createAt, @Param("id") String id, Limit limit);
+
+    // Feed: bài đăng của các bạn bè có nhiều bạn bè (không fan-out lúc ghi) được ghép vào lúc đọc
+    @Query("SELECT p FROM Post p LEFT JOIN FETCH p.author a WHERE a.id IN (" +
+           "SELECT f.friend.id FROM UserFriend f WHERE f.user.id = :userId AND f.friend.friendCount >= :threshold) " +
+           "AND p.privacySetting <> :hidden " +
+           "ORDER BY p.createAt DESC, p.id DESC")
+    List<Post> findLatestByHighFanoutFriends(@Param("userId") String userId, @Param("threshold") int threshold,
+                                             @Param("hidden") PrivacySetting hidden, Limit limit);
+
+    @Query("SELECT p FROM Post p LEFT JOIN FETCH p.author a WHERE a.id IN (" +
+           "SELECT f.friend.id FROM UserFriend f WHERE f.user.id = :userId AND f.friend.friendCount >= :threshold) " +
+           "AND p.privacySetting <> :hidden " +
+           "AND (p.createAt < :createAt OR (p.createAt = :createAt AND p.id < :id)) " +
+           "ORDER BY p.createAt DESC, p.id DESC")
+    List<Post> findByHighFanoutFriendsBefore(@Param("userId") String userId, @Param("threshold") int threshold,
+                                             @Param("hidden") PrivacySetting hidden,
+                                             @Param("createAt") LocalDateTime createAt, @Param("id") String id,
+                                             Limit limit);
+
+    // Dùng cho export: đọc dần theo từng lô fetch size thay vì nạp cả bảng vào bộ nhớ.
+    // Phải được tiêu thụ bên trong transaction (PostgreSQL chỉ dùng cursor khi autocommit tắt).
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Post p LEFT JOIN FETCH p.author ORDER BY p.createAt, p.id")
+    Stream<Post> streamAll();
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.entities.UserFriend;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+// Quan hệ bạn bè được lưu hai chiều: (a, b) và (b, a), nên bạn bè của X chỉ cần WHERE user_id = X
+@Repository
+public interface UserFriendRepository extends JpaRepository<UserFriend, String> {
+
+    boolean existsByUserIdAndFriendId(String userId, String friendId);
+
+    // Chèn cả hai chiều trong một câu, bỏ qua nếu đã có: trả về 2 khi vừa kết bạn, 0 khi đã là bạn bè.
+    // Hai dòng luôn được chèn theo thứ tự (id nhỏ, id lớn) trước, nên hai request kết bạn ngược chiều nhau
+    // chờ nhau trên cùng một khóa thay vì deadlock
+    @Modifying
+    @Query(value = "INSERT INTO user_friends (id, user_id, friend_id, created_at) " +
+                   "VALUES (gen_random_uuid()::text, :firstId, :secondId, :createdAt), " +
+                   "(gen_random_uuid()::text, :secondId, :firstId, :createdAt) " +
+                   "ON CONFLICT (user_id, friend_id) DO NOTHING", nativeQuery = true)
+    int insertFriendship(@Param("firstId") String firstId, @Param("secondId") String secondId,
+                         @Param("createdAt") Date createdAt);
+
+    // Các id trong friendIds là bạn bè của userId
+    @Query("SELECT f.friend.id FROM UserFriend f WHERE f.user.id = :userId AND f.friend.id IN :friendIds")
+    List<String> findFriendIdsAmong(@Param("userId") String userId, @Param("friendIds") Collection<String> friendIds);
+
+    @Query("SELECT f.friend FROM UserFriend f WHERE f.user.id = :userId ORDER BY f.createdAt DESC")
+    List<User> findFriendsOf(@Param("userId") String userId);
+
+    @Modifying
+    @Query("DELETE FROM UserFriend f WHERE (f.user.id = :userId AND f.friend.id = :friendId) " +
+           "OR (f.user.id = :friendId AND f.friend.id = :userId)")
+    int deleteFriendship(@Param("userId") String userId, @Param("friendId") String friendId);
+}
@@ -1,9 +1,17 @@
 package com.socialmedia.demo.repositories;
 
 import com.socialmedia.demo.entities.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +23,27 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     // Thêm phương thức này
     Optional<User> findByUsernameOrEmail(String username, String email);
+
+    // Phân trang theo page/size, trả về Slice để không phải chạy COUNT(*) trên toàn bảng
+    Slice<User> findAllBy(Pageable pageable);
+
+    // Chỉ đọc token version, dùng bởi TokenVersionCache khi cache miss
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") String id);
+
+    // Cập nhật số bạn bè bằng một câu UPDATE nguyên tử, tránh đọc-sửa-ghi khi có nhiều request đồng thời
+    @Modifying
+    @Query("UPDATE User u SET u.friendCount = u.friendCount + :delta WHERE u.id IN :ids")
+    int adjustFriendCount(@Param("ids") List<String> ids, @Param("delta") int delta);
+
+    // Đọc thẳng từ DB (không qua entity trong persistence context), dùng ngay sau adjustFriendCount
+    @Query("SELECT u.friendCount FROM User u WHERE u.id = :id")
+    int findFriendCount(@Param("id") String id);
+
+    // Phân trang keyset trên index (created_at, id): trang mới nhất và các trang cũ hơn cursor
+    List<User> findAllByOrderByCreatedAtDescIdDesc(Limit limit);
+
+    @Query("SELECT u FROM User u WHERE u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findBefore(@Param("createdAt") Date createdAt, @Param("id") String id, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.socialmedia.demo.requests.Message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingRequest {
+    private boolean typing;
+}
@@ -15,6 +15,6 @@ import java.util.List;
 public class ChatResponse {
     private String id;
     private LocalDateTime createAt;
-    private List<UserResponse> members;
+    private List<UserSummary> members;
     private List<MessageResponse> messages;
 }
\ No newline at end of file
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class CommentReactionResponse {
     private String id; // Using String for consistency, map from Long in entity
-    private UserResponse user; // Response object for user details
+    private UserSummary user; // Compact user info (id, username, fullname, avatar URL)
     private String commentId; // ID of the related comment
     private ReactionType reactionType;
     private LocalDateTime createAt;
@@ -14,9 +14,10 @@ import java.time.LocalDateTime;
 public class CommentResponse {
     private String id;
     private String content;
-    private byte[] imageData;
+    private String imageUrl;
+    private Long imageSize;
     private String imageType;
     private LocalDateTime createAt;
-    private UserResponse author;
+    private UserSummary author;
     private String postId;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.socialmedia.demo.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Một trang kết quả phân trang theo cursor (keyset); gửi lại nextCursor để lấy trang tiếp theo
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    // Chỉ có ở trang tin nhắn theo before/after: cursor của tin mới nhất trong trang, gửi làm after để lấy tin mới hơn
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String newestCursor;
+    // Chỉ có ở resync tin nhắn theo seq: các seq trong khoảng đã trả về nhưng mất hẳn, client không cần chờ
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> missingSeqs;
+    // Chỉ có ở resync tin nhắn theo seq: các seq trong khoảng đã trả về thuộc tin nhắn đã bị xóa
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> deletedSeqs;
+}
@@ -13,8 +13,9 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class MessageResponse {
     private String id;
-    private UserResponse sender;
+    private UserSummary sender;
     private String chatId;
     private LocalDateTime sendAt;
+    private Long seq;
     private String content;
 }
\ No newline at end of file
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class PostReactionResponse {
     private String id;
-    private UserResponse user;
+    private UserSummary user;
     private String postId;
     private ReactionType reactionType;
     private LocalDateTime createAt;
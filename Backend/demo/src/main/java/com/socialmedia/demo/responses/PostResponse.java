@@ -15,9 +15,10 @@ import java.time.LocalDateTime;
 public class PostResponse {
     private String id;
     private String content;
-    private byte[] imageData;
+    private String imageUrl;
+    private Long imageSize;
     private String imageType;
     private LocalDateTime createAt;
     private PrivacySetting privacySetting;
-    private UserResponse author;
+    private UserSummary author;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.socialmedia.demo.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Broadcast tới /topic/presence/{userId} khi user chuyển online/offline, không lưu xuống DB
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceEvent {
+    private String userId;
+    private boolean online;
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,21 @@
+package com.socialmedia.demo.responses;
+
+import com.socialmedia.demo.enums.ReactionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Tổng hợp reaction của một post/comment: số lượng theo từng loại và reaction của người dùng hiện tại (null nếu chưa)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionSummaryResponse {
+    private String targetId;
+    private Map<ReactionType, Long> counts;
+    private long total;
+    private ReactionType myReaction;
+}
@@ -0,0 +1,31 @@
+package com.socialmedia.demo.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Một trang kết quả phân trang theo page/size, không chạy thêm query COUNT(*) như Page
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SliceResponse<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    public static <E, T> SliceResponse<T> of(Slice<E> slice, Function<E, T> mapper) {
+        return SliceResponse.<T>builder()
+                .items(slice.map(mapper).getContent())
+                .page(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.socialmedia.demo.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Broadcast tới /topic/chats/{chatId}/typing, không lưu xuống DB
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingEvent {
+    private String chatId;
+    private String userId;
+    private boolean typing;
+}
@@ -23,9 +23,12 @@ public class UserResponse {
     private Date dob;
     private Date createdAt;
     private PrivacySetting privacySetting;
-    private byte[] avatar;
+    private String avatarUrl;
+    private Long avatarSize;
     private String avatarType;
-    private byte[] coverPicture;
+    private String coverPictureUrl;
+    private Long coverPictureSize;
     private String coverPictureType;
     private ROLE role;
+    private int friendCount;
 }
\ No newline at end of file
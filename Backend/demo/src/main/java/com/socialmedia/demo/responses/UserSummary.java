@@ -0,0 +1,18 @@
+package com.socialmedia.demo.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Thông tin rút gọn của user khi được nhúng trong post, comment, message, reaction
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+    private String id;
+    private String username;
+    private String fullname;
+    private String avatarUrl;
+}
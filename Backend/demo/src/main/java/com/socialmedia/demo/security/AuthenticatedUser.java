@@ -0,0 +1,37 @@
+package com.socialmedia.demo.security;
+
+import com.socialmedia.demo.enums.ROLE;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.Collection;
+
+/**
+ * Principal của request đã xác thực bằng JWT, dựng trực tiếp từ claims đã được kiểm tra chữ ký
+ * (không load entity User từ DB). getName() trả về ID người dùng, nên authentication.name là ID.
+ */
+@Getter
+@AllArgsConstructor
+public class AuthenticatedUser implements Principal, Serializable {
+
+    private final String id;
+    private final ROLE role;
+    private final int tokenVersion;
+
+    @Override
+    public String getName() {
+        return id;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return role.getAuthorities();
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser[" + id + ", " + role + "]";
+    }
+}
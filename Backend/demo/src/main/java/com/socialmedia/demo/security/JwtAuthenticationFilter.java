@@ -8,9 +8,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails; // Import
+import com.socialmedia.demo.entities.User;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -29,6 +30,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService; // Inject UserDetailsService
 
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
+
+    // true: dựng principal từ claims của JWT, chỉ kiểm tra token version qua cache (không query DB mỗi request)
+    // false: load User từ DB ở mỗi request như trước
+    @Value("${app.jwt.stateless:true}")
+    private boolean stateless = true;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -36,17 +45,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromJWT(jwt);
-
-                // Tải UserDetails từ DB bằng ID lấy từ token
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+            // Chỉ verify/parse token một lần; null nếu token không hợp lệ
+            AuthenticatedUser fromToken = StringUtils.hasText(jwt) ? tokenProvider.authenticate(jwt) : null;
+            AuthenticatedUser principal = fromToken != null ? resolvePrincipal(fromToken) : null;
+            // Token không hợp lệ hoặc đã bị thu hồi: không thiết lập Authentication, request sẽ bị chặn bởi security rules
+            if (principal != null) {
 
-                // Tạo đối tượng Authentication từ UserDetails
+                // Tạo đối tượng Authentication, principal là AuthenticatedUser (getName() trả về ID)
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, // Principal bây giờ là UserDetails
+                        principal,
                         null,        // Credentials là null
-                        userDetails.getAuthorities() // Lấy quyền từ UserDetails
+                        principal.getAuthorities()
                 );
 
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -62,6 +71,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Trả về null nếu token không còn hiệu lực (user bị xóa hoặc token version đã tăng)
+    private AuthenticatedUser resolvePrincipal(AuthenticatedUser fromToken) {
+        if (stateless) {
+            return tokenVersionCache.isCurrent(fromToken.getId(), fromToken.getTokenVersion()) ? fromToken : null;
+        }
+        // Tải User từ DB bằng ID lấy từ token, role lấy theo DB thay vì theo token
+        User user = (User) customUserDetailsService.loadUserById(fromToken.getId());
+        if (user.getTokenVersion() != fromToken.getTokenVersion()) {
+            return null;
+        }
+        return new AuthenticatedUser(user.getId(), user.getRole(), user.getTokenVersion());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
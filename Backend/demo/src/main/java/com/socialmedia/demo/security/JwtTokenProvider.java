@@ -1,6 +1,10 @@
 package com.socialmedia.demo.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.socialmedia.demo.entities.User; // Giả sử bạn có User entity
+import com.socialmedia.demo.enums.ROLE;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
@@ -12,7 +16,12 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -20,18 +29,54 @@ public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    // Nên lưu secret key và expiration trong application.properties/yml
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    static final String ROLE_CLAIM = "role";
+    static final String VERSION_CLAIM = "ver";
+
+    private final int jwtExpirationMs;
+
+    // Key và parser được tạo một lần; JwtParser là immutable và thread-safe nên dùng chung cho mọi request
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    // Token đã kiểm tra chữ ký gần đây, key là SHA-256 của toàn bộ token, hết hạn cùng lúc với token.
+    // null khi app.jwt.verified-cache.max-size=0 (tắt cache)
+    private final Cache<String, Claims> verifiedTokens;
 
-    @Value("${app.jwt.expiration-ms}")
-    private int jwtExpirationMs;
+    // Nên lưu secret key và expiration trong application.properties/yml
+    public JwtTokenProvider(@Value("${app.jwt.secret}") String jwtSecret,
+                            @Value("${app.jwt.expiration-ms}") int jwtExpirationMs,
+                            @Value("${app.jwt.verified-cache.max-size:10000}") long verifiedCacheSize) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.signingKey = createSigningKey(jwtSecret);
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = verifiedCacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        long remainingMs = expiration != null ? expiration.getTime() - System.currentTimeMillis() : 0;
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
 
-    private SecretKey getSigningKey() {
+    private static SecretKey createSigningKey(String jwtSecret) {
          if (jwtSecret == null || jwtSecret.length() < 32) {
              logger.warn("JWT Secret is not configured or too short. Using a default insecure key. PLEASE CONFIGURE a strong secret in properties!");
              // **KHÔNG SỬ DỤNG KEY NÀY TRONG PRODUCTION**
-             return Keys.secretKeyFor(SignatureAlgorithm.HS256); // Tạo key ngẫu nhiên (không ổn định)
+             return Keys.secretKeyFor(SignatureAlgorithm.HS256); // Tạo key ngẫu nhiên (mất hiệu lực khi khởi động lại)
          }
          // Chuyển đổi chuỗi secret thành key (cần đảm bảo chuỗi đủ mạnh)
          return Keys.hmacShaKeyFor(jwtSecret.getBytes());
@@ -42,9 +87,11 @@ public class JwtTokenProvider {
         // Lấy thông tin user từ Authentication object
         Object principal = authentication.getPrincipal();
         String userId;
+        int tokenVersion = 0;
 
         if (principal instanceof User) {
             userId = ((User) principal).getId(); // Lấy ID từ User object
+            tokenVersion = ((User) principal).getTokenVersion();
         } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
             // Fallback nếu principal là UserDetails nhưng không phải User entity của bạn
             // Cần đảm bảo UserDetails chứa ID hoặc có cách lấy ID
@@ -66,10 +113,11 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .setSubject(userId) // Đặt userId làm subject
-                .claim("role", role) // Thêm role vào claims
+                .claim(ROLE_CLAIM, role) // Thêm role vào claims
+                .claim(VERSION_CLAIM, tokenVersion) // Token version để có thể thu hồi token
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256) // Sử dụng HS256 hoặc thuật toán mạnh hơn
+                .signWith(signingKey, SignatureAlgorithm.HS256) // Sử dụng HS256 hoặc thuật toán mạnh hơn
                 .compact();
     }
 
@@ -80,54 +128,110 @@ public class JwtTokenProvider {
 
          return Jwts.builder()
                  .setSubject(user.getId()) // Sử dụng ID của User
-                 .claim("role", user.getRole().name()) // Lấy role từ User entity
+                 .claim(ROLE_CLAIM, user.getRole().name()) // Lấy role từ User entity
+                 .claim(VERSION_CLAIM, user.getTokenVersion())
                  .setIssuedAt(now)
                  .setExpiration(expiryDate)
-                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                 .signWith(signingKey, SignatureAlgorithm.HS256)
                  .compact();
      }
 
 
+    /**
+     * Kiểm tra chữ ký và hạn của token rồi trả về claims; chỉ parse một lần cho mỗi token.
+     * Token đã kiểm tra được nhớ lại theo SHA-256 của toàn bộ token cho tới khi hết hạn,
+     * nên các request tiếp theo với cùng token không phải verify HMAC và parse JSON lại.
+     * Ném JwtException (hoặc IllegalArgumentException nếu token rỗng) khi token không hợp lệ.
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT string is empty");
+        }
+        if (verifiedTokens == null) {
+            return jwtParser.parseClaimsJws(token).getBody();
+        }
+        String cacheKey = sha256(token);
+        Claims cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(cacheKey, claims);
+        return claims;
+    }
+
     // Lấy User ID từ JWT
     public String getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return verify(token).getSubject();
     }
 
     // Lấy Role từ JWT
     public String getRoleFromJWT(String token) {
-         Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
         // Lấy claim 'role', đảm bảo xử lý null hoặc kiểu dữ liệu không đúng
-        Object roleClaim = claims.get("role");
+        Object roleClaim = verify(token).get(ROLE_CLAIM);
         return roleClaim instanceof String ? (String) roleClaim : null;
     }
 
+    // Dựng principal từ claims của JWT (id, role, token version) mà không truy vấn DB
+    public AuthenticatedUser getAuthenticatedUserFromJWT(String token) {
+        return toAuthenticatedUser(verify(token));
+    }
+
+    // Như trên nhưng trả về null (và ghi log) nếu token không hợp lệ; dùng trong filter để chỉ parse một lần
+    public AuthenticatedUser authenticate(String token) {
+        try {
+            return getAuthenticatedUserFromJWT(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            logInvalidToken(ex);
+            return null;
+        }
+    }
+
+    static AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        // Token tạo từ Authentication lưu role dạng "ROLE_USER", token tạo từ User lưu "USER"
+        String roleClaim = claims.get(ROLE_CLAIM, String.class);
+        if (roleClaim == null) {
+            throw new MalformedJwtException("JWT has no role claim");
+        }
+        ROLE role = ROLE.valueOf(roleClaim.startsWith("ROLE_") ? roleClaim.substring(5) : roleClaim);
+        // Token phát hành trước khi có token version được coi là version 0
+        Integer version = claims.get(VERSION_CLAIM, Integer.class);
+        return new AuthenticatedUser(claims.getSubject(), role, version != null ? version : 0);
+    }
 
     // Xác thực JWT
     public boolean validateToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
+            verify(authToken);
             return true;
-        } catch (SignatureException ex) {
+        } catch (JwtException | IllegalArgumentException ex) {
+            logInvalidToken(ex);
+        }
+        return false;
+    }
+
+    private void logInvalidToken(Exception ex) {
+        if (ex instanceof SignatureException) {
             logger.error("Invalid JWT signature: {}", ex.getMessage());
-        } catch (MalformedJwtException ex) {
+        } else if (ex instanceof MalformedJwtException) {
             logger.error("Invalid JWT token: {}", ex.getMessage());
-        } catch (ExpiredJwtException ex) {
+        } else if (ex instanceof ExpiredJwtException) {
             logger.error("Expired JWT token: {}", ex.getMessage());
-        } catch (UnsupportedJwtException ex) {
+        } else if (ex instanceof UnsupportedJwtException) {
             logger.error("Unsupported JWT token: {}", ex.getMessage());
-        } catch (IllegalArgumentException ex) {
+        } else if (ex instanceof IllegalArgumentException) {
             logger.error("JWT claims string is empty: {}", ex.getMessage());
+        } else {
+            logger.error("Invalid JWT: {}", ex.getMessage());
+        }
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package com.socialmedia.demo.security;
+
+import com.socialmedia.demo.entities.User;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+// Tiện ích lấy thông tin người dùng đang đăng nhập từ SecurityContext
+public final class SecurityUtils {
+
+    private SecurityUtils() {
+    }
+
+    // Trả về ID của người dùng hiện tại
+    public static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+                return principal.getId();
+            }
+            // Ngay sau khi đăng nhập, principal vẫn là entity User
+            if (authentication.getPrincipal() instanceof User user) {
+                return user.getId();
+            }
+        }
+        throw new AuthenticationCredentialsNotFoundException("No authenticated user in security context");
+    }
+}
@@ -0,0 +1,129 @@
+package com.socialmedia.demo.security;
+
+import com.socialmedia.demo.repositories.UserFriendRepository;
+import com.socialmedia.demo.services.ChatMembershipCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+
+/**
+ * Xác thực STOMP trên client inbound channel.
+ * JWT chỉ được kiểm tra một lần ở frame CONNECT (header "Authorization: Bearer ..."); principal được gắn vào
+ * session WebSocket nên các frame SEND/SUBSCRIBE sau đó dùng lại, không verify token hay load user nữa.
+ * Frame SEND chỉ được gửi tới prefix ứng dụng /app; gửi thẳng tới /topic hay /queue bị từ chối, vì broker sẽ
+ * phát nguyên frame đó cho người đăng ký (giả mạo tin nhắn, typing, presence với sender bất kỳ).
+ * Frame gửi tới /app/chat/{chatId} và đăng ký /topic/chats/{chatId}/** chỉ được chấp nhận khi user là
+ * thành viên của chat, tra qua ChatMembershipCache (trong bộ nhớ, evict khi thành viên bị xóa).
+ * Đăng ký /topic/presence/{userId} chỉ được chấp nhận cho chính mình hoặc bạn bè. Destination có ký tự
+ * wildcard bị từ chối, vì broker khớp mẫu (ví dụ /topic/presence/**) sẽ bỏ qua các kiểm tra theo id ở trên.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    static final String APP_PREFIX = "/app/";
+    static final String SEND_PREFIX = "/app/chat/";
+    static final String TOPIC_PREFIX = "/topic/chats/";
+    static final String PRESENCE_PREFIX = "/topic/presence/";
+
+    private final JwtTokenProvider tokenProvider;
+    private final TokenVersionCache tokenVersionCache;
+    private final ChatMembershipCache chatMembershipCache;
+    private final UserFriendRepository userFriendRepository;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message; // Heartbeat hoặc message nội bộ
+        }
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(authenticate(accessor));
+            case SEND -> checkSend(accessor);
+            case SUBSCRIBE -> checkSubscription(accessor);
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(StompHeaderAccessor accessor) {
+        String bearerToken = accessor.getFirstNativeHeader("Authorization");
+        if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith("Bearer ")) {
+            throw new AuthenticationCredentialsNotFoundException("Missing bearer token in STOMP CONNECT");
+        }
+        AuthenticatedUser principal = tokenProvider.authenticate(bearerToken.substring(7));
+        // Token không hợp lệ hoặc đã bị thu hồi (đổi mật khẩu, xóa tài khoản)
+        if (principal == null || !tokenVersionCache.isCurrent(principal.getId(), principal.getTokenVersion())) {
+            throw new BadCredentialsException("Invalid or revoked JWT");
+        }
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private void checkSend(StompHeaderAccessor accessor) {
+        requireUser(accessor);
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(APP_PREFIX)) {
+            throw new AccessDeniedException("SEND is only allowed to " + APP_PREFIX + "** destinations");
+        }
+        checkMembership(accessor, SEND_PREFIX);
+    }
+
+    private void checkSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination != null && (destination.contains("*") || destination.contains("#") || destination.contains("{"))) {
+            throw new AccessDeniedException("Wildcard subscriptions are not allowed");
+        }
+        if (destination != null && destination.startsWith(PRESENCE_PREFIX)) {
+            checkPresence(accessor);
+        } else {
+            checkMembership(accessor, TOPIC_PREFIX);
+        }
+    }
+
+    private void checkPresence(StompHeaderAccessor accessor) {
+        Principal user = requireUser(accessor);
+        String userId = chatIdOf(accessor.getDestination(), PRESENCE_PREFIX);
+        if (userId == null || (!userId.equals(user.getName())
+                && !userFriendRepository.existsByUserIdAndFriendId(user.getName(), userId))) {
+            throw new AccessDeniedException("Presence of user " + userId + " is only visible to friends");
+        }
+    }
+
+    private void checkMembership(StompHeaderAccessor accessor, String prefix) {
+        Principal user = requireUser(accessor);
+        String chatId = chatIdOf(accessor.getDestination(), prefix);
+        if (chatId != null && !chatMembershipCache.isMember(chatId, user.getName())) {
+            throw new AccessDeniedException("User is not a member of chat " + chatId);
+        }
+    }
+
+    private static Principal requireUser(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        if (user == null) {
+            throw new AuthenticationCredentialsNotFoundException("STOMP session is not authenticated");
+        }
+        return user;
+    }
+
+    // "/topic/chats/abc/deletions" -> "abc"; null nếu destination không thuộc một chat
+    private static String chatIdOf(String destination, String prefix) {
+        if (destination == null || !destination.startsWith(prefix)) {
+            return null;
+        }
+        int end = destination.indexOf('/', prefix.length());
+        String chatId = end < 0 ? destination.substring(prefix.length()) : destination.substring(prefix.length(), end);
+        return chatId.isEmpty() ? null : chatId;
+    }
+}
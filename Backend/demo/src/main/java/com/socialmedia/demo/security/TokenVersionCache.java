@@ -0,0 +1,55 @@
+package com.socialmedia.demo.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.socialmedia.demo.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Cache giới hạn kích thước của token version hiện tại theo user ID.
+ * Token chứa version lúc phát hành; tăng users.token_version (đổi mật khẩu, xóa tài khoản...) sẽ thu hồi
+ * mọi token cũ. Chỉ khi cache miss mới phải hỏi DB, và mỗi entry hết hạn sau app.jwt.version-cache.ttl
+ * nên các node khác cũng nhận được thay đổi sau tối đa khoảng thời gian đó.
+ */
+@Component
+public class TokenVersionCache {
+
+    // User không tồn tại (đã bị xóa): không token nào hợp lệ
+    static final int REVOKED = -1;
+
+    private final LoadingCache<String, Integer> versions;
+
+    public TokenVersionCache(UserRepository userRepository,
+                             @Value("${app.jwt.version-cache.max-size:10000}") long maxSize,
+                             @Value("${app.jwt.version-cache.ttl:30s}") Duration ttl) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build(userId -> userRepository.findTokenVersionById(userId).orElse(REVOKED));
+    }
+
+    public boolean isCurrent(String userId, int tokenVersion) {
+        Integer current = versions.get(userId);
+        return current != null && current != REVOKED && current == tokenVersion;
+    }
+
+    // Gọi khi token version của user thay đổi để node hiện tại áp dụng ngay.
+    // Trong transaction thì chỉ xóa sau khi commit, tránh request khác nạp lại giá trị cũ vào cache.
+    public void invalidate(String userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.invalidate(userId);
+                }
+            });
+        } else {
+            versions.invalidate(userId);
+        }
+    }
+}
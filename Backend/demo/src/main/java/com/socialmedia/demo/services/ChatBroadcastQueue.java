@@ -0,0 +1,93 @@
+package com.socialmedia.demo.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Phát tin nhắn đã commit của mỗi chat theo đúng thứ tự seq mà không giữ khóa trong lúc ghi database.
+ * Chỗ trong hàng đợi của chat được giữ ngay sau khi cấp seq, lúc transaction còn giữ khóa dòng seq, nên thứ tự
+ * giữ chỗ là thứ tự seq. Sau khi commit, tin được điền vào chỗ của nó và các tin ở đầu hàng đợi đã sẵn sàng được
+ * broadcast; transaction rollback thì chỗ bị bỏ. Chỉ có đoạn lấy ra và convertAndSend nằm trong khóa của chat.
+ * Thứ tự chỉ được giữ trên một node; client nhận từ nhiều node sắp xếp lại theo seq (và resync khi thiếu).
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatBroadcastQueue {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<String, ArrayDeque<Slot>> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Giữ chỗ broadcast cho tin vừa được cấp seq. Phải gọi trong transaction đang giữ khóa dòng seq của chat;
+     * chỗ được giải phóng khi transaction kết thúc (commit: broadcast payload đã set, rollback: bỏ qua).
+     */
+    public Slot reserve(String chatId, String destination) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("ChatBroadcastQueue.reserve requires an active transaction");
+        }
+        Slot slot = new Slot(chatId, destination);
+        // Thêm và xóa hàng đợi rỗng đều trong compute của cùng key, nên không chỗ nào rơi vào hàng đợi đã bị bỏ
+        queues.compute(chatId, (id, queue) -> {
+            ArrayDeque<Slot> target = queue != null ? queue : new ArrayDeque<>();
+            synchronized (target) {
+                target.addLast(slot);
+            }
+            return target;
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(slot, status == STATUS_COMMITTED);
+            }
+        });
+        return slot;
+    }
+
+    private void release(Slot slot, boolean committed) {
+        ArrayDeque<Slot> queue = queues.get(slot.chatId);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            slot.released = true;
+            if (!committed) {
+                slot.payload = null;
+            }
+            while (!queue.isEmpty() && queue.peekFirst().released) {
+                Slot head = queue.pollFirst();
+                if (head.payload != null) {
+                    messagingTemplate.convertAndSend(head.destination, head.payload);
+                }
+            }
+        }
+        queues.computeIfPresent(slot.chatId, (id, current) -> {
+            synchronized (current) {
+                return current.isEmpty() ? null : current;
+            }
+        });
+    }
+
+    public static final class Slot {
+        private final String chatId;
+        private final String destination;
+        private Object payload;
+        private boolean released;
+
+        private Slot(String chatId, String destination) {
+            this.chatId = chatId;
+            this.destination = destination;
+        }
+
+        // Nội dung được broadcast sau khi commit; gọi trong transaction đã giữ chỗ
+        public void setPayload(Object payload) {
+            this.payload = payload;
+        }
+    }
+}
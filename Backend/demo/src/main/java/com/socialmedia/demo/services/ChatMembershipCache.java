@@ -0,0 +1,74 @@
+package com.socialmedia.demo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.demo.repositories.ChatRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache thành viên theo chat cho đường gửi tin nhắn.
+ * Mỗi chat giữ tập các user đã được xác nhận là thành viên; user chưa có trong tập được kiểm tra bằng một
+ * truy vấn EXISTS trên index (chat_id, user_id) của chat_members rồi thêm vào tập, nên danh sách thành viên
+ * không bao giờ bị load. Chỉ lưu kết quả dương nên thêm thành viên không cần evict; xóa thành viên/chat
+ * bỏ cả entry của chat sau khi commit. Không chỉ xóa user khỏi tập: một truy vấn EXISTS bắt đầu trước commit
+ * có thể trả về sau đó và thêm user lại, nhưng nó thêm vào tập đã lấy trước truy vấn, tập đó đã bị bỏ khỏi cache. Entry hết hạn sau app.chat.membership-cache.ttl, giới hạn thời gian node khác
+ * còn thấy thành viên cũ.
+ */
+@Component
+public class ChatMembershipCache {
+
+    private final ChatRepository chatRepository;
+    private final Cache<String, Set<String>> members;
+
+    public ChatMembershipCache(ChatRepository chatRepository,
+                               @Value("${app.chat.membership-cache.max-size:10000}") long maxSize,
+                               @Value("${app.chat.membership-cache.ttl:5m}") Duration ttl) {
+        this.chatRepository = chatRepository;
+        this.members = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public boolean isMember(String chatId, String userId) {
+        // Lấy tập trước khi truy vấn: nếu thành viên bị xóa trong lúc truy vấn, kết quả cũ rơi vào tập đã bị bỏ
+        Set<String> known = members.get(chatId, id -> ConcurrentHashMap.newKeySet());
+        if (known.contains(userId)) {
+            return true;
+        }
+        if (chatRepository.existsByChatIdAndUserId(chatId, userId)) {
+            known.add(userId);
+            return true;
+        }
+        return false;
+    }
+
+    public void memberRemoved(String chatId, String userId) {
+        afterCommit(() -> members.invalidate(chatId));
+    }
+
+    public void chatRemoved(String chatId) {
+        afterCommit(() -> members.invalidate(chatId));
+    }
+
+    // Trong transaction thì chỉ áp dụng sau khi commit, tránh request khác nạp lại giá trị cũ vào cache
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.socialmedia.demo.services;
 
+import com.socialmedia.demo.config.CacheNames;
 import com.socialmedia.demo.entities.Chat;
 import com.socialmedia.demo.entities.User;
 import com.socialmedia.demo.exceptions.ChatNotFoundException;
@@ -10,6 +11,8 @@ import com.socialmedia.demo.repositories.UserRepository;
 import com.socialmedia.demo.requests.Chat.ChatCreateRequest;
 import com.socialmedia.demo.responses.ChatResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +27,7 @@ public class ChatService {
     private final ChatRepository chatRepository;
     private final UserRepository userRepository; // Assuming UserRepository exists
     private final ChatMapper chatMapper;
+    private final ChatMembershipCache chatMembershipCache;
 
     @Transactional
     public ChatResponse createChat(ChatCreateRequest request) {
@@ -49,7 +53,7 @@ public class ChatService {
             Optional<Chat> existingChat = chatRepository.findDirectChatBetweenUsers(members.get(0).getId(), members.get(1).getId());
             if (existingChat.isPresent()) {
                 // Return existing chat instead of creating a new one
-                return chatMapper.toResponse(existingChat.get());
+                return toResponses(List.of(existingChat.get())).get(0);
             }
         }
 
@@ -62,9 +66,11 @@ public class ChatService {
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.CHATS, key = "#chatId")
     public ChatResponse getChatById(String chatId) {
-        Chat chat = chatRepository.findById(chatId)
+        Chat chat = chatRepository.findWithMembersById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat not found with id: " + chatId));
+        chatRepository.findWithMessagesByIdIn(List.of(chatId));
         return chatMapper.toResponse(chat);
     }
 
@@ -75,9 +81,7 @@ public class ChatService {
             throw new UserNotFoundException("User not found with id: " + userId);
         }
         List<Chat> chats = chatRepository.findByMembers_Id(userId);
-        return chats.stream()
-                .map(chatMapper::toResponse)
-                .collect(Collectors.toList());
+        return toResponses(chats);
     }
 
      @Transactional(readOnly = true)
@@ -91,15 +95,16 @@ public class ChatService {
         }
 
         return chatRepository.findDirectChatBetweenUsers(userId1, userId2)
-                             .map(chatMapper::toResponse);
+                             .map(chat -> toResponses(List.of(chat)).get(0));
     }
 
 
     // Optional: Add methods for adding/removing members, updating chat details, etc.
     // Example: Add member
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.CHATS, key = "#chatId")
     public ChatResponse addMemberToChat(String chatId, String userId) {
-        Chat chat = chatRepository.findById(chatId)
+        Chat chat = chatRepository.findWithMembersById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat not found with id: " + chatId));
         User userToAdd = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
@@ -109,18 +114,20 @@ public class ChatService {
             chat.getMembers().add(userToAdd);
             chatRepository.save(chat);
         }
-        return chatMapper.toResponse(chat);
+        return toResponses(List.of(chat)).get(0);
     }
 
      // Example: Remove member
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.CHATS, key = "#chatId")
     public ChatResponse removeMemberFromChat(String chatId, String userId) {
-        Chat chat = chatRepository.findById(chatId)
+        Chat chat = chatRepository.findWithMembersById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat not found with id: " + chatId));
         User userToRemove = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
 
         if (chat.getMembers().remove(userToRemove)) {
+            chatMembershipCache.memberRemoved(chatId, userId);
              // Consider deleting the chat if no members are left, depending on requirements
             if (chat.getMembers().isEmpty()) {
                  chatRepository.delete(chat);
@@ -135,16 +142,31 @@ public class ChatService {
         }
         // Return the updated chat or handle the case where the chat was deleted
         // For simplicity, returning the potentially modified chat (if not deleted)
-        return chatMapper.toResponse(chat); // Be careful if chat might be deleted
+        return toResponses(List.of(chat)).get(0); // Be careful if chat might be deleted
+    }
+
+    // Nạp thành viên và tin nhắn (kèm người gửi) của các chat theo fetch plan rồi mới map:
+    // hai câu truy vấn cho cả danh sách thay vì mỗi chat, mỗi tin nhắn một câu
+    private List<ChatResponse> toResponses(List<Chat> chats) {
+        if (!chats.isEmpty()) {
+            List<String> chatIds = chats.stream().map(Chat::getId).collect(Collectors.toList());
+            chatRepository.findWithMembersByIdIn(chatIds);
+            chatRepository.findWithMessagesByIdIn(chatIds);
+        }
+        return chats.stream()
+                .map(chatMapper::toResponse)
+                .collect(Collectors.toList());
     }
 
 
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.CHATS, key = "#chatId")
     public void deleteChat(String chatId) {
         if (!chatRepository.existsById(chatId)) {
             throw new ChatNotFoundException("Chat not found with id: " + chatId);
         }
         // Add authorization checks here if needed (e.g., only members or admins can delete)
         chatRepository.deleteById(chatId);
+        chatMembershipCache.chatRemoved(chatId);
     }
 }
\ No newline at end of file
@@ -1,23 +1,30 @@
 package com.socialmedia.demo.services;
 
-import com.socialmedia.demo.entities.Comment;
 import com.socialmedia.demo.entities.CommentReaction;
-import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.entities.CommentReactionCount;
+import com.socialmedia.demo.enums.ReactionType;
 import com.socialmedia.demo.exceptions.CommentNotFoundException;
 import com.socialmedia.demo.exceptions.CommentReactionNotFoundException;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.CommentReactionMapper; // Assuming this mapper exists
+import com.socialmedia.demo.projections.ReactionWriteResult;
+import com.socialmedia.demo.repositories.CommentReactionCountRepository;
 import com.socialmedia.demo.repositories.CommentReactionRepository;
 import com.socialmedia.demo.repositories.CommentRepository;
 import com.socialmedia.demo.repositories.UserRepository;
 import com.socialmedia.demo.requests.CommentReaction.CommentReactionCreateRequest; // Assuming this request exists
 import com.socialmedia.demo.responses.CommentReactionResponse;
+import com.socialmedia.demo.responses.ReactionSummaryResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,52 +32,85 @@ import java.util.stream.Collectors;
 public class CommentReactionService {
 
     private final CommentReactionRepository commentReactionRepository;
+    private final CommentReactionCountRepository commentReactionCountRepository;
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final CommentReactionMapper commentReactionMapper; // Inject the mapper
+    private final ReactionWriteBehind reactionWriteBehind;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    // With write-behind enabled the reaction is only buffered and written in batches;
+    // the response then has no id and no user since the row does not exist yet
     public CommentReactionResponse createOrUpdateReaction(CommentReactionCreateRequest request) {
-        String userId = request.getUserId();
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
-
-        String commentId = request.getCommentId();
-        Comment comment = commentRepository.findById(commentId)
-                .orElseThrow(() -> new CommentNotFoundException("Comment not found with id: " + commentId));
-
-        Optional<CommentReaction> existingReactionOpt = commentReactionRepository.findByUserIdAndCommentId(userId, commentId);
-
-        CommentReaction commentReaction;
-        if (existingReactionOpt.isPresent()) {
-            // Update existing reaction
-            commentReaction = existingReactionOpt.get();
-            // Optional: Add security check if needed
-            // if (!commentReaction.getUser().getId().equals(userId)) {
-            //     throw new SecurityException("User mismatch when updating reaction.");
-            // }
-            commentReaction.setReactionType(request.getReactionType());
-        } else {
-            // Create new reaction
-            commentReaction = commentReactionMapper.toEntity(request); // Mapper should handle basic fields
-            commentReaction.setUser(user);
-            commentReaction.setComment(comment);
-            // reactionType is set via mapper from request
+        if (request.getReactionType() != null
+                && reactionWriteBehind.submitCommentReaction(request.getUserId(), request.getCommentId(), request.getReactionType())) {
+            return CommentReactionResponse.builder()
+                    .commentId(request.getCommentId())
+                    .reactionType(request.getReactionType())
+                    .createAt(LocalDateTime.now())
+                    .build();
         }
+        try {
+            return reactionWriteBehind.writeThroughCommentReaction(request.getUserId(), request.getCommentId(),
+                    () -> transactionTemplate.execute(status -> saveReaction(request)));
+        } catch (DataIntegrityViolationException ex) {
+            // The transaction is rolled back, so look up what is missing with separate queries
+            throw missingReference(request.getUserId(), request.getCommentId(), ex);
+        }
+    }
 
-        CommentReaction savedReaction = commentReactionRepository.save(commentReaction);
-        return commentReactionMapper.toResponse(savedReaction);
+    private CommentReactionResponse saveReaction(CommentReactionCreateRequest request) {
+        // Id-only statements instead of findById(user), findById(comment), findByUserIdAndCommentId and save.
+        // Update under the row lock first so the previous type fed to the counters is the latest one; insert only
+        // when no row exists, and if a concurrent request inserted first (unique (comment_id, user_id)), update it
+        String reactionType = request.getReactionType() != null ? request.getReactionType().name() : null;
+        ReactionWriteResult result = null;
+        while (result == null) {
+            result = commentReactionRepository.updateReturningPrevious(request.getUserId(), request.getCommentId(), reactionType)
+                    .or(() -> commentReactionRepository.insertIfAbsent(
+                            request.getUserId(), request.getCommentId(), reactionType, LocalDateTime.now()))
+                    .orElse(null);
+        }
+        updateCounts(request.getCommentId(), toReactionType(result.getPreviousType()), request.getReactionType());
+        return CommentReactionResponse.builder()
+                .id(String.valueOf(result.getId()))
+                .commentId(request.getCommentId())
+                .reactionType(request.getReactionType())
+                .createAt(result.getCreateAt())
+                .build();
     }
 
-    @Transactional
+    // Deletes go through the buffer as well (deleting a missing reaction becomes a no-op instead of a 404)
     public void deleteReaction(String userId, String commentId) {
-        CommentReaction reaction = commentReactionRepository.findByUserIdAndCommentId(userId, commentId)
+        if (reactionWriteBehind.submitCommentReaction(userId, commentId, null)) {
+            return;
+        }
+        reactionWriteBehind.writeThroughCommentReaction(userId, commentId,
+                () -> transactionTemplate.execute(status -> {
+                    removeReaction(userId, commentId);
+                    return null;
+                }));
+    }
+
+    private void removeReaction(String userId, String commentId) {
+        ReactionWriteResult deleted = commentReactionRepository.deleteReturning(userId, commentId)
                 .orElseThrow(() -> new CommentReactionNotFoundException("Reaction not found for user " + userId + " on comment " + commentId));
 
         // Optional: Add authorization check here if needed, comparing userId with authenticated user
         // Example: if (!reaction.getUser().getId().equals(authenticatedUserId)) { throw new AccessDeniedException(...) }
 
-        commentReactionRepository.delete(reaction);
+        updateCounts(commentId, toReactionType(deleted.getPreviousType()), null);
+    }
+
+    // A foreign key violation on upsert means the user or the comment does not exist
+    private RuntimeException missingReference(String userId, String commentId, DataIntegrityViolationException ex) {
+        if (!userRepository.existsById(userId)) {
+            return new UserNotFoundException("User not found with id: " + userId);
+        }
+        if (!commentRepository.existsById(commentId)) {
+            return new CommentNotFoundException("Comment not found with id: " + commentId);
+        }
+        return ex;
     }
 
     @Transactional(readOnly = true)
@@ -104,4 +144,55 @@ public class CommentReactionService {
                 .orElseThrow(() -> new CommentReactionNotFoundException("CommentReaction not found with id: " + reactionId));
         return commentReactionMapper.toResponse(reaction);
     }
-}
\ No newline at end of file
+
+    // Số lượng reaction theo từng loại và reaction của người dùng hiện tại, đọc từ bảng đếm
+    @Transactional(readOnly = true)
+    public ReactionSummaryResponse getReactionSummary(String commentId, String currentUserId) {
+        if (!commentRepository.existsById(commentId)) {
+            throw new CommentNotFoundException("Comment not found with id: " + commentId);
+        }
+        Map<ReactionType, Long> counts = new EnumMap<>(ReactionType.class);
+        for (ReactionType type : ReactionType.values()) {
+            counts.put(type, 0L);
+        }
+        long total = 0;
+        for (CommentReactionCount count : commentReactionCountRepository.findByIdCommentId(commentId)) {
+            counts.put(count.getId().getReactionType(), count.getCount());
+            total += count.getCount();
+        }
+        ReactionType myReaction = null;
+        if (currentUserId != null) {
+            // Ưu tiên thay đổi chưa flush của chính người dùng (write-behind)
+            ReactionWriteBehind.Pending pending = reactionWriteBehind.pendingCommentReaction(currentUserId, commentId);
+            myReaction = pending != null ? pending.getReactionType()
+                    : commentReactionRepository.findReactionType(currentUserId, commentId).orElse(null);
+        }
+        return ReactionSummaryResponse.builder()
+                .targetId(commentId)
+                .counts(counts)
+                .total(total)
+                .myReaction(myReaction)
+                .build();
+    }
+
+    private static ReactionType toReactionType(String value) {
+        return value != null ? ReactionType.valueOf(value) : null;
+    }
+
+    // Cập nhật bộ đếm trong cùng transaction: previous/current là null khi reaction vừa được tạo/xóa
+    private void updateCounts(String commentId, ReactionType previous, ReactionType current) {
+        if (previous == current) {
+            return;
+        }
+        // Lock the counter rows in enum order like ReactionWriteBehind, so opposite switches
+        // (LIKE -> LOVE and LOVE -> LIKE) on the same comment cannot deadlock
+        Map<ReactionType, Integer> deltas = new EnumMap<>(ReactionType.class);
+        if (previous != null) {
+            deltas.put(previous, -1);
+        }
+        if (current != null) {
+            deltas.put(current, 1);
+        }
+        deltas.forEach((type, delta) -> commentReactionCountRepository.adjust(commentId, type.name(), delta));
+    }
+}
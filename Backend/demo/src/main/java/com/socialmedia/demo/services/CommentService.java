@@ -2,11 +2,12 @@ package com.socialmedia.demo.services;
 
 import com.socialmedia.demo.entities.Comment;
 import com.socialmedia.demo.entities.Post;
-import com.socialmedia.demo.entities.User;
 import com.socialmedia.demo.exceptions.CommentNotFoundException;
 import com.socialmedia.demo.exceptions.PostNotFoundException;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.CommentMapper;
+import com.socialmedia.demo.media.MediaStore;
+import com.socialmedia.demo.media.StoredMedia;
 import com.socialmedia.demo.repositories.CommentRepository;
 import com.socialmedia.demo.repositories.PostRepository;
 import com.socialmedia.demo.repositories.UserRepository;
@@ -14,9 +15,11 @@ import com.socialmedia.demo.requests.Comment.CommentCreateRequest;
 import com.socialmedia.demo.requests.Comment.CommentUpdateRequest;
 import com.socialmedia.demo.responses.CommentResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.AccessDeniedException; // Thêm import này
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,8 +32,9 @@ public class CommentService {
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final CommentMapper commentMapper;
+    private final MediaStore mediaStore;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
     // Loại bỏ tham số authorId riêng biệt
     public CommentResponse createComment(CommentCreateRequest request) {
         // Lấy authorId từ request
@@ -40,20 +44,37 @@ public class CommentService {
             throw new IllegalArgumentException("Author ID must be provided in the request");
         }
 
-        User author = userRepository.findById(authorIdFromRequest) // Sử dụng authorId từ request
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + authorIdFromRequest));
-
-        Post post = postRepository.findById(request.getPostId())
-                .orElseThrow(() -> new PostNotFoundException("Post not found with id: " + request.getPostId()));
+        try {
+            return transactionTemplate.execute(status -> insertComment(request));
+        } catch (DataIntegrityViolationException ex) {
+            // Transaction đã rollback nên kiểm tra lại bằng truy vấn riêng để trả về đúng lỗi 404
+            throw missingReference(authorIdFromRequest, request.getPostId(), ex);
+        }
+    }
 
+    private CommentResponse insertComment(CommentCreateRequest request) {
+        // Chỉ cần khóa ngoại: proxy từ getReferenceById không truy vấn database,
+        // author/post không tồn tại sẽ vi phạm khóa ngoại khi insert
         Comment comment = commentMapper.toEntity(request);
-        comment.setAuthor(author);
-        comment.setPost(post);
+        comment.setAuthor(userRepository.getReferenceById(request.getAuthorId()));
+        comment.setPost(postRepository.getReferenceById(request.getPostId()));
+        storeImage(comment, request.getImageData(), request.getImageType());
 
-        Comment savedComment = commentRepository.save(comment);
+        Comment savedComment = commentRepository.saveAndFlush(comment);
         return commentMapper.toResponse(savedComment);
     }
 
+    // Vi phạm khóa ngoại khi insert nghĩa là author hoặc post không tồn tại
+    private RuntimeException missingReference(String authorId, String postId, DataIntegrityViolationException ex) {
+        if (!userRepository.existsById(authorId)) {
+            return new UserNotFoundException("User not found with id: " + authorId);
+        }
+        if (postId == null || !postRepository.existsById(postId)) {
+            return new PostNotFoundException("Post not found with id: " + postId);
+        }
+        return ex;
+    }
+
     @Transactional(readOnly = true)
     public CommentResponse getCommentById(String commentId) {
         Comment comment = commentRepository.findById(commentId)
@@ -112,6 +133,7 @@ public class CommentService {
 
         // Sử dụng mapper để cập nhật các trường từ request vào existingComment
         commentMapper.updateEntityFromRequest(request, existingComment);
+        storeImage(existingComment, request.getImageData(), request.getImageType());
 
         Comment updatedComment = commentRepository.save(existingComment);
         return commentMapper.toResponse(updatedComment);
@@ -130,4 +152,15 @@ public class CommentService {
 
         commentRepository.delete(comment);
     }
+
+    // Ghi ảnh vào MediaStore, comment chỉ giữ key/size/type
+    private void storeImage(Comment comment, byte[] imageData, String imageType) {
+        if (imageData == null || imageData.length == 0) {
+            return;
+        }
+        StoredMedia media = mediaStore.put(imageData, imageType);
+        comment.setImageKey(media.getKey());
+        comment.setImageSize(media.getSize());
+        comment.setImageType(media.getContentType());
+    }
 }
\ No newline at end of file
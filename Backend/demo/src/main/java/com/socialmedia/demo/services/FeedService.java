@@ -0,0 +1,163 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.mappers.PostMapper;
+import com.socialmedia.demo.pagination.KeysetCursor;
+import com.socialmedia.demo.repositories.FeedEntryRepository;
+import com.socialmedia.demo.repositories.PostRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.PostResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Home feed theo bạn bè.
+ * Bài đăng của người dùng bình thường được fan-out lúc ghi vào bảng feed_entries của từng người bạn,
+ * nên một trang feed chỉ là một lần đọc theo khoảng trên index (user_id, create_at, post_id).
+ * Tác giả có từ app.feed.fanout-threshold bạn bè trở lên không được fan-out (quá nhiều dòng cho mỗi bài);
+ * bài của họ được đọc trực tiếp từ bảng posts và ghép vào lúc đọc. Khi tác giả xuống lại dưới ngưỡng
+ * (hủy kết bạn), các bài gần nhất của họ được fan-out bù để không biến mất khỏi feed của bạn bè.
+ */
+@Service
+@RequiredArgsConstructor
+public class FeedService {
+
+    private final FeedEntryRepository feedEntryRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final PostMapper postMapper;
+
+    @Value("${app.feed.fanout-threshold:1000}")
+    private int fanoutThreshold = 1000;
+
+    @Value("${app.feed.backfill-size:20}")
+    private int backfillSize = 20;
+
+    @Value("${app.feed.threshold-backfill-size:200}")
+    private int thresholdBackfillSize = 200;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
+
+    // Thứ tự của feed: mới nhất trước, cùng thời điểm thì theo id giảm dần (giống các query keyset)
+    private static final Comparator<Post> NEWEST_FIRST = Comparator
+            .comparing(Post::getCreateAt)
+            .thenComparing(Post::getId)
+            .reversed();
+
+    // Gọi trong transaction tạo bài đăng, sau khi post đã được flush xuống DB
+    @Transactional
+    public void onPostPublished(Post post) {
+        User author = post.getAuthor();
+        // Tác giả luôn thấy bài của chính mình trong feed
+        feedEntryRepository.insertEntry(author.getId(), post.getId(), author.getId(), post.getCreateAt());
+        if (post.getPrivacySetting() == PrivacySetting.PRIVATE || isHighFanout(author)) {
+            return;
+        }
+        feedEntryRepository.fanOutToFriends(post.getId(), author.getId(), post.getCreateAt());
+    }
+
+    // Gọi trong transaction sửa bài đăng, sau khi post đã được flush. Đổi tác giả hoặc chuyển sang PRIVATE thì
+    // gỡ các dòng đã fan-out (của tác giả cũ và bạn bè họ) rồi fan-out lại theo tác giả/privacy hiện tại;
+    // chuyển từ PRIVATE sang công khai/bạn bè chỉ cần fan-out (các dòng đã có sẽ được bỏ qua)
+    @Transactional
+    public void onPostUpdated(Post post, String previousAuthorId, PrivacySetting previousPrivacy) {
+        boolean authorChanged = !post.getAuthor().getId().equals(previousAuthorId);
+        if (!authorChanged && post.getPrivacySetting() == previousPrivacy) {
+            return;
+        }
+        if (authorChanged || post.getPrivacySetting() == PrivacySetting.PRIVATE) {
+            feedEntryRepository.deleteByPostIdExceptUser(post.getId(), post.getAuthor().getId());
+        }
+        onPostPublished(post);
+    }
+
+    // Gọi sau khi friend_count đã được cập nhật; số bạn bè được đọc lại từ DB vì entity User đang giữ có thể cũ
+    @Transactional
+    public void onFriendshipCreated(String userId, String friendId) {
+        backfill(userId, friendId);
+        backfill(friendId, userId);
+    }
+
+    // Bài FRIENDS_ONLY không được còn lại trong feed của người không còn là bạn.
+    // Gọi sau khi friend_count đã giảm: ai vừa xuống dưới ngưỡng thì fan-out bù bài gần nhất cho bạn bè còn lại
+    @Transactional
+    public void onFriendshipRemoved(String userId, String friendId) {
+        feedEntryRepository.deleteByUserIdAndAuthorId(userId, friendId);
+        feedEntryRepository.deleteByUserIdAndAuthorId(friendId, userId);
+        backfillIfDroppedBelowThreshold(userId);
+        backfillIfDroppedBelowThreshold(friendId);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getFeed(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        // Lấy thêm 1 dòng từ mỗi nguồn để biết còn trang tiếp theo hay không
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<Post> timeline;
+        List<Post> merged;
+        if (cursor == null) {
+            timeline = feedEntryRepository.findLatestTimeline(userId, PrivacySetting.PRIVATE, fetchLimit);
+            merged = postRepository.findLatestByHighFanoutFriends(
+                    userId, fanoutThreshold, PrivacySetting.PRIVATE, fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            timeline = feedEntryRepository.findTimelineBefore(userId, PrivacySetting.PRIVATE,
+                    position.getTimestamp(), position.getId(), fetchLimit);
+            merged = postRepository.findByHighFanoutFriendsBefore(userId, fanoutThreshold, PrivacySetting.PRIVATE,
+                    position.getTimestamp(), position.getId(), fetchLimit);
+        }
+
+        // Ghép hai danh sách đã sắp xếp; một bài có thể có ở cả hai nguồn nếu tác giả vừa vượt ngưỡng
+        List<Post> posts = new ArrayList<>(timeline.size() + merged.size());
+        Set<String> seen = new HashSet<>();
+        timeline.stream().filter(p -> seen.add(p.getId())).forEach(posts::add);
+        merged.stream().filter(p -> seen.add(p.getId())).forEach(posts::add);
+        posts.sort(NEWEST_FIRST);
+
+        boolean hasMore = posts.size() > pageSize;
+        List<Post> page = hasMore ? posts.subList(0, pageSize) : posts;
+        String nextCursor = null;
+        if (hasMore) {
+            Post last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreateAt(), last.getId()).encode();
+        }
+        return CursorPage.<PostResponse>builder()
+                .items(page.stream().map(postMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private boolean isHighFanout(User author) {
+        return author.getFriendCount() >= fanoutThreshold;
+    }
+
+    private void backfill(String userId, String authorId) {
+        if (userRepository.findFriendCount(authorId) < fanoutThreshold) {
+            feedEntryRepository.backfill(userId, authorId, backfillSize);
+        }
+    }
+
+    // UPDATE friend_count giữ khóa dòng đến hết transaction nên các lần hủy kết bạn đồng thời thấy các giá trị
+    // khác nhau, chỉ đúng một lần thấy fanoutThreshold - 1
+    private void backfillIfDroppedBelowThreshold(String authorId) {
+        if (userRepository.findFriendCount(authorId) == fanoutThreshold - 1) {
+            feedEntryRepository.backfillToFriends(authorId, thresholdBackfillSize);
+        }
+    }
+}
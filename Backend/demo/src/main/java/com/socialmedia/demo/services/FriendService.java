@@ -0,0 +1,168 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.config.CacheNames;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.exceptions.BadRequestException;
+import com.socialmedia.demo.exceptions.FriendRequestNotFoundException;
+import com.socialmedia.demo.exceptions.UserNotFoundException;
+import com.socialmedia.demo.mappers.UserMapper;
+import com.socialmedia.demo.repositories.FriendRequestRepository;
+import com.socialmedia.demo.repositories.UserFriendRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.UserSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class FriendService {
+
+    private final UserFriendRepository userFriendRepository;
+    private final FriendRequestRepository friendRequestRepository;
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final FeedService feedService;
+
+    // Gửi lời mời kết bạn tới friendId. Nếu friendId đã mời userId trước đó thì cả hai đã đồng ý: kết bạn luôn.
+    // Quan hệ bạn bè chỉ được ghi khi người nhận chấp nhận, để FRIENDS_ONLY/presence không mở cho người lạ
+    @Transactional
+    @Caching(evict = { // friendCount nằm trong UserResponse
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId"),
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
+    public UserSummary sendFriendRequest(String userId, String friendId) {
+        User friend = requireOther(userId, friendId);
+        if (userFriendRepository.existsByUserIdAndFriendId(userId, friendId)) {
+            throw new BadRequestException("Already friends with user " + friendId);
+        }
+        if (friendRequestRepository.deleteRequest(friendId, userId) > 0) {
+            befriend(userId, friendId);
+        } else {
+            friendRequestRepository.insertRequest(userId, friendId, new Date());
+        }
+        return userMapper.toSummary(friend);
+    }
+
+    // Người nhận (userId) chấp nhận lời mời của friendId: lúc này mới ghi hai dòng user_friends
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId"),
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
+    public UserSummary acceptFriendRequest(String userId, String friendId) {
+        User friend = requireOther(userId, friendId);
+        if (friendRequestRepository.deleteRequest(friendId, userId) == 0) {
+            throw new FriendRequestNotFoundException("No pending friend request from user " + friendId);
+        }
+        befriend(userId, friendId);
+        return userMapper.toSummary(friend);
+    }
+
+    // Từ chối lời mời nhận được hoặc hủy lời mời đã gửi
+    @Transactional
+    public void deleteFriendRequest(String userId, String otherId) {
+        if (friendRequestRepository.deleteRequestsBetween(userId, otherId) == 0) {
+            throw new FriendRequestNotFoundException("No pending friend request between you and user " + otherId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> getIncomingRequests(String userId) {
+        return friendRequestRepository.findSendersTo(userId).stream()
+                .map(userMapper::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> getOutgoingRequests(String userId) {
+        return friendRequestRepository.findReceiversFrom(userId).stream()
+                .map(userMapper::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ghi quan hệ bạn bè ngay, không qua lời mời. Không có endpoint nào gọi tới: chỉ dùng để seed dữ liệu
+     * (test, loadtest). Request của người dùng phải đi qua sendFriendRequest/acceptFriendRequest.
+     */
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId"),
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
+    public UserSummary addFriend(String userId, String friendId) {
+        User friend = requireOther(userId, friendId);
+        befriend(userId, friendId);
+        return userMapper.toSummary(friend);
+    }
+
+    private User requireOther(String userId, String friendId) {
+        if (userId.equals(friendId)) {
+            throw new BadRequestException("Cannot add yourself as a friend");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException("User not found with id: " + userId);
+        }
+        return userRepository.findById(friendId)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + friendId));
+    }
+
+    // Lưu hai dòng (user -> friend, friend -> user) và cập nhật số bạn bè của cả hai
+    private void befriend(String userId, String friendId) {
+        // Chèn có ON CONFLICT thay vì kiểm tra rồi save: hai request kết bạn đồng thời không gây lỗi unique (500)
+        boolean idOrder = userId.compareTo(friendId) < 0;
+        int inserted = userFriendRepository.insertFriendship(
+                idOrder ? userId : friendId, idOrder ? friendId : userId, new Date());
+        // Lời mời còn lại theo chiều ngược (cả hai cùng mời nhau) không còn ý nghĩa
+        friendRequestRepository.deleteRequestsBetween(userId, friendId);
+        if (inserted == 0) {
+            return; // Đã là bạn bè
+        }
+        userRepository.adjustFriendCount(List.of(userId, friendId), 1);
+
+        feedService.onFriendshipCreated(userId, friendId);
+    }
+
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId"),
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
+    public void removeFriend(String userId, String friendId) {
+        int deleted = userFriendRepository.deleteFriendship(userId, friendId);
+        if (deleted == 0) {
+            return; // Không phải bạn bè, không có gì để xóa
+        }
+        userRepository.adjustFriendCount(List.of(userId, friendId), -1);
+        feedService.onFriendshipRemoved(userId, friendId);
+    }
+
+    // Những id trong candidateIds mà userId được xem (chính mình và bạn bè), dùng cho presence
+    @Transactional(readOnly = true)
+    public Set<String> visibleUserIds(String userId, Collection<String> candidateIds) {
+        Set<String> visible = new HashSet<>(userFriendRepository.findFriendIdsAmong(userId, candidateIds));
+        if (candidateIds.contains(userId)) {
+            visible.add(userId);
+        }
+        return visible;
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> getFriends(String userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException("User not found with id: " + userId);
+        }
+        return userFriendRepository.findFriendsOf(userId).stream()
+                .map(userMapper::toSummary)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+package com.socialmedia.demo.services;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Cấp seq cho các tin nhắn cũ (tạo trước khi có cột seq) để resync theo seq không bị thiếu tin.
+ * Với mỗi chat còn tin nhắn chưa có seq: tin cũ được đánh số theo (send_at, id) ngay trước seq nhỏ nhất hiện có,
+ * tức là 1-n..0 khi chat đã có tin từ seq 1, vì chúng được gửi trước. Seq đã cấp không bao giờ bị đổi (client có thể
+ * đang giữ chúng làm afterSeq) và bộ đếm của chat giữ nguyên.
+ * Mỗi chat chạy trong một transaction và khóa dòng bộ đếm trước, nên hai node không đánh số cùng lúc.
+ * Chỉ chạy khi bật rõ ràng (app.messages.backfill-legacy-seqs=true), một lần sau khi nâng cấp database cũ, và
+ * idempotent: chỉ xử lý tin còn thiếu seq. Chạy khi mọi singleton đã tạo xong (sau khi Hibernate thêm cột seq)
+ * nhưng trước khi web server và WebSocket broker khởi động, nên không tin mới nào được gửi trong lúc đánh số.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.messages.backfill-legacy-seqs", havingValue = "true")
+public class MessageSequenceBackfill implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSequenceBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> chatIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT chat_id FROM messages WHERE seq IS NULL AND chat_id IS NOT NULL", String.class);
+        for (String chatId : chatIds) {
+            transactionTemplate.executeWithoutResult(status -> backfill(chatId));
+        }
+        if (!chatIds.isEmpty()) {
+            logger.info("Assigned message sequence numbers in {} chats", chatIds.size());
+        }
+    }
+
+    private void backfill(String chatId) {
+        // Khóa bộ đếm của chat (tạo nếu chưa có)
+        jdbcTemplate.update("INSERT INTO chat_message_sequences (chat_id, last_seq) VALUES (?, 0) " +
+                "ON CONFLICT (chat_id) DO UPDATE SET last_seq = chat_message_sequences.last_seq", chatId);
+        // n tin cũ nhận lowest - n .. lowest - 1, với lowest = min(seq nhỏ nhất hiện có, 1)
+        jdbcTemplate.update("UPDATE messages m SET seq = lowest.seq - numbered.total + numbered.rn - 1 FROM (" +
+                "SELECT id, ROW_NUMBER() OVER (ORDER BY send_at, id) AS rn, COUNT(*) OVER () AS total FROM messages " +
+                "WHERE chat_id = ? AND seq IS NULL) numbered, " +
+                "(SELECT LEAST(COALESCE(MIN(seq), 1), 1) AS seq FROM messages WHERE chat_id = ?) lowest " +
+                "WHERE m.id = numbered.id", chatId, chatId);
+    }
+}
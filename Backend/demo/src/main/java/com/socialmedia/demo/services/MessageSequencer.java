@@ -0,0 +1,26 @@
+package com.socialmedia.demo.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cấp số thứ tự (seq) tăng dần cho tin nhắn trong từng chat.
+ * Mỗi lần cấp là một upsert trên dòng của chat trong chat_message_sequences, nên chỉ các tin nhắn cùng chat
+ * phải chờ nhau (khóa dòng), không có khóa toàn cục, và mọi node dùng chung một dãy số.
+ * Gọi trong transaction thì khóa dòng được giữ tới khi commit: seq được cấp theo đúng thứ tự commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageSequencer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long next(String chatId) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO chat_message_sequences (chat_id, last_seq) VALUES (?, 1) " +
+                "ON CONFLICT (chat_id) DO UPDATE SET last_seq = chat_message_sequences.last_seq + 1 " +
+                "RETURNING last_seq",
+                Long.class, chatId);
+    }
+}
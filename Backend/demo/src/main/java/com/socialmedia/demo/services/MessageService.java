@@ -1,25 +1,46 @@
 package com.socialmedia.demo.services;
 
-import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.config.CacheNames;
 import com.socialmedia.demo.entities.Message;
-import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.entities.MessageDeletion;
 import com.socialmedia.demo.exceptions.ChatNotFoundException;
+import com.socialmedia.demo.exceptions.InvalidCursorException;
 import com.socialmedia.demo.exceptions.MessageNotFoundException;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.MessageMapper;
+import com.socialmedia.demo.mappers.UserMapper;
+import com.socialmedia.demo.pagination.KeysetCursor;
+import com.socialmedia.demo.projections.MessageView;
 import com.socialmedia.demo.repositories.ChatRepository;
+import com.socialmedia.demo.repositories.MessageDeadLetterRepository;
+import com.socialmedia.demo.repositories.MessageDeletionRepository;
 import com.socialmedia.demo.repositories.MessageRepository;
 import com.socialmedia.demo.repositories.UserRepository;
 import com.socialmedia.demo.requests.Message.MessageCreateRequest;
 import com.socialmedia.demo.requests.Message.MessageUpdateRequest;
+import com.socialmedia.demo.responses.CursorPage;
 import com.socialmedia.demo.responses.MessageResponse;
+import com.socialmedia.demo.responses.UserSummary;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.AccessDeniedException; // Import nếu cần kiểm tra quyền
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,36 +48,134 @@ import java.util.stream.Collectors;
 public class MessageService {
 
     private final MessageRepository messageRepository;
+    private final MessageDeadLetterRepository messageDeadLetterRepository;
+    private final MessageDeletionRepository messageDeletionRepository;
     private final UserRepository userRepository;
     private final ChatRepository chatRepository;
     private final MessageMapper messageMapper;
     private final SimpMessagingTemplate messagingTemplate; // Để gửi tin nhắn qua WebSocket
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatMembershipCache chatMembershipCache;
+    private final MessageSequencer messageSequencer;
+    private final ChatBroadcastQueue chatBroadcastQueue;
+    private final MessageWriteBehind messageWriteBehind;
+    private final UserService userService;
+    private final UserMapper userMapper;
 
-    @Transactional
-    public MessageResponse createMessage(MessageCreateRequest request) {
-        User sender = userRepository.findById(request.getSenderId())
-                .orElseThrow(() -> new UserNotFoundException("Sender not found with id: " + request.getSenderId()));
+    // Khóa theo chat (chia theo hash) cho đường bất đồng bộ: seq được cấp ngoài transaction (khóa dòng nhả ngay),
+    // nên cấp seq, đưa vào hàng đợi và broadcast trong cùng khóa để trên một node tin của mỗi chat đi đúng thứ tự seq
+    private final Object[] chatLocks = createLocks(64);
+
+    @Value("${app.messages.max-page-size:100}")
+    private int maxPageSize = 100;
 
-        Chat chat = chatRepository.findById(request.getChatId())
-                .orElseThrow(() -> new ChatNotFoundException("Chat not found with id: " + request.getChatId()));
+    @Value("${app.messages.resync.lost-after-ms:60000}")
+    private long lostAfterMs = 60000;
 
-        // Kiểm tra xem người gửi có phải là thành viên của cuộc trò chuyện không (quan trọng)
-        if (chat.getMembers().stream().noneMatch(member -> member.getId().equals(sender.getId()))) {
-            throw new AccessDeniedException("Sender is not a member of this chat");
+    // ChatResponse (cache "chats") chứa danh sách tin nhắn nên mọi thay đổi tin nhắn đều evict chat tương ứng;
+    // với ghi bất đồng bộ MessageWriteBehind evict thêm lần nữa sau khi tin được commit
+    @CacheEvict(cacheNames = CacheNames.CHATS, key = "#request.chatId")
+    public MessageResponse createMessage(MessageCreateRequest request) {
+        // Kiểm tra xem người gửi có phải là thành viên của cuộc trò chuyện không (quan trọng).
+        // Tra cache thành viên theo chat (cache miss: một truy vấn EXISTS trên index), không bao giờ load danh sách thành viên
+        if (!chatMembershipCache.isMember(request.getChatId(), request.getSenderId())) {
+            throw membershipFailure(request.getSenderId(), request.getChatId());
         }
 
+        if (messageWriteBehind.isEnabled()) {
+            return createMessageAsync(request);
+        }
 
+        // Không giữ khóa JVM trong lúc ghi: thứ tự commit đã do khóa dòng seq quyết định, ChatBroadcastQueue
+        // broadcast sau commit theo đúng thứ tự seq đó (đăng ký trong insertMessage)
+        try {
+            return transactionTemplate.execute(status -> insertMessage(request));
+        } catch (DataIntegrityViolationException ex) {
+            // User hoặc chat bị xóa giữa lúc kiểm tra và lúc insert
+            throw membershipFailure(request.getSenderId(), request.getChatId());
+        }
+    }
+
+    private MessageResponse insertMessage(MessageCreateRequest request) {
+        // Chỉ cần khóa ngoại: proxy từ getReferenceById không truy vấn database
         Message message = messageMapper.toEntity(request);
-        message.setSender(sender);
-        message.setChat(chat);
+        message.setSender(userRepository.getReferenceById(request.getSenderId()));
+        message.setChat(chatRepository.getReferenceById(request.getChatId()));
+        // Khóa dòng seq của chat được giữ tới khi commit, nên seq tăng theo thứ tự commit
+        message.setSeq(messageSequencer.next(request.getChatId()));
+        // Giữ chỗ broadcast khi còn giữ khóa dòng seq; gửi tới tất cả client đang đăng ký topic của chat sau khi commit
+        ChatBroadcastQueue.Slot broadcast = chatBroadcastQueue.reserve(request.getChatId(), "/topic/chats/" + request.getChatId());
 
-        Message savedMessage = messageRepository.save(message);
+        Message savedMessage = messageRepository.saveAndFlush(message);
         MessageResponse messageResponse = messageMapper.toResponse(savedMessage);
+        broadcast.setPayload(messageResponse);
+        return messageResponse;
+    }
 
-        // Gửi tin nhắn mới tới tất cả client đang đăng ký topic của chat này
-        messagingTemplate.convertAndSend("/topic/chats/" + chat.getId(), messageResponse);
+    /**
+     * Đường ghi bất đồng bộ: cấp seq, broadcast ngay và để MessageWriteBehind ghi theo batch.
+     * Không có transaction hay INSERT trên đường gửi; thông tin người gửi lấy từ cache users.
+     * Client đối chiếu theo seq; tin nhắn chỉ xuất hiện trong API lịch sử sau khi được flush.
+     * Chỗ trong hàng đợi được giữ trước và ngoài khóa theo chat (có thể phải flush), nên khi đã cấp seq thì
+     * submit và broadcast không thể thất bại vì hàng đợi đầy.
+     */
+    private MessageResponse createMessageAsync(MessageCreateRequest request) {
+        UserSummary sender = userMapper.toSummary(userService.getUserById(request.getSenderId()));
+        String chatId = request.getChatId();
+        messageWriteBehind.reserve();
+        boolean submitted = false;
+        try {
+            synchronized (chatLock(chatId)) {
+                long seq;
+                try {
+                    seq = messageSequencer.next(chatId);
+                } catch (DataIntegrityViolationException ex) {
+                    // Chat bị xóa sau lúc kiểm tra thành viên
+                    throw membershipFailure(request.getSenderId(), chatId);
+                }
+                MessageResponse messageResponse = MessageResponse.builder()
+                        .id(UUID.randomUUID().toString())
+                        .sender(sender)
+                        .chatId(chatId)
+                        .sendAt(LocalDateTime.now())
+                        .seq(seq)
+                        .content(request.getContent())
+                        .build();
+                messageWriteBehind.submit(new MessageWriteBehind.PendingMessage(messageResponse.getId(), chatId,
+                        sender.getId(), messageResponse.getContent(), messageResponse.getSendAt(), seq));
+                submitted = true;
+                messagingTemplate.convertAndSend("/topic/chats/" + chatId, messageResponse);
+                return messageResponse;
+            }
+        } finally {
+            if (!submitted) {
+                messageWriteBehind.cancelReservation();
+            }
+        }
+    }
 
-        return messageResponse;
+    private Object chatLock(String chatId) {
+        return chatLocks[Math.floorMod(chatId.hashCode(), chatLocks.length)];
+    }
+
+    private static Object[] createLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    // Chỉ chạy khi kiểm tra thành viên thất bại, để trả về đúng lỗi như trước
+    private RuntimeException membershipFailure(String senderId, String chatId) {
+        if (!userRepository.existsById(senderId)) {
+            return new UserNotFoundException("Sender not found with id: " + senderId);
+        }
+        if (!chatRepository.existsById(chatId)) {
+            return new ChatNotFoundException("Chat not found with id: " + chatId);
+        }
+        return new AccessDeniedException("Sender is not a member of this chat");
     }
 
     @Transactional(readOnly = true)
@@ -66,19 +185,133 @@ public class MessageService {
         return messageMapper.toResponse(message);
     }
 
+    /**
+     * Lấy một trang tin nhắn của chat, luôn trả về theo thứ tự cũ -> mới.
+     * Không có cursor: trang mới nhất. before: các tin cũ hơn (cuộn lên). after: các tin mới hơn (bắt kịp).
+     * nextCursor dùng để tiếp tục theo cùng hướng; newestCursor (tin mới nhất của trang) luôn có khi trang có tin,
+     * gửi làm after để bắt kịp tin mới kể cả khi trang được lấy theo before hoặc là trang mới nhất.
+     */
     @Transactional(readOnly = true)
-    public List<MessageResponse> getMessagesByChatId(String chatId) {
+    public CursorPage<MessageResponse> getMessagesByChatId(String chatId, String before, String after, int limit) {
+        if (before != null && after != null) {
+            throw new InvalidCursorException("Only one of 'before' or 'after' may be provided");
+        }
         // Kiểm tra xem chat có tồn tại không
         if (!chatRepository.existsById(chatId)) {
             throw new ChatNotFoundException("Chat not found with id: " + chatId);
         }
-        List<Message> messages = messageRepository.findByChatIdOrderBySendAtAsc(chatId);
-        return messages.stream()
-                .map(messageMapper::toResponse)
-                .collect(Collectors.toList());
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        // Lấy thêm 1 dòng để biết còn trang tiếp theo hay không
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<MessageView> rows;
+        if (after != null) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            rows = messageRepository.findViewsAfter(chatId, cursor.getTimestamp(), cursor.getId(), fetchLimit);
+        } else if (before != null) {
+            KeysetCursor cursor = KeysetCursor.decode(before);
+            rows = messageRepository.findViewsBefore(chatId, cursor.getTimestamp(), cursor.getId(), fetchLimit);
+        } else {
+            rows = messageRepository.findLatestViews(chatId, fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<MessageView> page = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+        // Phần tử cuối của page là điểm tiếp tục theo cùng hướng (cũ nhất với before, mới nhất với after)
+        String nextCursor;
+        if (!page.isEmpty()) {
+            MessageView last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getSendAt(), last.getId()).encode();
+        } else {
+            nextCursor = after; // Chưa có tin mới: client giữ nguyên cursor để hỏi lại sau
+        }
+        if (after == null) {
+            Collections.reverse(page); // Query đọc mới -> cũ, response trả cũ -> mới
+        }
+        String newestCursor;
+        if (!page.isEmpty()) {
+            MessageView newest = page.get(page.size() - 1);
+            newestCursor = new KeysetCursor(newest.getSendAt(), newest.getId()).encode();
+        } else {
+            newestCursor = after;
+        }
+
+        return CursorPage.<MessageResponse>builder()
+                .items(page.stream().map(messageMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(after == null && !hasMore ? null : nextCursor)
+                .newestCursor(newestCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Resync sau khi kết nối lại: trả về các tin nhắn có seq > afterSeq theo thứ tự seq, liền nhau không khoảng trống.
+     * Với ghi bất đồng bộ, một seq nhỏ hơn có thể chưa được ghi trong khi seq lớn hơn đã có: trang dừng ngay trước
+     * seq còn thiếu đó, nên lần gọi sau vẫn nhận được nó. Seq mất hẳn (dead-letter, hoặc vẫn thiếu khi tin sau nó
+     * đã gửi quá app.messages.resync.lost-after-ms, ví dụ node chết trước khi flush) được bỏ qua và trả về trong
+     * missingSeqs. Seq của tin đã bị xóa (message_deletions) được bỏ qua ngay và trả về trong deletedSeqs.
+     * nextCursor là seq cuối cùng đã xét (tin nhắn, seq mất hoặc đã xóa), dùng làm afterSeq cho lần gọi tiếp
+     * theo (giữ nguyên afterSeq nếu chưa có tin mới); hasMore = false khi hết tin hoặc đang chờ seq chưa ghi.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<MessageResponse> getMessagesAfterSeq(String chatId, long afterSeq, int limit) {
+        if (!chatRepository.existsById(chatId)) {
+            throw new ChatNotFoundException("Chat not found with id: " + chatId);
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<MessageView> rows = messageRepository.findViewsAfterSeq(chatId, afterSeq, Limit.of(pageSize + 1));
+
+        List<MessageView> page = new ArrayList<>();
+        List<Long> missingSeqs = new ArrayList<>();
+        List<Long> deletedSeqs = new ArrayList<>();
+        Set<Long> deadLettered = null;
+        Set<Long> deleted = null;
+        LocalDateTime lostBefore = LocalDateTime.now().minus(Duration.ofMillis(lostAfterMs));
+        long lastSeq = afterSeq;
+        boolean waiting = false;
+        for (MessageView row : rows) {
+            // Seq <= 0 chỉ có ở tin cũ do MessageSequenceBackfill đánh số (liền nhau, đã ghi); seq mới bắt đầu từ 1
+            long expected = row.getSeq() > 0 ? Math.max(lastSeq + 1, 1) : row.getSeq();
+            for (long seq = expected; seq < row.getSeq() && !waiting && consumed(page, missingSeqs, deletedSeqs) < pageSize; seq++) {
+                if (deadLettered == null) {
+                    long lastRowSeq = rows.get(rows.size() - 1).getSeq();
+                    deadLettered = new HashSet<>(messageDeadLetterRepository.findSeqsBetween(chatId, lastSeq, lastRowSeq));
+                    deleted = new HashSet<>(messageDeletionRepository.findSeqsBetween(chatId, lastSeq, lastRowSeq));
+                }
+                if (deleted.contains(seq)) {
+                    deletedSeqs.add(seq);
+                    lastSeq = seq;
+                } else if (deadLettered.contains(seq) || row.getSendAt().isBefore(lostBefore)) {
+                    missingSeqs.add(seq);
+                    lastSeq = seq;
+                } else {
+                    waiting = true; // Có thể vẫn đang chờ ghi
+                }
+            }
+            if (waiting || consumed(page, missingSeqs, deletedSeqs) >= pageSize) {
+                break;
+            }
+            page.add(row);
+            lastSeq = row.getSeq();
+        }
+
+        boolean hasMore = !waiting && !rows.isEmpty() && lastSeq < rows.get(rows.size() - 1).getSeq();
+        return CursorPage.<MessageResponse>builder()
+                .items(page.stream().map(messageMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(String.valueOf(lastSeq))
+                .hasMore(hasMore)
+                .missingSeqs(missingSeqs)
+                .deletedSeqs(deletedSeqs)
+                .build();
+    }
+
+    // Số seq đã xét trong trang: tin trả về, seq mất và seq đã xóa đều tính vào limit
+    private static int consumed(List<MessageView> page, List<Long> missingSeqs, List<Long> deletedSeqs) {
+        return page.size() + missingSeqs.size() + deletedSeqs.size();
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.CHATS, key = "#result.chatId")
     // Cần thêm tham số userId của người dùng đã xác thực để kiểm tra quyền
     public MessageResponse updateMessage(String messageId, MessageUpdateRequest request, String authenticatedUserId) {
         Message existingMessage = messageRepository.findById(messageId)
@@ -117,7 +350,17 @@ public class MessageService {
         }
 
         String chatId = message.getChat().getId(); // Lấy chatId trước khi xóa
+        if (message.getSeq() != null) {
+            // Giữ lại seq để resync bỏ qua khoảng trống này ngay thay vì chờ như một tin chưa được ghi
+            messageDeletionRepository.save(MessageDeletion.builder()
+                    .id(message.getId())
+                    .chatId(chatId)
+                    .seq(message.getSeq())
+                    .deletedAt(LocalDateTime.now())
+                    .build());
+        }
         messageRepository.delete(message);
+        cacheManager.getCache(CacheNames.CHATS).evict(chatId); // Áp dụng sau khi commit
 
         // Gửi thông báo xóa tin nhắn qua WebSocket (tùy chọn)
         // Gửi ID của tin nhắn đã bị xóa
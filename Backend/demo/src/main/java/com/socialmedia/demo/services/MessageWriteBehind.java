@@ -0,0 +1,280 @@
+package com.socialmedia.demo.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.socialmedia.demo.config.CacheNames;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ghi tin nhắn xuống DB bất đồng bộ (bật bằng app.messages.async-persistence.enabled=true).
+ * MessageService giữ chỗ trong hàng đợi (reserve), cấp seq và broadcast ngay, rồi đưa tin nhắn vào hàng đợi;
+ * hàng đợi được flush định kỳ (app.messages.async-persistence.flush-interval-ms) bằng batch INSERT trong một transaction.
+ *
+ * Thứ tự: chỉ một thread flush tại một thời điểm (lock) và các batch được lấy theo đúng thứ tự vào hàng đợi.
+ * Tin chưa ghi được nằm trong retryBatch và đi trước mọi tin mới hơn ở lần flush sau.
+ * Lỗi kết nối/DB tạm thời: cả batch được giữ lại và thử lại cho tới khi DB hồi phục (không giới hạn số lần).
+ * Lỗi khác: ghi lại từng dòng, mỗi dòng một transaction. Dòng lỗi chỉ chặn các tin sau nó của cùng chat
+ * (để giữ thứ tự seq), các chat khác vẫn được ghi; sau app.messages.async-persistence.max-attempts lần, dòng đó
+ * được chuyển vào message_dead_letters, ghi log và bỏ khỏi hàng đợi, nên một tin bị DB từ chối vĩnh viễn
+ * (ví dụ nội dung chứa \u0000) không chặn chat mãi. Tin của user/chat đã bị xóa trước khi flush bị bỏ qua.
+ * Backpressure: reserve() tự flush khi hàng đợi đầy, trước khi MessageService cấp seq hay broadcast.
+ * Hàng đợi được flush khi tắt ứng dụng.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Tin đã lấy khỏi hàng đợi nhưng chưa ghi được, theo thứ tự vào hàng đợi; chỉ truy cập khi giữ flushLock
+    private List<PendingMessage> retryBatch = List.of();
+    private final BlockingQueue<PendingMessage> queue = new LinkedBlockingQueue<>();
+
+    @Value("${app.messages.async-persistence.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.messages.async-persistence.max-batch-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${app.messages.async-persistence.max-pending:100000}")
+    private int maxPending = 100000;
+
+    @Value("${app.messages.async-persistence.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    // Số chỗ còn trống cho tin chưa ghi (hàng đợi + retryBatch); trả lại khi tin được ghi, bỏ qua hoặc dead-letter
+    private Semaphore capacity;
+
+    @PostConstruct
+    void createCapacity() {
+        capacity = new Semaphore(maxPending);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Giữ chỗ cho một tin trước khi cấp seq; gọi ngoài khóa theo chat vì có thể phải flush
+    public void reserve() {
+        if (capacity.tryAcquire()) {
+            return;
+        }
+        // Hàng đợi đầy: thread gửi flush luôn rồi thử lại
+        flush();
+        if (!capacity.tryAcquire()) {
+            throw new IllegalStateException("Message write queue is full");
+        }
+    }
+
+    // Trả chỗ đã giữ khi không submit được (ví dụ chat bị xóa lúc cấp seq)
+    public void cancelReservation() {
+        capacity.release();
+    }
+
+    // Chỉ gọi sau reserve(), theo đúng thứ tự seq của mỗi chat (MessageService giữ khóa theo chat khi cấp seq và submit)
+    public void submit(PendingMessage message) {
+        queue.add(message);
+    }
+
+    @Scheduled(fixedDelayString = "${app.messages.async-persistence.flush-interval-ms:50}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            while (true) {
+                List<PendingMessage> batch = new ArrayList<>(retryBatch);
+                queue.drainTo(batch, Math.max(0, maxBatchSize - batch.size()));
+                if (batch.isEmpty()) {
+                    return;
+                }
+                boolean drainedFullBatch = batch.size() >= maxBatchSize;
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(batch));
+                    retryBatch = List.of();
+                    capacity.release(batch.size());
+                } catch (RuntimeException ex) {
+                    if (isOutage(ex)) {
+                        // DB không dùng được: giữ nguyên batch để thử lại ở lần flush sau
+                        retryBatch = batch;
+                        logger.error("Failed to persist {} messages, will retry", batch.size(), ex);
+                        return;
+                    }
+                    logger.warn("Batch of {} messages was rejected, writing row by row", batch.size(), ex);
+                    if (!writeRowByRow(batch)) {
+                        return;
+                    }
+                }
+                if (!drainedFullBatch) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (enabled && (!retryBatch.isEmpty() || !queue.isEmpty())) {
+            flush();
+            int unsaved = retryBatch.size() + queue.size();
+            if (unsaved > 0) {
+                logger.error("Shutting down with {} messages not persisted", unsaved);
+            }
+        }
+    }
+
+    // Trả về false nếu phải dừng lần flush này (DB không dùng được); các tin chưa ghi nằm lại trong retryBatch
+    private boolean writeRowByRow(List<PendingMessage> batch) {
+        List<PendingMessage> remaining = new ArrayList<>();
+        Set<String> blockedChats = new HashSet<>();
+        boolean outage = false;
+        for (PendingMessage message : batch) {
+            if (outage || blockedChats.contains(message.getChatId())) {
+                remaining.add(message);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(message)));
+                capacity.release();
+            } catch (RuntimeException ex) {
+                if (isOutage(ex)) {
+                    outage = true;
+                    remaining.add(message);
+                    logger.error("Failed to persist message {}, will retry", message.getId(), ex);
+                } else if (message.recordFailure() >= maxAttempts && deadLetter(message, ex)) {
+                    capacity.release();
+                } else {
+                    // Các tin sau của chat này chờ tin lỗi để giữ đúng thứ tự seq
+                    blockedChats.add(message.getChatId());
+                    remaining.add(message);
+                    logger.warn("Failed to persist message {} (chat {}, seq {}, attempt {})",
+                            message.getId(), message.getChatId(), message.getSeq(), message.getFailedAttempts(), ex);
+                }
+            }
+        }
+        retryBatch = remaining;
+        return !outage && remaining.isEmpty();
+    }
+
+    private boolean deadLetter(PendingMessage message, RuntimeException cause) {
+        String error = String.valueOf(NestedExceptionUtils.getMostSpecificCause(cause).getMessage());
+        try {
+            jdbcTemplate.update(
+                    "INSERT INTO message_dead_letters (id, chat_id, sender_id, seq, send_at, content, error, dead_at) " +
+                    "VALUES (:id, :chatId, :senderId, :seq, :sendAt, :content, :error, :deadAt) ON CONFLICT (id) DO NOTHING",
+                    new MapSqlParameterSource()
+                            .addValue("id", message.getId())
+                            .addValue("chatId", message.getChatId())
+                            .addValue("senderId", message.getSenderId())
+                            .addValue("seq", message.getSeq())
+                            .addValue("sendAt", message.getSendAt())
+                            .addValue("content", message.getContent() == null ? null
+                                    : message.getContent().getBytes(StandardCharsets.UTF_8))
+                            .addValue("error", error.length() > 1000 ? error.substring(0, 1000) : error)
+                            .addValue("deadAt", LocalDateTime.now()));
+        } catch (RuntimeException ex) {
+            logger.error("Failed to dead-letter message {}, will retry", message.getId(), ex);
+            return false;
+        }
+        logger.error("Dead-lettered message {} (chat {}, seq {}) after {} attempts: {}",
+                message.getId(), message.getChatId(), message.getSeq(), message.getFailedAttempts(), error);
+        return true;
+    }
+
+    // Lỗi do DB/kết nối chứ không do dữ liệu của tin nhắn: thử lại không giới hạn, không tính vào max-attempts
+    private static boolean isOutage(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof DataAccessResourceFailureException
+                || ex instanceof CannotCreateTransactionException;
+    }
+
+    private void write(List<PendingMessage> batch) {
+        MapSqlParameterSource[] params = new MapSqlParameterSource[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMessage message = batch.get(i);
+            params[i] = new MapSqlParameterSource()
+                    .addValue("id", message.getId())
+                    .addValue("chatId", message.getChatId())
+                    .addValue("senderId", message.getSenderId())
+                    .addValue("content", message.getContent())
+                    .addValue("sendAt", message.getSendAt())
+                    .addValue("seq", message.getSeq());
+        }
+        // Bỏ qua (0 dòng) nếu user hoặc chat đã bị xóa sau khi tin nhắn được broadcast
+        int[] applied = jdbcTemplate.batchUpdate(
+                "INSERT INTO messages (id, chat_id, sender_id, content, send_at, seq) " +
+                "SELECT :id, :chatId, :senderId, :content, :sendAt, :seq " +
+                "WHERE EXISTS (SELECT 1 FROM users WHERE id = :senderId) " +
+                "AND EXISTS (SELECT 1 FROM chats WHERE id = :chatId) " +
+                "ON CONFLICT (id) DO NOTHING",
+                params);
+        int skipped = 0;
+        Set<String> chatIds = new HashSet<>();
+        for (int i = 0; i < applied.length; i++) {
+            if (applied[i] == 0) {
+                skipped++;
+            } else {
+                chatIds.add(batch.get(i).getChatId());
+            }
+        }
+        // ChatResponse trong cache chứa danh sách tin nhắn: evict sau khi commit, vì lần evict lúc gửi (MessageService)
+        // xảy ra trước khi tin được ghi và một lần đọc chen giữa có thể đã nạp lại chat chưa có tin này
+        Cache chats = cacheManager.getCache(CacheNames.CHATS);
+        chatIds.forEach(chats::evict);
+        if (skipped > 0) {
+            logger.warn("Skipped {} messages whose sender or chat no longer exists", skipped);
+        }
+        logger.debug("Persisted {} messages", batch.size() - skipped);
+    }
+
+    // Tin nhắn đã được cấp id, seq và broadcast, đang chờ ghi xuống DB
+    @Data
+    public static class PendingMessage {
+        private final String id;
+        private final String chatId;
+        private final String senderId;
+        private final String content;
+        private final LocalDateTime sendAt;
+        private final long seq;
+        // Số lần ghi riêng dòng này bị từ chối; chỉ truy cập khi giữ flushLock
+        private int failedAttempts;
+
+        int recordFailure() {
+            return ++failedAttempts;
+        }
+    }
+}
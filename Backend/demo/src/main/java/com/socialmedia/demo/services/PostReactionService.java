@@ -1,23 +1,30 @@
 package com.socialmedia.demo.services;
 
-import com.socialmedia.demo.entities.Post;
 import com.socialmedia.demo.entities.PostReaction;
-import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.entities.PostReactionCount;
+import com.socialmedia.demo.enums.ReactionType;
 import com.socialmedia.demo.exceptions.PostNotFoundException;
 import com.socialmedia.demo.exceptions.PostReactionNotFoundException;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.PostReactionMapper;
+import com.socialmedia.demo.projections.ReactionWriteResult;
+import com.socialmedia.demo.repositories.PostReactionCountRepository;
 import com.socialmedia.demo.repositories.PostReactionRepository;
 import com.socialmedia.demo.repositories.PostRepository;
 import com.socialmedia.demo.repositories.UserRepository;
 import com.socialmedia.demo.requests.PostReaction.PostReactionCreateRequest;
 import com.socialmedia.demo.responses.PostReactionResponse;
+import com.socialmedia.demo.responses.ReactionSummaryResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,57 +32,88 @@ import java.util.stream.Collectors;
 public class PostReactionService {
 
     private final PostReactionRepository postReactionRepository;
+    private final PostReactionCountRepository postReactionCountRepository;
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final PostReactionMapper postReactionMapper;
+    private final ReactionWriteBehind reactionWriteBehind;
+    private final TransactionTemplate transactionTemplate;
     // Giả sử bạn có một cách để lấy user ID của người dùng hiện tại, ví dụ từ SecurityContext
     // private final UserService userService; // Hoặc một cách khác để lấy user ID
 
-    @Transactional
+    // Khi bật write-behind, reaction chỉ được đưa vào bộ đệm và ghi xuống database theo batch;
+    // response khi đó không có id và user (chưa có dòng trong database)
     public PostReactionResponse createOrUpdateReaction(PostReactionCreateRequest request) { // Loại bỏ currentUserId
-        // Lấy userId từ request
-        String userId = request.getUserId();
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
-
-        Post post = postRepository.findById(request.getPostId())
-                .orElseThrow(() -> new PostNotFoundException("Post not found with id: " + request.getPostId()));
-
-        // Sử dụng userId từ request để tìm reaction hiện có
-        Optional<PostReaction> existingReactionOpt = postReactionRepository.findByUserIdAndPostId(userId, request.getPostId());
-
-        PostReaction postReaction;
-        if (existingReactionOpt.isPresent()) {
-            // Nếu đã reaction, cập nhật loại reaction
-            postReaction = existingReactionOpt.get();
-            // Kiểm tra xem user trong request có khớp với user của reaction không (tùy chọn, để bảo mật)
-            if (!postReaction.getUser().getId().equals(userId)) {
-                 // Có thể throw exception hoặc xử lý khác nếu user không khớp
-                 throw new SecurityException("User mismatch when updating reaction.");
-            }
-            postReaction.setReactionType(request.getReactionType());
-        } else {
-            // Nếu chưa reaction, tạo reaction mới
-            postReaction = postReactionMapper.toEntity(request); // Mapper vẫn bỏ qua user và post
-            postReaction.setUser(user); // Set user lấy được từ userId trong request
-            postReaction.setPost(post);
-            // reactionType đã được map từ request
+        if (request.getReactionType() != null
+                && reactionWriteBehind.submitPostReaction(request.getUserId(), request.getPostId(), request.getReactionType())) {
+            return PostReactionResponse.builder()
+                    .postId(request.getPostId())
+                    .reactionType(request.getReactionType())
+                    .createAt(LocalDateTime.now())
+                    .build();
         }
+        try {
+            return reactionWriteBehind.writeThroughPostReaction(request.getUserId(), request.getPostId(),
+                    () -> transactionTemplate.execute(status -> saveReaction(request)));
+        } catch (DataIntegrityViolationException ex) {
+            // Transaction đã rollback nên kiểm tra lại bằng truy vấn riêng để trả về đúng lỗi 404
+            throw missingReference(request.getUserId(), request.getPostId(), ex);
+        }
+    }
 
-        PostReaction savedReaction = postReactionRepository.save(postReaction);
-        return postReactionMapper.toResponse(savedReaction);
+    private PostReactionResponse saveReaction(PostReactionCreateRequest request) {
+        // Câu lệnh chỉ dùng id thay cho findById(user), findById(post), findByUserIdAndPostId và save.
+        // Đổi dưới khóa dòng trước để loại cũ cho bộ đếm là giá trị mới nhất; chỉ insert khi chưa có dòng, và nếu
+        // request đồng thời vừa insert trước (ràng buộc unique (post_id, user_id)) thì quay lại đổi dòng đó
+        String reactionType = request.getReactionType() != null ? request.getReactionType().name() : null;
+        ReactionWriteResult result = null;
+        while (result == null) {
+            result = postReactionRepository.updateReturningPrevious(request.getUserId(), request.getPostId(), reactionType)
+                    .or(() -> postReactionRepository.insertIfAbsent(
+                            request.getUserId(), request.getPostId(), reactionType, LocalDateTime.now()))
+                    .orElse(null);
+        }
+        updateCounts(request.getPostId(), toReactionType(result.getPreviousType()), request.getReactionType());
+        return PostReactionResponse.builder()
+                .id(String.valueOf(result.getId()))
+                .postId(request.getPostId())
+                .reactionType(request.getReactionType())
+                .createAt(result.getCreateAt())
+                .build();
     }
 
-    @Transactional
+    // Khi bật write-behind, việc xóa cũng đi qua bộ đệm (xóa reaction không tồn tại là no-op thay vì 404)
     public void deleteReaction(String userId, String postId) { // Thay currentUserId bằng userId
-        PostReaction reaction = postReactionRepository.findByUserIdAndPostId(userId, postId) // Sử dụng userId được truyền vào
+        if (reactionWriteBehind.submitPostReaction(userId, postId, null)) {
+            return;
+        }
+        reactionWriteBehind.writeThroughPostReaction(userId, postId,
+                () -> transactionTemplate.execute(status -> {
+                    removeReaction(userId, postId);
+                    return null;
+                }));
+    }
+
+    private void removeReaction(String userId, String postId) {
+        ReactionWriteResult deleted = postReactionRepository.deleteReturning(userId, postId)
                 .orElseThrow(() -> new PostReactionNotFoundException("Reaction not found for user " + userId + " on post " + postId));
 
         // Optional: Kiểm tra xem người dùng yêu cầu xóa có phải là chủ sở hữu reaction không
         // (Cần cơ chế xác thực để lấy ID người dùng hiện tại nếu logic này cần thiết)
         // Ví dụ: if (!reaction.getUser().getId().equals(authenticatedUserId)) { throw new AccessDeniedException(...) }
 
-        postReactionRepository.delete(reaction);
+        updateCounts(postId, toReactionType(deleted.getPreviousType()), null);
+    }
+
+    // Vi phạm khóa ngoại khi upsert nghĩa là user hoặc post không tồn tại
+    private RuntimeException missingReference(String userId, String postId, DataIntegrityViolationException ex) {
+        if (!userRepository.existsById(userId)) {
+            return new UserNotFoundException("User not found with id: " + userId);
+        }
+        if (!postRepository.existsById(postId)) {
+            return new PostNotFoundException("Post not found with id: " + postId);
+        }
+        return ex;
     }
 
     @Transactional(readOnly = true)
@@ -102,7 +140,55 @@ public class PostReactionService {
                 .collect(Collectors.toList());
     }
 
-    // Có thể thêm các phương thức khác nếu cần, ví dụ:
-    // - Lấy reaction cụ thể bằng ID
-    // - Đếm số lượng reaction theo từng loại cho một bài đăng
+    // Số lượng reaction theo từng loại và reaction của người dùng hiện tại, đọc từ bảng đếm
+    // (tối đa một dòng cho mỗi loại) thay vì tải toàn bộ reaction của bài đăng
+    @Transactional(readOnly = true)
+    public ReactionSummaryResponse getReactionSummary(String postId, String currentUserId) {
+        if (!postRepository.existsById(postId)) {
+            throw new PostNotFoundException("Post not found with id: " + postId);
+        }
+        Map<ReactionType, Long> counts = new EnumMap<>(ReactionType.class);
+        for (ReactionType type : ReactionType.values()) {
+            counts.put(type, 0L);
+        }
+        long total = 0;
+        for (PostReactionCount count : postReactionCountRepository.findByIdPostId(postId)) {
+            counts.put(count.getId().getReactionType(), count.getCount());
+            total += count.getCount();
+        }
+        ReactionType myReaction = null;
+        if (currentUserId != null) {
+            // Ưu tiên thay đổi chưa flush của chính người dùng (write-behind)
+            ReactionWriteBehind.Pending pending = reactionWriteBehind.pendingPostReaction(currentUserId, postId);
+            myReaction = pending != null ? pending.getReactionType()
+                    : postReactionRepository.findReactionType(currentUserId, postId).orElse(null);
+        }
+        return ReactionSummaryResponse.builder()
+                .targetId(postId)
+                .counts(counts)
+                .total(total)
+                .myReaction(myReaction)
+                .build();
+    }
+
+    private static ReactionType toReactionType(String value) {
+        return value != null ? ReactionType.valueOf(value) : null;
+    }
+
+    // Cập nhật bộ đếm trong cùng transaction: previous/current là null khi reaction vừa được tạo/xóa
+    private void updateCounts(String postId, ReactionType previous, ReactionType current) {
+        if (previous == current) {
+            return;
+        }
+        // Khóa các dòng đếm theo thứ tự enum như ReactionWriteBehind, để hai lần đổi ngược chiều
+        // (LIKE -> LOVE và LOVE -> LIKE) trên cùng bài đăng không deadlock
+        Map<ReactionType, Integer> deltas = new EnumMap<>(ReactionType.class);
+        if (previous != null) {
+            deltas.put(previous, -1);
+        }
+        if (current != null) {
+            deltas.put(current, 1);
+        }
+        deltas.forEach((type, delta) -> postReactionCountRepository.adjust(postId, type.name(), delta));
+    }
 }
\ No newline at end of file
@@ -1,22 +1,41 @@
 package com.socialmedia.demo.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmedia.demo.config.CacheNames;
 import com.socialmedia.demo.entities.Post;
 import com.socialmedia.demo.entities.User;
 import com.socialmedia.demo.enums.PrivacySetting;
 import com.socialmedia.demo.exceptions.PostNotFoundException;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.PostMapper;
+import com.socialmedia.demo.media.MediaStore;
+import com.socialmedia.demo.media.StoredMedia;
+import com.socialmedia.demo.pagination.KeysetCursor;
 import com.socialmedia.demo.repositories.PostRepository;
 import com.socialmedia.demo.repositories.UserRepository;
 import com.socialmedia.demo.requests.Post.PostCreateRequest;
 import com.socialmedia.demo.requests.Post.PostUpdateRequest;
+import com.socialmedia.demo.responses.CursorPage;
 import com.socialmedia.demo.responses.PostResponse;
+import com.socialmedia.demo.responses.SliceResponse;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -25,33 +44,107 @@ public class PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository; // Hoặc UserService nếu bạn muốn thêm logic phức tạp hơn
     private final PostMapper postMapper;
+    private final MediaStore mediaStore;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final FeedService feedService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
+
+    // Số bài đăng ghi ra trước mỗi lần flush output và dọn persistence context khi export
+    private static final int EXPORT_BATCH_SIZE = 500;
 
-    @Transactional
     public PostResponse createPost(PostCreateRequest request) {
-        User author = userRepository.findById(request.getAuthorId())
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + request.getAuthorId()));
+        try {
+            return transactionTemplate.execute(status -> insertPost(request));
+        } catch (DataIntegrityViolationException ex) {
+            // Transaction đã rollback nên kiểm tra lại bằng truy vấn riêng để trả về đúng lỗi 404
+            if (request.getAuthorId() == null || !userRepository.existsById(request.getAuthorId())) {
+                throw new UserNotFoundException("User not found with id: " + request.getAuthorId());
+            }
+            throw ex;
+        }
+    }
 
+    private PostResponse insertPost(PostCreateRequest request) {
         Post post = postMapper.toEntity(request);
-        post.setAuthor(author); // Thiết lập tác giả cho bài đăng
-
-        Post savedPost = postRepository.save(post);
+        // Chỉ cần khóa ngoại: proxy từ getReferenceById không truy vấn database,
+        // tác giả không tồn tại sẽ vi phạm khóa ngoại khi insert
+        post.setAuthor(userRepository.getReferenceById(request.getAuthorId())); // Thiết lập tác giả cho bài đăng
+        storeImage(post, request.getImageData(), request.getImageType());
+
+        // Flush để bài đăng có trong DB trước khi fan-out vào feed_entries
+        Post savedPost = postRepository.saveAndFlush(post);
+        feedService.onPostPublished(savedPost);
         return postMapper.toResponse(savedPost);
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.POSTS, key = "#postId")
     public PostResponse getPostById(String postId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new PostNotFoundException("Post not found with id: " + postId));
         return postMapper.toResponse(post);
     }
 
+    // Phân trang theo page/size, mới nhất trước
     @Transactional(readOnly = true)
-    public List<PostResponse> getAllPosts() {
-        List<Post> posts = postRepository.findAll();
-        // Lưu ý: Nên xem xét phân trang (Pagination) cho lượng dữ liệu lớn
-        return posts.stream()
-                .map(postMapper::toResponse)
-                .collect(Collectors.toList());
+    public SliceResponse<PostResponse> getAllPosts(int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), clampPageSize(size),
+                Sort.by(Sort.Direction.DESC, "createAt", "id"));
+        return SliceResponse.of(postRepository.findAllBy(pageRequest), postMapper::toResponse);
+    }
+
+    // Phân trang keyset theo (createAt, id), mới nhất trước; chi phí không tăng theo độ sâu trang
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getPostsByCursor(String cursor, int limit) {
+        int pageSize = clampPageSize(limit);
+        // Lấy thêm 1 dòng để biết còn trang tiếp theo hay không
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<Post> rows;
+        if (cursor == null) {
+            rows = postRepository.findAllByOrderByCreateAtDescIdDesc(fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = postRepository.findBefore(position.getTimestamp(), position.getId(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Post> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Post last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreateAt(), last.getId()).encode();
+        }
+        return CursorPage.<PostResponse>builder()
+                .items(page.stream().map(postMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Ghi toàn bộ bài đăng ra output dưới dạng NDJSON (mỗi dòng một PostResponse).
+     * Đọc qua cursor của JDBC theo từng lô fetch size và detach entity sau mỗi lô,
+     * nên bộ nhớ sử dụng không phụ thuộc vào kích thước bảng.
+     */
+    @Transactional(readOnly = true)
+    public long exportPosts(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Post> posts = postRepository.streamAll()) {
+            for (Post post : (Iterable<Post>) posts::iterator) {
+                out.write(objectMapper.writeValueAsBytes(postMapper.toResponse(post)));
+                out.write('\n');
+                if (++count % EXPORT_BATCH_SIZE == 0) {
+                    out.flush();
+                    entityManager.clear(); // Không giữ các post đã ghi trong persistence context
+                }
+            }
+        }
+        out.flush();
+        return count;
     }
 
     @Transactional(readOnly = true)
@@ -76,6 +169,7 @@ public class PostService {
 
 
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.POSTS, key = "#postId")
     public PostResponse updatePost(String postId, PostUpdateRequest request) {
         Post existingPost = postRepository.findById(postId)
                 .orElseThrow(() -> new PostNotFoundException("Post not found with id: " + postId));
@@ -83,8 +177,11 @@ public class PostService {
         // Kiểm tra xem authorId trong request có khớp với author của post hiện tại không (nếu cần)
         // Hoặc có thể thêm logic kiểm tra quyền sửa bài đăng ở đây
 
+        String previousAuthorId = existingPost.getAuthor().getId();
+        PrivacySetting previousPrivacy = existingPost.getPrivacySetting();
         // Sử dụng mapper để cập nhật các trường từ request vào existingPost
         postMapper.updateEntityFromRequest(request, existingPost);
+        storeImage(existingPost, request.getImageData(), request.getImageType());
 
         // Nếu request có authorId mới và khác authorId cũ, cập nhật lại author (cẩn thận với logic này)
         if (request.getAuthorId() != null && !request.getAuthorId().equals(existingPost.getAuthor().getId())) {
@@ -94,11 +191,13 @@ public class PostService {
         }
 
 
-        Post updatedPost = postRepository.save(existingPost);
+        Post updatedPost = postRepository.saveAndFlush(existingPost);
+        feedService.onPostUpdated(updatedPost, previousAuthorId, previousPrivacy);
         return postMapper.toResponse(updatedPost);
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.POSTS, key = "#postId")
     public void deletePost(String postId) {
         if (!postRepository.existsById(postId)) {
             throw new PostNotFoundException("Post not found with id: " + postId);
@@ -106,4 +205,19 @@ public class PostService {
         // Có thể thêm logic kiểm tra quyền xóa bài đăng ở đây
         postRepository.deleteById(postId);
     }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    // Ghi ảnh vào MediaStore, post chỉ giữ key/size/type
+    private void storeImage(Post post, byte[] imageData, String imageType) {
+        if (imageData == null || imageData.length == 0) {
+            return;
+        }
+        StoredMedia media = mediaStore.put(imageData, imageType);
+        post.setImageKey(media.getKey());
+        post.setImageSize(media.getSize());
+        post.setImageType(media.getContentType());
+    }
 }
\ No newline at end of file
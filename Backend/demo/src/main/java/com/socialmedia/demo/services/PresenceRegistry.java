@@ -0,0 +1,140 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.responses.PresenceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trạng thái online của user, chỉ trong bộ nhớ và chỉ dựa vào sự kiện connect/disconnect của session STOMP.
+ * User online khi có ít nhất một session; khi session cuối cùng đóng, user vẫn được coi là online thêm
+ * app.realtime.presence.offline-grace (tránh nhấp nháy khi client kết nối lại), hết thời gian đó mới chuyển
+ * offline. Mỗi lần chuyển trạng thái được broadcast tới /topic/presence/{userId}.
+ * Mỗi node chỉ biết các session kết nối vào chính nó: với app.websocket.broker=relay (nhiều node) user kết nối
+ * vào node khác bị báo offline ở node này, nên khi khởi động ở chế độ relay sẽ log WARN.
+ */
+@Component
+public class PresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration offlineGrace;
+
+    private final Map<String, UserPresence> users = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+
+    public PresenceRegistry(SimpMessagingTemplate messagingTemplate,
+                            @Value("${app.realtime.presence.offline-grace:10s}") Duration offlineGrace,
+                            @Value("${app.websocket.broker:simple}") String broker) {
+        this.messagingTemplate = messagingTemplate;
+        this.offlineGrace = offlineGrace;
+        if ("relay".equalsIgnoreCase(broker)) {
+            logger.warn("Presence is tracked in memory per node: with app.websocket.broker=relay, users connected "
+                    + "to other nodes are reported offline and their presence events are only published by their own node");
+        }
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        if (user != null) {
+            connected(StompHeaderAccessor.wrap(event.getMessage()).getSessionId(), user.getName());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    public void connected(String sessionId, String userId) {
+        sessionUsers.put(sessionId, userId);
+        boolean[] cameOnline = new boolean[1];
+        users.compute(userId, (id, presence) -> {
+            if (presence == null) {
+                cameOnline[0] = true;
+                presence = new UserPresence();
+            }
+            presence.sessions.add(sessionId);
+            presence.offlineSince = null;
+            return presence;
+        });
+        if (cameOnline[0]) {
+            publish(userId, true, LocalDateTime.now());
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        String userId = sessionUsers.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        users.computeIfPresent(userId, (id, presence) -> {
+            presence.sessions.remove(sessionId);
+            if (presence.sessions.isEmpty()) {
+                presence.offlineSince = LocalDateTime.now();
+            }
+            return presence;
+        });
+    }
+
+    // Chuyển offline các user đã hết thời gian chờ sau khi session cuối cùng đóng
+    @Scheduled(fixedDelayString = "${app.realtime.presence.sweep-interval-ms:1000}")
+    public void expireOffline() {
+        LocalDateTime deadline = LocalDateTime.now().minus(offlineGrace);
+        List<PresenceEvent> wentOffline = new ArrayList<>();
+        for (String userId : users.keySet()) {
+            users.computeIfPresent(userId, (id, presence) -> {
+                if (presence.sessions.isEmpty() && presence.offlineSince != null
+                        && !presence.offlineSince.isAfter(deadline)) {
+                    wentOffline.add(new PresenceEvent(id, false, presence.offlineSince));
+                    return null;
+                }
+                return presence;
+            });
+        }
+        wentOffline.forEach(event -> publish(event.getUserId(), false, event.getLastSeen()));
+    }
+
+    public boolean isOnline(String userId) {
+        return users.containsKey(userId);
+    }
+
+    public Map<String, Boolean> onlineStatus(Collection<String> userIds) {
+        Map<String, Boolean> status = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            status.put(userId, isOnline(userId));
+        }
+        return status;
+    }
+
+    private void publish(String userId, boolean online, LocalDateTime at) {
+        messagingTemplate.convertAndSend("/topic/presence/" + userId, new PresenceEvent(userId, online, at));
+    }
+
+    // Chỉ được đọc/ghi bên trong compute của map users
+    private static class UserPresence {
+        private final Set<String> sessions = new HashSet<>();
+        private LocalDateTime offlineSince;
+    }
+}
@@ -0,0 +1,72 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.repositories.CommentReactionCountRepository;
+import com.socialmedia.demo.repositories.PostReactionCountRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tính lại bộ đếm reaction từ các bảng reaction khi khởi động, chỉ khi cần: lần đầu triển khai (bảng đếm còn trống
+ * trong khi đã có reaction), khi ReactionUniquenessMigration vừa xóa reaction trùng, hoặc khi bật rõ ràng
+ * app.reactions.rebuild-counts=true (ví dụ sau khi write-behind mất delta vì process dừng đột ngột).
+ * Không chạy mỗi lần khởi động: trong rolling deploy các node khác vẫn ghi reaction. Vì vậy khi tính lại, bảng đếm bị
+ * khóa EXCLUSIVE suốt transaction: đọc vẫn được, còn adjust của node khác (cùng transaction với việc ghi reaction)
+ * chờ tới sau khi tính lại xong, nên không delta nào bị ghi đè bởi snapshot cũ.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactionCountBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionCountBackfill.class);
+
+    private final PostReactionCountRepository postReactionCountRepository;
+    private final CommentReactionCountRepository commentReactionCountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.reactions.rebuild-counts:false}")
+    private boolean forceRebuild;
+
+    public void reconcile(boolean duplicatesRemoved) {
+        if (forceRebuild || duplicatesRemoved || countsMissing()) {
+            rebuild();
+        }
+    }
+
+    // Tính lại toàn bộ trong một transaction; xóa trước để các loại không còn reaction nào về 0
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE post_reaction_counts, comment_reaction_counts IN EXCLUSIVE MODE");
+            rebuildPostCounts();
+            rebuildCommentCounts();
+        });
+    }
+
+    // Bảng đếm chưa từng được điền trong khi đã có reaction: chỉ các truy vấn EXISTS, không quét bảng reaction
+    private boolean countsMissing() {
+        return missing("post_reaction_counts", "post_reactions") || missing("comment_reaction_counts", "comment_reactions");
+    }
+
+    private boolean missing(String countTable, String reactionTable) {
+        Boolean missing = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM " + countTable + ") "
+                + "AND EXISTS (SELECT 1 FROM " + reactionTable + ")", Boolean.class);
+        return Boolean.TRUE.equals(missing);
+    }
+
+    private void rebuildPostCounts() {
+        postReactionCountRepository.deleteAllInBatch();
+        int rows = postReactionCountRepository.rebuildAll();
+        logger.info("Rebuilt {} post reaction counters", rows);
+    }
+
+    private void rebuildCommentCounts() {
+        commentReactionCountRepository.deleteAllInBatch();
+        int rows = commentReactionCountRepository.rebuildAll();
+        logger.info("Rebuilt {} comment reaction counters", rows);
+    }
+}
@@ -0,0 +1,54 @@
+package com.socialmedia.demo.services;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bảo đảm ràng buộc unique (target, user) trên post_reactions và comment_reactions.
+ * Trên database cũ, Hibernate (ddl-auto=update) không thêm được ràng buộc nếu đã có reaction trùng
+ * do race giữa findByUserIdAndPostId và save; khi đó runner này giữ lại reaction mới nhất của mỗi cặp,
+ * thêm ràng buộc, rồi tính lại bộ đếm reaction. Khi ràng buộc đã có thì chỉ tốn một truy vấn kiểm tra,
+ * và ReactionCountBackfill chỉ tính lại bộ đếm khi bảng đếm còn trống hoặc được bật rõ ràng.
+ * Chạy khi mọi singleton đã tạo xong (sau khi Hibernate cập nhật schema) nhưng trước khi web server và
+ * WebSocket broker khởi động, nên không request nào ghi reaction trước khi dữ liệu trùng được dọn và
+ * ràng buộc mà câu INSERT ... ON CONFLICT cần đã có.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactionUniquenessMigration implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionUniquenessMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReactionCountBackfill reactionCountBackfill;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int removed = ensureUnique("post_reactions", "post_id", "uk_post_reactions_post_user")
+                + ensureUnique("comment_reactions", "comment_id", "uk_comment_reactions_comment_user");
+        reactionCountBackfill.reconcile(removed > 0);
+    }
+
+    private int ensureUnique(String table, String column, String constraint) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ?)", Boolean.class, constraint);
+        if (Boolean.TRUE.equals(exists)) {
+            return 0;
+        }
+        Integer removed = transactionTemplate.execute(status -> {
+            int deleted = jdbcTemplate.update("DELETE FROM " + table + " r USING " + table + " newer "
+                    + "WHERE newer." + column + " = r." + column + " AND newer.user_id = r.user_id AND newer.id > r.id");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + constraint
+                    + " UNIQUE (" + column + ", user_id)");
+            return deleted;
+        });
+        logger.info("Added {} after removing {} duplicate reactions from {}", constraint, removed, table);
+        return removed != null ? removed : 0;
+    }
+}
@@ -0,0 +1,358 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.enums.ReactionType;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind cho reaction của post và comment (bật bằng app.reactions.write-behind.enabled=true).
+ * Mỗi lần bấm chỉ ghi vào bộ đệm trong bộ nhớ, gộp theo cặp (user, post/comment): lần bấm sau thay lần bấm trước,
+ * nên một bài viral với hàng nghìn lần đổi qua lại chỉ còn một dòng cho mỗi người khi flush.
+ * Bộ đệm được flush định kỳ (app.reactions.write-behind.flush-interval-ms) theo batch bằng
+ * UPDATE ... RETURNING rồi INSERT ... ON CONFLICT DO NOTHING (thử lại nếu request khác vừa tạo dòng) / DELETE ... RETURNING,
+ * và bộ đếm reaction được cộng dồn một lần cho mỗi (target, loại) từ loại cũ mà các câu lệnh đó trả về.
+ *
+ * Thứ tự: các lần flush chạy tuần tự dưới một lock, một batch lỗi được trả lại hàng đợi nhưng không đè lên
+ * giá trị mới hơn đến trong lúc flush, nên trạng thái cuối cùng luôn là lần bấm sau cùng của người dùng.
+ * Khi bộ đệm đầy thread gọi tự flush, và nếu vẫn không nhận được thì submit trả về false để service ghi
+ * đồng bộ qua writeThrough*: lần ghi đó cũng chạy dưới lock của flush và bỏ thay đổi cũ hơn của cùng cặp
+ * còn trong bộ đệm, nên không batch nào (đang ghi hay được trả lại hàng đợi) đè lên nó sau đó.
+ *
+ * Độ bền: bộ đệm chỉ nằm trong bộ nhớ. Tắt ứng dụng bình thường sẽ flush hết, nhưng nếu process chết đột ngột
+ * (kill -9, OOM, mất máy) thì mất các thay đổi chưa flush: thường là những lần bấm trong
+ * app.reactions.write-behind.flush-interval-ms gần nhất, tối đa app.reactions.write-behind.max-pending cặp
+ * khi database đang lỗi. Reaction mất đi là chấp nhận được cho tính năng này; đừng bật write-behind cho dữ liệu
+ * cần bền vững ngay khi trả response.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactionWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionWriteBehind.class);
+
+    private static final Target POSTS = new Target("post_reactions", "post_id", "posts", "post_reaction_counts");
+    private static final Target COMMENTS = new Target("comment_reactions", "comment_id", "comments", "comment_reaction_counts");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Key, Pending> pendingPostReactions = new ConcurrentHashMap<>();
+    private final Map<Key, Pending> pendingCommentReactions = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Value("${app.reactions.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.reactions.write-behind.max-batch-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${app.reactions.write-behind.max-pending:100000}")
+    private int maxPending = 100000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // reactionType null nghĩa là xóa reaction. Trả về false nếu write-behind tắt hoặc bộ đệm không nhận thêm được
+    public boolean submitPostReaction(String userId, String postId, ReactionType reactionType) {
+        return submit(pendingPostReactions, new Key(userId, postId), reactionType);
+    }
+
+    public boolean submitCommentReaction(String userId, String commentId, ReactionType reactionType) {
+        return submit(pendingCommentReactions, new Key(userId, commentId), reactionType);
+    }
+
+    // Thay đổi chưa flush của user trên post (null nếu không có), để người dùng thấy ngay reaction của chính mình
+    public Pending pendingPostReaction(String userId, String postId) {
+        return pendingPostReactions.get(new Key(userId, postId));
+    }
+
+    public Pending pendingCommentReaction(String userId, String commentId) {
+        return pendingCommentReactions.get(new Key(userId, commentId));
+    }
+
+    // Ghi đồng bộ (write-behind tắt hoặc bộ đệm không nhận): khi bật thì chạy dưới flushLock để không có
+    // batch nào đang ghi cùng lúc, và bỏ thay đổi còn trong bộ đệm của cặp này vì nó cũ hơn lần ghi hiện tại
+    public <T> T writeThroughPostReaction(String userId, String postId, Supplier<T> write) {
+        return writeThrough(pendingPostReactions, new Key(userId, postId), write);
+    }
+
+    public <T> T writeThroughCommentReaction(String userId, String commentId, Supplier<T> write) {
+        return writeThrough(pendingCommentReactions, new Key(userId, commentId), write);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reactions.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flush(POSTS, pendingPostReactions);
+            flush(COMMENTS, pendingCommentReactions);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!pendingPostReactions.isEmpty() || !pendingCommentReactions.isEmpty()) {
+            flush();
+        }
+    }
+
+    private <T> T writeThrough(Map<Key, Pending> pending, Key key, Supplier<T> write) {
+        if (!enabled) {
+            return write.get();
+        }
+        flushLock.lock();
+        try {
+            pending.remove(key);
+            return write.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean submit(Map<Key, Pending> pending, Key key, ReactionType reactionType) {
+        if (!enabled) {
+            return false;
+        }
+        if (tryEnqueue(pending, key, reactionType)) {
+            return true;
+        }
+        // Bộ đệm đầy: thread gọi flush luôn (backpressure) rồi thử lại một lần
+        flush();
+        return tryEnqueue(pending, key, reactionType);
+    }
+
+    private boolean tryEnqueue(Map<Key, Pending> pending, Key key, ReactionType reactionType) {
+        // Ghi đè một cặp đã có trong bộ đệm không làm bộ đệm lớn thêm nên luôn được nhận
+        if (pendingPostReactions.size() + pendingCommentReactions.size() >= maxPending && !pending.containsKey(key)) {
+            return false;
+        }
+        pending.put(key, new Pending(reactionType));
+        return true;
+    }
+
+    private void flush(Target target, Map<Key, Pending> pending) {
+        Map<Key, Pending> batch;
+        do {
+            batch = drain(pending);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                Map<Key, Pending> current = batch;
+                transactionTemplate.executeWithoutResult(status -> write(target, current));
+            } catch (RuntimeException ex) {
+                // Trả lại hàng đợi; giá trị mới hơn đến trong lúc flush được giữ nguyên
+                batch.forEach(pending::putIfAbsent);
+                logger.error("Failed to flush {} pending changes to {}, will retry", batch.size(), target.table, ex);
+                return;
+            }
+        } while (batch.size() >= maxBatchSize);
+    }
+
+    private Map<Key, Pending> drain(Map<Key, Pending> pending) {
+        Map<Key, Pending> batch = new LinkedHashMap<>();
+        for (Map.Entry<Key, Pending> entry : pending.entrySet()) {
+            if (batch.size() >= maxBatchSize) {
+                break;
+            }
+            // Chỉ lấy nếu giá trị chưa bị thay trong lúc duyệt; giá trị mới sẽ vào batch sau
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    private void write(Target target, Map<Key, Pending> batch) {
+        Map<Key, ReactionType> upserts = new LinkedHashMap<>();
+        List<Key> deletes = new ArrayList<>();
+        batch.forEach((key, change) -> {
+            if (change.getReactionType() != null) {
+                upserts.put(key, change.getReactionType());
+            } else {
+                deletes.add(key);
+            }
+        });
+
+        // Cộng dồn thay đổi bộ đếm theo (target, loại); TreeMap để các node khóa dòng đếm theo cùng thứ tự.
+        // Delta chỉ lấy từ loại cũ mà chính câu lệnh ghi trả về (RETURNING), không từ một lần đọc trước đó,
+        // nên dòng do node khác tạo/xóa đồng thời vẫn được tính đúng
+        Map<String, Map<ReactionType, Long>> deltas = new TreeMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        while (!upserts.isEmpty()) {
+            updateExisting(target, upserts, deltas);
+            if (upserts.isEmpty()) {
+                break;
+            }
+            insertMissing(target, upserts, now, deltas);
+            if (upserts.isEmpty()) {
+                break;
+            }
+            // Còn lại: hoặc request khác vừa tạo dòng (vòng sau update được), hoặc user/target đã bị xóa (bỏ qua)
+            upserts.keySet().retainAll(stillReferenced(target, upserts.keySet()));
+        }
+        if (!deletes.isEmpty()) {
+            deleteExisting(target, deletes, deltas);
+        }
+
+        List<MapSqlParameterSource> counterUpdates = new ArrayList<>();
+        deltas.forEach((targetId, byType) -> byType.forEach((type, delta) -> {
+            if (delta != 0) {
+                counterUpdates.add(new MapSqlParameterSource()
+                        .addValue("targetId", targetId)
+                        .addValue("reactionType", type.name())
+                        .addValue("delta", delta));
+            }
+        }));
+        if (!counterUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO " + target.counterTable + " (" + target.column + ", reaction_type, count) " +
+                    "VALUES (:targetId, :reactionType, GREATEST(:delta, 0)) " +
+                    "ON CONFLICT (" + target.column + ", reaction_type) " +
+                    "DO UPDATE SET count = GREATEST(" + target.counterTable + ".count + :delta, 0)",
+                    counterUpdates.toArray(new MapSqlParameterSource[0]));
+        }
+        logger.debug("Flushed {} reaction changes to {}", batch.size(), target.table);
+    }
+
+    // Đổi loại của các dòng đã có; loại cũ đọc trong subquery FOR UPDATE (giá trị mới nhất dưới khóa dòng),
+    // khóa theo thứ tự id để hai node flush cùng lúc không deadlock. Cặp đã ghi được bỏ khỏi upserts
+    private void updateExisting(Target target, Map<Key, ReactionType> upserts, Map<String, Map<ReactionType, Long>> deltas) {
+        List<Object[]> rows = new ArrayList<>(upserts.size());
+        upserts.forEach((key, type) -> rows.add(new Object[]{key.getUserId(), key.getTargetId(), type.name()}));
+        jdbcTemplate.query(
+                "UPDATE " + target.table + " r SET reaction_type = locked.new_type " +
+                "FROM (SELECT c.id, c.reaction_type AS previous_type, v.new_type FROM " + target.table + " c " +
+                "      JOIN (VALUES :rows) AS v (user_id, target_id, new_type) " +
+                "      ON c.user_id = v.user_id AND c." + target.column + " = v.target_id " +
+                "      ORDER BY c.id FOR UPDATE OF c) locked " +
+                "WHERE r.id = locked.id " +
+                "RETURNING r.user_id, r." + target.column + ", locked.previous_type",
+                new MapSqlParameterSource("rows", rows),
+                rs -> {
+                    Key key = new Key(rs.getString(1), rs.getString(2));
+                    addDelta(deltas, key.getTargetId(), toType(rs.getString(3)), -1);
+                    addDelta(deltas, key.getTargetId(), upserts.remove(key), 1);
+                });
+    }
+
+    // Tạo dòng cho các cặp chưa có; ON CONFLICT DO NOTHING nên cặp vừa được request khác tạo sẽ không có trong
+    // RETURNING và được update ở vòng sau. Bỏ qua (không tạo) nếu user hoặc target đã bị xóa trước khi flush
+    private void insertMissing(Target target, Map<Key, ReactionType> upserts, LocalDateTime createAt,
+                               Map<String, Map<ReactionType, Long>> deltas) {
+        List<Object[]> rows = new ArrayList<>(upserts.size());
+        upserts.forEach((key, type) -> rows.add(new Object[]{key.getUserId(), key.getTargetId(), type.name()}));
+        jdbcTemplate.query(
+                "INSERT INTO " + target.table + " (user_id, " + target.column + ", reaction_type, create_at) " +
+                "SELECT v.user_id, v.target_id, v.new_type, :createAt FROM (VALUES :rows) AS v (user_id, target_id, new_type) " +
+                "WHERE EXISTS (SELECT 1 FROM users WHERE id = v.user_id) " +
+                "AND EXISTS (SELECT 1 FROM " + target.parentTable + " WHERE id = v.target_id) " +
+                "ON CONFLICT (user_id, " + target.column + ") DO NOTHING " +
+                "RETURNING user_id, " + target.column,
+                new MapSqlParameterSource("rows", rows).addValue("createAt", createAt),
+                rs -> {
+                    Key key = new Key(rs.getString(1), rs.getString(2));
+                    addDelta(deltas, key.getTargetId(), upserts.remove(key), 1);
+                });
+    }
+
+    // Xóa và lấy loại của chính các dòng vừa xóa; cặp không còn dòng nào thì không đổi bộ đếm
+    private void deleteExisting(Target target, List<Key> deletes, Map<String, Map<ReactionType, Long>> deltas) {
+        List<Object[]> rows = new ArrayList<>(deletes.size());
+        for (Key key : deletes) {
+            rows.add(new Object[]{key.getUserId(), key.getTargetId()});
+        }
+        jdbcTemplate.query(
+                "DELETE FROM " + target.table + " r " +
+                "USING (SELECT c.id FROM " + target.table + " c " +
+                "       JOIN (VALUES :rows) AS v (user_id, target_id) " +
+                "       ON c.user_id = v.user_id AND c." + target.column + " = v.target_id " +
+                "       ORDER BY c.id FOR UPDATE OF c) locked " +
+                "WHERE r.id = locked.id " +
+                "RETURNING r." + target.column + ", r.reaction_type",
+                new MapSqlParameterSource("rows", rows),
+                rs -> {
+                    addDelta(deltas, rs.getString(1), toType(rs.getString(2)), -1);
+                });
+    }
+
+    // Các cặp mà user và target vẫn còn tồn tại
+    private Set<Key> stillReferenced(Target target, Set<Key> keys) {
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            rows.add(new Object[]{key.getUserId(), key.getTargetId()});
+        }
+        Set<Key> referenced = new HashSet<>();
+        jdbcTemplate.query(
+                "SELECT v.user_id, v.target_id FROM (VALUES :rows) AS v (user_id, target_id) " +
+                "WHERE EXISTS (SELECT 1 FROM users WHERE id = v.user_id) " +
+                "AND EXISTS (SELECT 1 FROM " + target.parentTable + " WHERE id = v.target_id)",
+                new MapSqlParameterSource("rows", rows),
+                rs -> {
+                    referenced.add(new Key(rs.getString(1), rs.getString(2)));
+                });
+        return referenced;
+    }
+
+    private static ReactionType toType(String type) {
+        return type == null ? null : ReactionType.valueOf(type);
+    }
+
+    private static void addDelta(Map<String, Map<ReactionType, Long>> deltas, String targetId, ReactionType type, long delta) {
+        if (type == null) {
+            return;
+        }
+        deltas.computeIfAbsent(targetId, id -> new EnumMap<>(ReactionType.class)).merge(type, delta, Long::sum);
+    }
+
+    @Data
+    private static class Key {
+        private final String userId;
+        private final String targetId;
+    }
+
+    // Thay đổi đang chờ flush; reactionType null là xóa
+    @Data
+    public static class Pending {
+        private final ReactionType reactionType;
+    }
+
+    private static class Target {
+        private final String table;
+        private final String column;
+        private final String parentTable;
+        private final String counterTable;
+
+        private Target(String table, String column, String parentTable, String counterTable) {
+            this.table = table;
+            this.column = column;
+            this.parentTable = parentTable;
+            this.counterTable = counterTable;
+        }
+    }
+}
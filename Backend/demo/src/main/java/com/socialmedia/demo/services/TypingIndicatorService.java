@@ -0,0 +1,133 @@
+package com.socialmedia.demo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.socialmedia.demo.responses.TypingEvent;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ báo "đang gõ" hoàn toàn trong bộ nhớ, không qua MessageService hay database.
+ * Client có thể gửi một frame cho mỗi phím bấm; "đang gõ" (bắt đầu hay vẫn gõ) được broadcast tối đa một lần mỗi
+ * app.realtime.typing.min-interval cho mỗi (chat, user). "Ngừng gõ" luôn được broadcast đúng một lần sau một lần
+ * "đang gõ" để người nhận không kẹt ở trạng thái cũ, nên gõ/ngừng liên tục cũng chỉ tạo tối đa hai sự kiện mỗi khoảng.
+ * Trạng thái tự hết hạn sau app.realtime.typing.ttl; khi một trạng thái "đang gõ" hết hạn, bị đẩy khỏi bộ nhớ
+ * hoặc session của user đóng, "ngừng gõ" được broadcast thay cho client, nên người nhận không kẹt ở "đang gõ"
+ * khi client mất kết nối giữa chừng.
+ */
+@Service
+public class TypingIndicatorService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long minIntervalNanos;
+    // Key (chat, user) -> lần broadcast cuối cùng
+    private final Cache<TypingKey, LastBroadcast> lastBroadcasts;
+    // userId -> các chat đang có trạng thái của user, để dọn khi session đóng mà không phải duyệt cả cache
+    private final Map<String, Set<String>> chatsByUser = new ConcurrentHashMap<>();
+
+    public TypingIndicatorService(SimpMessagingTemplate messagingTemplate,
+                                  @Value("${app.realtime.typing.min-interval:2s}") Duration minInterval,
+                                  @Value("${app.realtime.typing.ttl:10s}") Duration ttl,
+                                  @Value("${app.realtime.typing.max-size:100000}") long maxSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.minIntervalNanos = minInterval.toNanos();
+        this.lastBroadcasts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                // Hết hạn đúng lúc (không đợi lần truy cập cache tiếp theo) để "ngừng gõ" được gửi kịp thời
+                .scheduler(Scheduler.systemScheduler())
+                // Chạy nguyên tử với việc bỏ entry, nên một lần "đang gõ" mới của cùng cặp luôn đến sau "ngừng gõ" này
+                .evictionListener(this::evicted)
+                .build();
+    }
+
+    // Trả về true nếu sự kiện được broadcast, false nếu bị gộp/giới hạn tần suất
+    public boolean typing(String chatId, String userId, boolean typing) {
+        TypingKey key = new TypingKey(chatId, userId);
+        long now = System.nanoTime();
+        boolean[] publish = new boolean[1];
+        lastBroadcasts.asMap().compute(key, (k, last) -> {
+            // "Ngừng gõ" chỉ cần khi lần broadcast trước là "đang gõ"; "đang gõ" luôn theo min-interval
+            boolean due = typing
+                    ? last == null || now - last.atNanos >= minIntervalNanos
+                    : last != null && last.typing;
+            if (due) {
+                publish[0] = true;
+                if (last == null) {
+                    chatsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(chatId);
+                }
+                return new LastBroadcast(typing, now);
+            }
+            return last;
+        });
+        if (publish[0]) {
+            broadcast(chatId, userId, typing);
+        }
+        return publish[0];
+    }
+
+    // Session đóng: bỏ trạng thái của user trong mọi chat và gửi "ngừng gõ" cho những chat đang "đang gõ"
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        Set<String> chatIds = chatsByUser.remove(user.getName());
+        if (chatIds == null) {
+            return;
+        }
+        for (String chatId : chatIds) {
+            LastBroadcast last = lastBroadcasts.asMap().remove(new TypingKey(chatId, user.getName()));
+            if (last != null && last.typing) {
+                broadcast(chatId, user.getName(), false);
+            }
+        }
+    }
+
+    // Hết hạn hoặc bị đẩy ra vì cache đầy
+    private void evicted(TypingKey key, LastBroadcast last, RemovalCause cause) {
+        if (key == null) {
+            return;
+        }
+        chatsByUser.computeIfPresent(key.getUserId(), (id, chatIds) -> {
+            chatIds.remove(key.getChatId());
+            return chatIds.isEmpty() ? null : chatIds;
+        });
+        if (last != null && last.typing) {
+            broadcast(key.getChatId(), key.getUserId(), false);
+        }
+    }
+
+    private void broadcast(String chatId, String userId, boolean typing) {
+        messagingTemplate.convertAndSend("/topic/chats/" + chatId + "/typing", new TypingEvent(chatId, userId, typing));
+    }
+
+    @Data
+    private static class TypingKey {
+        private final String chatId;
+        private final String userId;
+    }
+
+    private static class LastBroadcast {
+        private final boolean typing;
+        private final long atNanos;
+
+        private LastBroadcast(boolean typing, long atNanos) {
+            this.typing = typing;
+            this.atNanos = atNanos;
+        }
+    }
+}
@@ -1,19 +1,37 @@
 package com.socialmedia.demo.services;
 
+import com.socialmedia.demo.config.CacheNames;
 import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.ROLE;
 import com.socialmedia.demo.exceptions.UserNotFoundException;
 import com.socialmedia.demo.mappers.UserMapper;
+import com.socialmedia.demo.media.MediaStore;
+import com.socialmedia.demo.media.StoredMedia;
+import com.socialmedia.demo.pagination.KeysetCursor;
 import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.security.TokenVersionCache;
 import com.socialmedia.demo.requests.User.UserCreateRequest;
 import com.socialmedia.demo.requests.User.UserUpdateRequest;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.SliceResponse;
 import com.socialmedia.demo.responses.UserResponse;
+import com.socialmedia.demo.responses.UserSummary;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Cần thiết cho việc mã hóa mật khẩu
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +42,12 @@ public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder; // Inject PasswordEncoder
+    private final MediaStore mediaStore;
+    private final TokenVersionCache tokenVersionCache;
+    private final CacheManager cacheManager;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
 
     @Transactional
     public UserResponse createUser(UserCreateRequest request) {
@@ -44,6 +68,7 @@ public class UserService {
     }
 
     @Transactional(readOnly = true) // Giao dịch chỉ đọc, tối ưu hiệu năng
+    @Cacheable(cacheNames = CacheNames.USERS, key = "#userId")
     public UserResponse getUserById(String userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
@@ -65,16 +90,46 @@ public class UserService {
     }
 
 
+    // Phân trang theo page/size, người dùng mới nhất trước
+    @Transactional(readOnly = true)
+    public SliceResponse<UserResponse> getAllUsers(int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), clampPageSize(size),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        return SliceResponse.of(userRepository.findAllBy(pageRequest), userMapper::toResponse);
+    }
+
+    // Phân trang keyset theo (createdAt, id), người dùng mới nhất trước
     @Transactional(readOnly = true)
-    public List<UserResponse> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        return users.stream()
-                .map(userMapper::toResponse)
-                .collect(Collectors.toList());
-        // Lưu ý: Nên xem xét sử dụng phân trang (Pagination) cho lượng dữ liệu lớn
+    public CursorPage<UserResponse> getUsersByCursor(String cursor, int limit) {
+        int pageSize = clampPageSize(limit);
+        // Lấy thêm 1 dòng để biết còn trang tiếp theo hay không
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<User> rows;
+        if (cursor == null) {
+            rows = userRepository.findAllByOrderByCreatedAtDescIdDesc(fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = userRepository.findBefore(Timestamp.valueOf(position.getTimestamp()), position.getId(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<User> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            User last = page.get(page.size() - 1);
+            // createdAt là java.util.Date; Timestamp giữ nguyên phần nano khi đọc từ DB
+            nextCursor = new KeysetCursor(Timestamp.from(last.getCreatedAt().toInstant()).toLocalDateTime(),
+                    last.getId()).encode();
+        }
+        return CursorPage.<UserResponse>builder()
+                .items(page.stream().map(userMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId")
     public UserResponse updateUser(String userId, UserUpdateRequest request) {
         User existingUser = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
@@ -84,23 +139,63 @@ public class UserService {
              throw new DataIntegrityViolationException("Username already exists: " + request.getUsername());
         }
 
+        ROLE previousRole = existingUser.getRole();
+        UserSummary previousSummary = userMapper.toSummary(existingUser);
         // Sử dụng mapper để cập nhật các trường từ request vào existingUser
         userMapper.updateEntityFromRequest(request, existingUser);
 
+        // Ghi avatar/ảnh bìa mới vào MediaStore, row chỉ giữ key/size/type
+        if (request.getAvatar() != null && request.getAvatar().length > 0) {
+            StoredMedia avatar = mediaStore.put(request.getAvatar(), request.getAvatarType());
+            existingUser.setAvatarKey(avatar.getKey());
+            existingUser.setAvatarSize(avatar.getSize());
+            existingUser.setAvatarType(avatar.getContentType());
+        }
+        if (request.getCoverPicture() != null && request.getCoverPicture().length > 0) {
+            StoredMedia cover = mediaStore.put(request.getCoverPicture(), request.getCoverPictureType());
+            existingUser.setCoverPictureKey(cover.getKey());
+            existingUser.setCoverPictureSize(cover.getSize());
+            existingUser.setCoverPictureType(cover.getContentType());
+        }
+
         // Xử lý cập nhật mật khẩu nếu có (cần mã hóa)
-         if (request.getPassword() != null && !request.getPassword().isEmpty()) {
+         boolean passwordChanged = request.getPassword() != null && !request.getPassword().isEmpty();
+         if (passwordChanged) {
              existingUser.setPassword(passwordEncoder.encode(request.getPassword()));
         }
 
+        // Đổi mật khẩu hoặc role: thu hồi các token đã phát hành (role nằm trong token)
+        if (passwordChanged || existingUser.getRole() != previousRole) {
+            existingUser.setTokenVersion(existingUser.getTokenVersion() + 1);
+            tokenVersionCache.invalidate(userId);
+        }
+
         User updatedUser = userRepository.save(existingUser);
+        // Post, comment và chat trong cache nhúng UserSummary (tên, avatar) của tác giả/thành viên: đổi các trường này
+        // thì xóa hai vùng như deleteUser (áp dụng sau khi commit); đổi mật khẩu hay role thì không cần
+        if (!previousSummary.equals(userMapper.toSummary(updatedUser))) {
+            cacheManager.getCache(CacheNames.POSTS).clear();
+            cacheManager.getCache(CacheNames.CHATS).clear();
+        }
         return userMapper.toResponse(updatedUser);
     }
 
     @Transactional
+    // Xóa user cũng xóa (cascade) bài đăng và tư cách thành viên chat của họ; thao tác hiếm nên xóa hết hai vùng này
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheNames.USERS, key = "#userId"),
+        @CacheEvict(cacheNames = CacheNames.POSTS, allEntries = true),
+        @CacheEvict(cacheNames = CacheNames.CHATS, allEntries = true)
+    })
     public void deleteUser(String userId) {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException("User not found with id: " + userId);
         }
         userRepository.deleteById(userId);
+        tokenVersionCache.invalidate(userId); // Token của user đã xóa không còn hợp lệ
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
     }
-}
\ No newline at end of file
+}
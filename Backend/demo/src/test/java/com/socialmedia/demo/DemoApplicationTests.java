@@ -2,10 +2,17 @@ package com.socialmedia.demo;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class DemoApplicationTests {
 
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
 	@Test
 	void contextLoads() {
 	}
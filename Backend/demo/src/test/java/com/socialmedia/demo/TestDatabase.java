@@ -0,0 +1,67 @@
+package com.socialmedia.demo;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Database riêng cho các test @SpringBootTest, thay cho datasource trong application.properties (database thật):
+ * mặc định một Postgres nhúng (zonky) khởi động một lần cho cả JVM test, schema tạo lại bởi Hibernate.
+ * Đặt TEST_DATASOURCE_URL (kèm TEST_DATASOURCE_USERNAME/TEST_DATASOURCE_PASSWORD) để dùng một Postgres dùng riêng
+ * cho test, ví dụ service container trên CI hoặc khi chạy dưới quyền root (Postgres nhúng không khởi động được).
+ *
+ * <pre>
+ * &#64;DynamicPropertySource
+ * static void datasource(DynamicPropertyRegistry registry) {
+ *     TestDatabase.register(registry);
+ * }
+ * </pre>
+ */
+public final class TestDatabase {
+
+    private static EmbeddedPostgres embedded;
+
+    private TestDatabase() {
+    }
+
+    public static void register(DynamicPropertyRegistry registry) {
+        String url = System.getenv("TEST_DATASOURCE_URL");
+        if (url != null && !url.isBlank()) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> env("TEST_DATASOURCE_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> env("TEST_DATASOURCE_PASSWORD", ""));
+        } else {
+            EmbeddedPostgres postgres = embedded();
+            registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+            registry.add("spring.datasource.username", () -> "postgres");
+            registry.add("spring.datasource.password", () -> "");
+        }
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create");
+        registry.add("app.media.migrate-legacy-blobs", () -> "false");
+    }
+
+    private static synchronized EmbeddedPostgres embedded() {
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start embedded Postgres; set TEST_DATASOURCE_URL instead", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    embedded.close();
+                } catch (IOException ignored) {
+                    // JVM đang tắt, thư mục tạm của Postgres nhúng sẽ bị bỏ lại
+                }
+            }));
+        }
+        return embedded;
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,220 @@
+package com.socialmedia.demo.config;
+
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.monitoring.QueryMetrics;
+import com.socialmedia.demo.monitoring.QueryMetricsChannelInterceptor;
+import com.socialmedia.demo.monitoring.WebSocketMetrics;
+import com.socialmedia.demo.repositories.UserFriendRepository;
+import com.socialmedia.demo.security.AuthenticatedUser;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import com.socialmedia.demo.security.StompAuthChannelInterceptor;
+import com.socialmedia.demo.security.TokenVersionCache;
+import com.socialmedia.demo.services.ChatMembershipCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hai node chạy WebSocketConfig ở chế độ relay, cùng nối tới một broker Artemis nhúng (STOMP).
+ * Client kết nối vào node B phải nhận được tin nhắn mà node A gửi lên /topic/chats/{chatId}.
+ */
+class StompBrokerRelayMultiNodeTest {
+
+    private static final String TOKEN = "token-of-user-1";
+
+    private static EmbeddedActiveMQ broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startBrokerAndNodes() throws Exception {
+        int stompPort = freePort();
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + stompPort
+                + "?protocols=STOMP;multicastPrefix=/topic/;anycastPrefix=/queue/");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+
+        nodeA = startNode(stompPort);
+        nodeB = startNode(stompPort);
+        awaitRelayConnected(nodeA);
+        awaitRelayConnected(nodeB);
+    }
+
+    @AfterAll
+    static void stopAll() throws Exception {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @Test
+    void messageSentOnOneNodeReachesSubscriberOnAnotherNode() throws Exception {
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient.setTaskScheduler(receiptScheduler);
+        String url = "ws://localhost:" + port(nodeB) + "/ws/websocket";
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + TOKEN);
+        StompSession session = stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders,
+                        new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.setAutoReceipt(true);
+        session.subscribe("/topic/chats/chat-1", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "broker did not confirm the subscription");
+
+        nodeA.getBean(SimpMessagingTemplate.class)
+                .convertAndSend("/topic/chats/chat-1", Map.of("content", "hello from node A"));
+
+        Map<?, ?> message = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(message, "subscriber on node B did not receive the message sent on node A");
+        assertEquals("hello from node A", message.get("content"));
+        session.disconnect();
+        receiptScheduler.shutdown();
+    }
+
+    private static ConfigurableApplicationContext startNode(int stompPort) {
+        // Truyền qua tham số dòng lệnh để ghi đè giá trị trong application.properties
+        return new SpringApplicationBuilder(RelayNode.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--app.websocket.broker=relay",
+                "--app.websocket.relay.host=127.0.0.1",
+                "--app.websocket.relay.port=" + stompPort);
+    }
+
+    private static void awaitRelayConnected(ConfigurableApplicationContext node) throws InterruptedException {
+        AbstractBrokerMessageHandler relay = node.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(relay.isBrokerAvailable(), "relay did not connect to the broker");
+    }
+
+    private static int port(ConfigurableApplicationContext node) {
+        return ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Chỉ phần web + WebSocket của ứng dụng, không cần database: JWT, thành viên chat và bạn bè được giả lập
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            PropertyPlaceholderAutoConfiguration.class,
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class,
+            WebSocketMessagingAutoConfiguration.class
+    })
+    @Import({WebSocketConfig.class, StompAuthChannelInterceptor.class,
+            QueryMetricsChannelInterceptor.class, QueryMetrics.class, WebSocketMetrics.class})
+    static class RelayNode {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JwtTokenProvider jwtTokenProvider() {
+            JwtTokenProvider tokenProvider = mock(JwtTokenProvider.class);
+            when(tokenProvider.authenticate(TOKEN)).thenReturn(new AuthenticatedUser("user-1", ROLE.USER, 0));
+            return tokenProvider;
+        }
+
+        @Bean
+        TokenVersionCache tokenVersionCache() {
+            TokenVersionCache tokenVersionCache = mock(TokenVersionCache.class);
+            when(tokenVersionCache.isCurrent("user-1", 0)).thenReturn(true);
+            return tokenVersionCache;
+        }
+
+        @Bean
+        ChatMembershipCache chatMembershipCache() {
+            ChatMembershipCache chatMembershipCache = mock(ChatMembershipCache.class);
+            when(chatMembershipCache.isMember("chat-1", "user-1")).thenReturn(true);
+            return chatMembershipCache;
+        }
+
+        @Bean
+        UserFriendRepository userFriendRepository() {
+            return mock(UserFriendRepository.class);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.ChatRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Một session STOMP gửi liên tiếp N tin vào một chat: seq phải được cấp và tin phải tới subscriber đúng thứ tự gửi,
+ * dù frame inbound và outbound được xử lý trên pool nhiều thread.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChatMessageOrderingTest {
+
+    private static final int MESSAGES = 40;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Chat chat;
+    private WebSocketStompClient stompClient;
+    private ThreadPoolTaskScheduler scheduler;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("order-" + run + "@example.com")
+                .username("order-" + run)
+                .fullname("Ordering")
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        chat = chatRepository.save(Chat.builder().members(new ArrayList<>(List.of(user))).build());
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        stompClient.setTaskScheduler(scheduler);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        stompClient.stop();
+        scheduler.shutdown();
+        if (chat != null) {
+            jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chat_members WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chat.getId());
+        }
+        if (user != null) {
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        }
+    }
+
+    @Test
+    void messagesFromOneSessionGetSeqsAndArriveInSendOrder() throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + tokenProvider.generateToken(user));
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(),
+                        connectHeaders, new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        session.subscribe("/topic/chats/" + chat.getId(), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        });
+        // Simple broker không trả RECEIPT: gửi tin mồi cho tới khi nhận được để chắc subscription đã đăng ký
+        Map<?, ?> warmUp = null;
+        for (int attempt = 0; attempt < 20 && warmUp == null; attempt++) {
+            session.send("/app/chat/" + chat.getId(), Map.of("content", "warm-up"));
+            warmUp = received.poll(500, TimeUnit.MILLISECONDS);
+        }
+        assertNotNull(warmUp, "subscription was not registered");
+        Thread.sleep(500);
+        Map<?, ?> last = warmUp;
+        for (Map<?, ?> extra; (extra = received.poll()) != null; ) {
+            last = extra;
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            session.send("/app/chat/" + chat.getId(), Map.of("content", "m" + i));
+        }
+
+        long previousSeq = ((Number) last.get("seq")).longValue();
+        for (int i = 0; i < MESSAGES; i++) {
+            Map<?, ?> message = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(message, "message m" + i + " was not delivered");
+            assertEquals("m" + i, message.get("content"));
+            long seq = ((Number) message.get("seq")).longValue();
+            assertEquals(previousSeq + 1, seq, "seq of m" + i);
+            previousSeq = seq;
+        }
+        session.disconnect();
+    }
+}
@@ -0,0 +1,101 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.media.FileSystemMediaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Range, ETag và If-None-Match của GET /api/v1/media/{key} trên FileSystemMediaStore thật trong thư mục tạm.
+ * MockMvc không có sendfile của Tomcat nên bytes đi qua nhánh FileChannel.
+ */
+class MediaControllerTest {
+
+    private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path rootDir;
+
+    private MockMvc mockMvc;
+    private String key;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileSystemMediaStore mediaStore = new FileSystemMediaStore(rootDir.toString());
+        key = mediaStore.put(DATA, "image/png").getKey();
+        url = "/api/v1/media/" + key;
+        mockMvc = MockMvcBuilders.standaloneSetup(new MediaController(mediaStore)).build();
+    }
+
+    @Test
+    void returnsWholeFileWithCacheHeaders() throws Exception {
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + key + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, DATA.length))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(DATA));
+    }
+
+    @Test
+    void returnsPartialContentForSatisfiableRange() throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=5-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-9/" + DATA.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+                .andExpect(content().bytes(Arrays.copyOfRange(DATA, 5, 10)));
+    }
+
+    @Test
+    void returnsSuffixRange() throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 16-19/" + DATA.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(DATA, 16, 20)));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + DATA.length));
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, "\"" + key + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + key + "\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.RANGE, "bytes=5-9")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(DATA));
+    }
+
+    @Test
+    void returnsNotFoundForUnknownKey() throws Exception {
+        mockMvc.perform(get("/api/v1/media/" + "0".repeat(64) + ".png"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,94 @@
+package com.socialmedia.demo.controllers;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.media.MediaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/v1/media/** qua security filter chain thật, không kèm JWT.
+ * 404/416 phải giữ nguyên status thay vì thành 401 khi đi qua /error; phần gọi qua cổng HTTP thật kiểm tra cả
+ * đường error dispatch của Tomcat mà MockMvc không mô phỏng.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+class MediaSecurityTest {
+
+    private static final byte[] DATA = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    private static final String UNKNOWN_URL = "/api/v1/media/" + "0".repeat(64) + ".png";
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        TestDatabase.register(registry);
+        Path rootDir = Files.createTempDirectory("media-security-test");
+        registry.add("app.media.root-dir", rootDir::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private MediaStore mediaStore;
+
+    private String url;
+
+    @BeforeEach
+    void store() {
+        url = "/api/v1/media/" + mediaStore.put(DATA, "image/png").getKey();
+    }
+
+    @Test
+    void anonymousRequestGetsMedia() throws Exception {
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(DATA));
+    }
+
+    @Test
+    void anonymousRequestForUnknownKeyGetsNotFound() throws Exception {
+        mockMvc.perform(get(UNKNOWN_URL))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void anonymousUnsatisfiableRangeGetsRangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + DATA.length));
+    }
+
+    @Test
+    void errorStatusesSurviveTheServletContainer() {
+        ResponseEntity<byte[]> notFound = restTemplate.getForEntity(UNKNOWN_URL, byte[].class);
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=100-200");
+        ResponseEntity<byte[]> unsatisfiable = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, unsatisfiable.getStatusCode());
+        assertEquals("bytes */" + DATA.length, unsatisfiable.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+}
@@ -0,0 +1,87 @@
+package com.socialmedia.demo.media;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chỉ file cũ hơn min-age và không còn row nào tham chiếu bị xóa; put lại một key cũ làm mới nó.
+ */
+class MediaGarbageCollectorTest {
+
+    @TempDir
+    Path rootDir;
+
+    private FileSystemMediaStore mediaStore;
+    private JdbcTemplate jdbcTemplate;
+    private MediaGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mediaStore = new FileSystemMediaStore(rootDir.toString());
+        jdbcTemplate = mock(JdbcTemplate.class);
+        collector = new MediaGarbageCollector(mediaStore, jdbcTemplate);
+    }
+
+    @Test
+    void removesOnlyOldUnreferencedFiles() throws IOException {
+        String referenced = put("referenced");
+        String orphan = put("orphan");
+        String fresh = put("fresh");
+        backdate(referenced);
+        backdate(orphan);
+        referencedKeys(referenced);
+
+        collector.sweep();
+
+        assertTrue(mediaStore.exists(referenced));
+        assertFalse(mediaStore.exists(orphan));
+        assertTrue(mediaStore.exists(fresh)); // Có thể là upload mà row chưa commit
+    }
+
+    @Test
+    void reuploadedKeyIsKeptUntilItAgesAgain() throws IOException {
+        String key = put("reused");
+        backdate(key);
+        put("reused"); // Upload mới trùng nội dung, row của nó chưa commit
+        referencedKeys();
+
+        collector.sweep();
+
+        assertTrue(mediaStore.exists(key));
+    }
+
+    private String put(String content) {
+        return mediaStore.put(content.getBytes(StandardCharsets.UTF_8), "image/png").getKey();
+    }
+
+    private void backdate(String key) throws IOException {
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            Path file = files.filter(path -> path.getFileName().toString().equals(key)).findFirst().orElseThrow();
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        }
+    }
+
+    private void referencedKeys(String... keys) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of(keys));
+    }
+}
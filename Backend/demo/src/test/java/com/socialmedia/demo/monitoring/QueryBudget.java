@@ -0,0 +1,35 @@
+package com.socialmedia.demo.monitoring;
+
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Ngân sách câu SQL cho test: chạy một đoạn code (thường là một request MockMvc, chạy cùng thread)
+ * trong một phạm vi QueryTracker và fail nếu số câu SQL vượt quá ngân sách.
+ *
+ * <pre>
+ * QueryBudget.assertAtMost(2, "GET /api/v1/posts/{postId}/comments",
+ *         () -> mockMvc.perform(get("/api/v1/posts/" + postId + "/comments")));
+ * </pre>
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static QueryStats measure(String name, Executable action) throws Throwable {
+        try (QueryStats stats = QueryTracker.start(name)) {
+            action.execute();
+            return stats;
+        }
+    }
+
+    public static QueryStats assertAtMost(long maxStatements, String name, Executable action) throws Throwable {
+        QueryStats stats = measure(name, action);
+        if (stats.getStatements() > maxStatements) {
+            fail("Query budget exceeded, expected at most " + maxStatements + " statements but " + stats);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,181 @@
+package com.socialmedia.demo.monitoring;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Comment;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.CommentRepository;
+import com.socialmedia.demo.repositories.PostRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Kiểm tra lớp đếm SQL qua datasource-proxy: số câu và số dòng trong một phạm vi, metric theo endpoint
+ * và ngân sách câu SQL cho test. Chạy trên database riêng của test (TestDatabase).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryInstrumentationTest {
+
+    private static final int COMMENTS = 3;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private QueryMetricsChannelInterceptor channelInterceptor;
+    @Autowired
+    private SimpAnnotationMethodMessageHandler annotationMethodMessageHandler;
+
+    private User user;
+    private Post post;
+    private String token;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("sql-" + run + "@example.com")
+                .username("sql-" + run)
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        post = postRepository.save(Post.builder().author(user).content("post").privacySetting(PrivacySetting.PUBLIC).build());
+        for (int i = 0; i < COMMENTS; i++) {
+            commentRepository.save(Comment.builder().author(user).post(post).content("comment " + i).build());
+        }
+        token = tokenProvider.generateToken(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM comments WHERE post_id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM posts WHERE id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void countsStatementsAndRowsReadInScope() throws Throwable {
+        QueryStats stats = QueryBudget.measure("select comments",
+                () -> commentRepository.findByPostId(post.getId()));
+
+        assertEquals(1, stats.getStatements());
+        assertEquals(COMMENTS, stats.getRows());
+    }
+
+    @Test
+    void countsRowsWrittenInScope() throws Throwable {
+        QueryStats stats = QueryBudget.measure("update comments",
+                () -> jdbcTemplate.update("UPDATE comments SET content = 'edited' WHERE post_id = ?", post.getId()));
+
+        assertEquals(1, stats.getStatements());
+        assertEquals(COMMENTS, stats.getRows());
+    }
+
+    @Test
+    void requestStaysWithinBudgetAndIsRecordedPerEndpoint() throws Throwable {
+        String url = "/api/v1/posts/" + post.getId() + "/comments";
+        // Lần đầu làm nóng cache token version
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+        long recordedBefore = recordedRequests();
+
+        QueryStats stats = QueryBudget.assertAtMost(2, "GET " + url,
+                () -> mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andExpect(status().isOk()));
+        assertTrue(stats.getRows() >= COMMENTS, "rows read: " + stats);
+
+        assertEquals(recordedBefore + 1, recordedRequests());
+    }
+
+    @Test
+    void exceedingTheBudgetFails() {
+        String url = "/api/v1/posts/" + post.getId() + "/comments";
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> QueryBudget.assertAtMost(0, "GET " + url,
+                () -> mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andExpect(status().isOk())));
+        assertTrue(error.getMessage().contains("Query budget exceeded"), error.getMessage());
+    }
+
+    @Test
+    void stompFramesAreTaggedByMappingPatternOrUnmapped() {
+        long chatBefore = recordedFrames("SEND /app/chat/{chatId}");
+        long unmappedBefore = recordedFrames("UNMAPPED");
+
+        handleFrame("/app/chat/" + UUID.randomUUID());
+        handleFrame("/app/chat/not-a-uuid-" + UUID.randomUUID());
+        handleFrame("/app/" + UUID.randomUUID() + "/anything");
+
+        assertEquals(chatBefore + 2, recordedFrames("SEND /app/chat/{chatId}"));
+        assertEquals(unmappedBefore + 1, recordedFrames("UNMAPPED"));
+    }
+
+    // Chỉ chạy phần của interceptor quanh handler, không gọi @MessageMapping
+    private void handleFrame(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> frame = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        channelInterceptor.beforeHandle(frame, null, annotationMethodMessageHandler);
+        channelInterceptor.afterMessageHandled(frame, null, annotationMethodMessageHandler, null);
+    }
+
+    private long recordedFrames(String endpoint) {
+        DistributionSummary statements = meterRegistry.find("sql.statements")
+                .tags("type", QueryMetrics.TYPE_STOMP, "endpoint", endpoint)
+                .summary();
+        return statements != null ? statements.count() : 0;
+    }
+
+    private long recordedRequests() {
+        DistributionSummary statements = meterRegistry.find("sql.statements")
+                .tags("type", QueryMetrics.TYPE_HTTP, "endpoint", "GET /api/v1/posts/{postId}/comments")
+                .summary();
+        assertNotNull(statements, "no sql.statements metric for the endpoint");
+        return statements.count();
+    }
+}
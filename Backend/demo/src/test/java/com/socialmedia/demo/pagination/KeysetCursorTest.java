@@ -0,0 +1,59 @@
+package com.socialmedia.demo.pagination;
+
+import com.socialmedia.demo.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsTimestampWithSubSecondPrecisionAndId() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123456000);
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(timestamp, "3f2a-id").encode());
+
+        assertEquals(timestamp, decoded.getTimestamp());
+        assertEquals("3f2a-id", decoded.getId());
+    }
+
+    @Test
+    void roundTripsWholeSecondTimestamp() {
+        // LocalDateTime.toString() bỏ phần giây khi bằng 0 ("2024-01-01T00:00"), parse phải nhận lại được
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        assertEquals(timestamp, KeysetCursor.decode(new KeysetCursor(timestamp, "id").encode()).getTimestamp());
+    }
+
+    @Test
+    void keepsSeparatorInsideId() {
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(LocalDateTime.of(2024, 1, 1, 0, 0, 1), "a|b").encode());
+
+        assertEquals("a|b", decoded.getId());
+    }
+
+    @Test
+    void encodesAsUrlSafeTokenWithoutPadding() {
+        String encoded = new KeysetCursor(LocalDateTime.of(2024, 1, 1, 0, 0, 1), "id?").encode();
+
+        assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"), encoded);
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(encode("2024-01-01T00:00")));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(encode("|id")));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(encode("2024-01-01T00:00|")));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(encode("yesterday|id")));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,190 @@
+package com.socialmedia.demo.repositories;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Comment;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.entities.PostReaction;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Đếm số câu SQL (Hibernate statistics) mà mỗi endpoint đọc phát ra, để một N+1 mới làm hỏng build.
+ * Mỗi endpoint trả về nhiều bản ghi có liên kết (author, sender, user, members, messages); số câu phải giữ nguyên
+ * dù có bao nhiêu bản ghi, nên ngân sách dưới đây là hằng số.
+ * Chạy trên database riêng của test (TestDatabase), dữ liệu được tạo và xóa trong từng test.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class FetchPlanQueryCountTest {
+
+    private static final int ROWS = 5;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private PostReactionRepository postReactionRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private Post post;
+    private Chat chat;
+    private String token;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < ROWS; i++) {
+            users.add(userRepository.save(User.builder()
+                    .email("qc-" + run + "-" + i + "@example.com")
+                    .username("qc-" + run + "-" + i)
+                    .fullname("Query Count " + i)
+                    .password("x")
+                    .role(ROLE.USER)
+                    .privacySetting(PrivacySetting.PUBLIC)
+                    .build()));
+        }
+        User owner = users.get(0);
+        token = tokenProvider.generateToken(owner);
+
+        for (User user : users) {
+            Post saved = postRepository.save(Post.builder()
+                    .author(user)
+                    .content("post of " + user.getUsername())
+                    .privacySetting(PrivacySetting.PUBLIC)
+                    .build());
+            if (post == null) {
+                post = saved;
+            }
+        }
+        for (User user : users) {
+            commentRepository.save(Comment.builder().author(user).post(post).content("comment").build());
+            postReactionRepository.save(PostReaction.builder().user(user).post(post).reactionType(ReactionType.LIKE).build());
+        }
+
+        chat = chatRepository.save(Chat.builder().members(new ArrayList<>(users)).build());
+        for (int i = 0; i < users.size(); i++) {
+            messageRepository.save(Message.builder()
+                    .chat(chat)
+                    .sender(users.get(i))
+                    .content("message " + i)
+                    .sendAt(LocalDateTime.now().plusSeconds(i))
+                    .seq((long) i + 1)
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (chat != null) {
+            jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chat_members WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chat.getId());
+        }
+        if (post != null) {
+            jdbcTemplate.update("DELETE FROM post_reactions WHERE post_id = ?", post.getId());
+            jdbcTemplate.update("DELETE FROM comments WHERE post_id = ?", post.getId());
+        }
+        for (User user : users) {
+            jdbcTemplate.update("DELETE FROM posts WHERE author_id = ?", user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        }
+    }
+
+    @Test
+    void commentsOfPostAreLoadedWithTheirAuthorsInOneQuery() throws Exception {
+        // Kiểm tra post tồn tại + comments kèm author
+        assertQueries(2, "/api/v1/posts/" + post.getId() + "/comments");
+    }
+
+    @Test
+    void reactionsOfPostAreLoadedWithTheirUsersInOneQuery() throws Exception {
+        // Kiểm tra post tồn tại + reactions kèm user
+        assertQueries(2, "/api/v1/posts/" + post.getId() + "/reactions");
+    }
+
+    @Test
+    void postByIdLoadsItsAuthorInTheSameQuery() throws Exception {
+        assertQueries(1, "/api/v1/posts/" + post.getId());
+    }
+
+    @Test
+    void postPagesLoadAuthorsInTheSameQuery() throws Exception {
+        assertQueries(1, "/api/v1/posts?size=" + ROWS);
+        // Kiểm tra user tồn tại + posts kèm author
+        assertQueries(2, "/api/v1/posts/author/" + users.get(1).getId());
+    }
+
+    @Test
+    void messagesOfChatAreLoadedWithTheirSendersInOneQuery() throws Exception {
+        // Kiểm tra chat tồn tại + messages kèm sender
+        assertQueries(2, "/api/v1/messages/chat/" + chat.getId());
+    }
+
+    @Test
+    void chatLoadsMembersAndMessagesWithoutQueryPerRow() throws Exception {
+        // Một câu cho chat + members, một câu cho messages + sender (hai collection không fetch chung một câu được)
+        assertQueries(2, "/api/v1/chats/" + chat.getId());
+        // Kiểm tra user tồn tại + id các chat của user, rồi hai câu như trên cho tất cả các chat
+        assertQueries(4, "/api/v1/chats/user/" + users.get(0).getId());
+    }
+
+    // Chạy request một lần để làm nóng cache xác thực, xóa cache dữ liệu rồi đếm số câu SQL của lần thứ hai
+    private void assertQueries(long expected, String url) throws Exception {
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements issued by GET " + url);
+    }
+}
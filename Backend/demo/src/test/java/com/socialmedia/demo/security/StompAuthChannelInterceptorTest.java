@@ -0,0 +1,154 @@
+package com.socialmedia.demo.security;
+
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.UserFriendRepository;
+import com.socialmedia.demo.services.ChatMembershipCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Các nhánh từ chối của interceptor STOMP: CONNECT thiếu token, SEND thẳng tới broker,
+ * SEND/SUBSCRIBE vào chat không phải thành viên và đăng ký wildcard.
+ */
+class StompAuthChannelInterceptorTest {
+
+    private static final AuthenticatedUser USER = new AuthenticatedUser("user-1", ROLE.USER, 0);
+
+    private JwtTokenProvider tokenProvider;
+    private TokenVersionCache tokenVersionCache;
+    private ChatMembershipCache chatMembershipCache;
+    private UserFriendRepository userFriendRepository;
+    private StompAuthChannelInterceptor interceptor;
+    private MessageChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = mock(JwtTokenProvider.class);
+        tokenVersionCache = mock(TokenVersionCache.class);
+        chatMembershipCache = mock(ChatMembershipCache.class);
+        userFriendRepository = mock(UserFriendRepository.class);
+        channel = mock(MessageChannel.class);
+        interceptor = new StompAuthChannelInterceptor(tokenProvider, tokenVersionCache, chatMembershipCache,
+                userFriendRepository);
+        when(chatMembershipCache.isMember("chat-1", "user-1")).thenReturn(true);
+    }
+
+    @Test
+    void connectWithoutTokenIsRejected() {
+        Message<byte[]> connect = frame(StompCommand.CONNECT, null, false);
+
+        assertThrows(AuthenticationCredentialsNotFoundException.class, () -> interceptor.preSend(connect, channel));
+        verify(tokenProvider, never()).authenticate(anyString());
+    }
+
+    @Test
+    void connectWithValidTokenAttachesPrincipal() {
+        when(tokenProvider.authenticate("good")).thenReturn(USER);
+        when(tokenVersionCache.isCurrent("user-1", 0)).thenReturn(true);
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer good");
+        accessor.setLeaveMutable(true);
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        interceptor.preSend(connect, channel);
+
+        assertEquals("user-1", accessor.getUser().getName());
+    }
+
+    @Test
+    void sendToMemberChatIsAccepted() {
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SEND, "/app/chat/chat-1", true), channel));
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SEND, "/app/chat/chat-1/typing", true), channel));
+    }
+
+    @Test
+    void sendStraightToBrokerDestinationsIsRejected() {
+        for (String destination : new String[]{"/topic/chats/chat-1", "/topic/chats/chat-2/typing",
+                "/topic/presence/user-2", "/queue/anything"}) {
+            Message<byte[]> send = frame(StompCommand.SEND, destination, true);
+            assertThrows(AccessDeniedException.class, () -> interceptor.preSend(send, channel), destination);
+        }
+    }
+
+    @Test
+    void sendWithoutDestinationIsRejected() {
+        Message<byte[]> send = frame(StompCommand.SEND, null, true);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(send, channel));
+    }
+
+    @Test
+    void sendOnUnauthenticatedSessionIsRejected() {
+        Message<byte[]> send = frame(StompCommand.SEND, "/app/chat/chat-1", false);
+
+        assertThrows(AuthenticationCredentialsNotFoundException.class, () -> interceptor.preSend(send, channel));
+    }
+
+    @Test
+    void sendToChatOfWhichUserIsNotMemberIsRejected() {
+        Message<byte[]> send = frame(StompCommand.SEND, "/app/chat/chat-2", true);
+        Message<byte[]> typing = frame(StompCommand.SEND, "/app/chat/chat-2/typing", true);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(send, channel));
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(typing, channel));
+    }
+
+    @Test
+    void subscribeToChatOfWhichUserIsNotMemberIsRejected() {
+        Message<byte[]> subscribe = frame(StompCommand.SUBSCRIBE, "/topic/chats/chat-2", true);
+        Message<byte[]> typing = frame(StompCommand.SUBSCRIBE, "/topic/chats/chat-2/typing", true);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, channel));
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(typing, channel));
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/chat-1", true), channel));
+    }
+
+    @Test
+    void wildcardSubscriptionsAreRejected() {
+        for (String destination : new String[]{"/topic/chats/*", "/topic/presence/**", "/topic/chats/#",
+                "/topic/chats/{chatId}"}) {
+            Message<byte[]> subscribe = frame(StompCommand.SUBSCRIBE, destination, true);
+            assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, channel), destination);
+        }
+        verify(chatMembershipCache, never()).isMember(anyString(), anyString());
+    }
+
+    @Test
+    void presenceIsOnlyVisibleToSelfAndFriends() {
+        when(userFriendRepository.existsByUserIdAndFriendId("user-1", "friend")).thenReturn(true);
+
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/presence/user-1", true), channel));
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/presence/friend", true), channel));
+        Message<byte[]> stranger = frame(StompCommand.SUBSCRIBE, "/topic/presence/stranger", true);
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(stranger, channel));
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, boolean authenticated) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        if (destination != null) {
+            accessor.setDestination(destination);
+        }
+        if (authenticated) {
+            accessor.setUser(new UsernamePasswordAuthenticationToken(USER, null, USER.getAuthorities()));
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
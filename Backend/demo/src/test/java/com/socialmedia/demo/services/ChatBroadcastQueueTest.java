@@ -0,0 +1,99 @@
+package com.socialmedia.demo.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tin đã commit được broadcast theo thứ tự giữ chỗ (thứ tự seq), kể cả khi các transaction commit xong lệch nhau.
+ */
+class ChatBroadcastQueueTest {
+
+    private static final String TOPIC = "/topic/chats/chat-1";
+
+    private SimpMessagingTemplate messagingTemplate;
+    private ChatBroadcastQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        queue = new ChatBroadcastQueue(messagingTemplate);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void laterCommitWaitsForEarlierSeq() {
+        Transaction first = reserve("m1");
+        Transaction second = reserve("m2");
+
+        second.complete(TransactionSynchronization.STATUS_COMMITTED);
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+
+        first.complete(TransactionSynchronization.STATUS_COMMITTED);
+        InOrder order = inOrder(messagingTemplate);
+        order.verify(messagingTemplate).convertAndSend(TOPIC, (Object) "m1");
+        order.verify(messagingTemplate).convertAndSend(TOPIC, (Object) "m2");
+    }
+
+    @Test
+    void rolledBackSlotIsSkipped() {
+        Transaction first = reserve("m1");
+        Transaction second = reserve("m2");
+
+        second.complete(TransactionSynchronization.STATUS_COMMITTED);
+        first.complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(messagingTemplate, never()).convertAndSend(TOPIC, (Object) "m1");
+        verify(messagingTemplate).convertAndSend(TOPIC, (Object) "m2");
+    }
+
+    @Test
+    void otherChatsAreNotHeldBack() {
+        reserve("m1");
+        Transaction other = reserve("chat-2", "/topic/chats/chat-2", "o1");
+
+        other.complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(messagingTemplate).convertAndSend("/topic/chats/chat-2", (Object) "o1");
+    }
+
+    private Transaction reserve(String payload) {
+        return reserve("chat-1", TOPIC, payload);
+    }
+
+    // Giả lập một transaction: giữ chỗ và set payload trong transaction, giữ lại synchronization để kết thúc sau
+    private Transaction reserve(String chatId, String destination, String payload) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            queue.reserve(chatId, destination).setPayload(payload);
+            return new Transaction(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private record Transaction(List<TransactionSynchronization> synchronizations) {
+        void complete(int status) {
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        }
+    }
+}
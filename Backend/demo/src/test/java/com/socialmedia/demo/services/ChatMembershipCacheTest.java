@@ -0,0 +1,63 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.repositories.ChatRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Thành viên bị xóa không được chấp nhận lại bởi một truy vấn EXISTS đã chạy trước khi việc xóa commit.
+ */
+class ChatMembershipCacheTest {
+
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final ChatMembershipCache cache = new ChatMembershipCache(chatRepository, 100, Duration.ofMinutes(5));
+
+    @Test
+    void removedMemberIsQueriedAgain() {
+        when(chatRepository.existsByChatIdAndUserId("chat-1", "user-1")).thenReturn(true, false);
+
+        assertTrue(cache.isMember("chat-1", "user-1"));
+        assertTrue(cache.isMember("chat-1", "user-1"));
+        cache.memberRemoved("chat-1", "user-1");
+
+        assertFalse(cache.isMember("chat-1", "user-1"));
+        verify(chatRepository, times(2)).existsByChatIdAndUserId("chat-1", "user-1");
+    }
+
+    @Test
+    void queryInFlightDuringRemovalDoesNotReAddTheMember() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch removalCommitted = new CountDownLatch(1);
+        AtomicBoolean removed = new AtomicBoolean();
+        when(chatRepository.existsByChatIdAndUserId("chat-1", "user-1")).thenAnswer(invocation -> {
+            if (removed.get()) {
+                return false;
+            }
+            // Snapshot của truy vấn có trước khi xóa commit, nên vẫn thấy user là thành viên
+            queryStarted.countDown();
+            assertTrue(removalCommitted.await(5, TimeUnit.SECONDS));
+            return true;
+        });
+
+        CompletableFuture<Boolean> staleCheck = CompletableFuture.supplyAsync(() -> cache.isMember("chat-1", "user-1"));
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        removed.set(true);
+        cache.memberRemoved("chat-1", "user-1"); // Không có transaction: áp dụng ngay như sau commit
+        removalCommitted.countDown();
+
+        assertTrue(staleCheck.get(5, TimeUnit.SECONDS));
+        assertFalse(cache.isMember("chat-1", "user-1"));
+    }
+}
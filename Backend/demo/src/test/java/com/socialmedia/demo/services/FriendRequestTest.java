@@ -0,0 +1,130 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.exceptions.FriendRequestNotFoundException;
+import com.socialmedia.demo.repositories.UserFriendRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.UserSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kết bạn cần người nhận đồng ý: gửi lời mời không ghi user_friends, chỉ chấp nhận (hoặc mời nhau) mới ghi.
+ */
+@SpringBootTest
+class FriendRequestTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private FriendService friendService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserFriendRepository userFriendRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void seed() {
+        alice = user("alice");
+        bob = user("bob");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (User user : List.of(alice, bob)) {
+            jdbcTemplate.update("DELETE FROM friend_requests WHERE sender_id = ? OR receiver_id = ?", user.getId(), user.getId());
+            jdbcTemplate.update("DELETE FROM user_friends WHERE user_id = ? OR friend_id = ?", user.getId(), user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        }
+    }
+
+    @Test
+    void requestAloneDoesNotCreateFriendship() {
+        friendService.sendFriendRequest(alice.getId(), bob.getId());
+
+        assertFalse(userFriendRepository.existsByUserIdAndFriendId(alice.getId(), bob.getId()));
+        assertFalse(userFriendRepository.existsByUserIdAndFriendId(bob.getId(), alice.getId()));
+        assertEquals(List.of(alice.getId()), ids(friendService.getIncomingRequests(bob.getId())));
+        assertEquals(List.of(bob.getId()), ids(friendService.getOutgoingRequests(alice.getId())));
+    }
+
+    @Test
+    void acceptWritesBothRowsAndClearsTheRequest() {
+        friendService.sendFriendRequest(alice.getId(), bob.getId());
+
+        friendService.acceptFriendRequest(bob.getId(), alice.getId());
+
+        assertTrue(userFriendRepository.existsByUserIdAndFriendId(alice.getId(), bob.getId()));
+        assertTrue(userFriendRepository.existsByUserIdAndFriendId(bob.getId(), alice.getId()));
+        assertTrue(friendService.getIncomingRequests(bob.getId()).isEmpty());
+        assertEquals(1, userRepository.findById(alice.getId()).orElseThrow().getFriendCount());
+    }
+
+    @Test
+    void senderCannotAcceptTheirOwnRequest() {
+        friendService.sendFriendRequest(alice.getId(), bob.getId());
+
+        assertThrows(FriendRequestNotFoundException.class,
+                () -> friendService.acceptFriendRequest(alice.getId(), bob.getId()));
+        assertFalse(userFriendRepository.existsByUserIdAndFriendId(alice.getId(), bob.getId()));
+    }
+
+    @Test
+    void mutualRequestsBecomeFriendship() {
+        friendService.sendFriendRequest(alice.getId(), bob.getId());
+        friendService.sendFriendRequest(bob.getId(), alice.getId());
+
+        assertTrue(userFriendRepository.existsByUserIdAndFriendId(alice.getId(), bob.getId()));
+        assertTrue(friendService.getOutgoingRequests(alice.getId()).isEmpty());
+    }
+
+    @Test
+    void declinedRequestCannotBeAccepted() {
+        friendService.sendFriendRequest(alice.getId(), bob.getId());
+        friendService.deleteFriendRequest(bob.getId(), alice.getId());
+
+        assertThrows(FriendRequestNotFoundException.class,
+                () -> friendService.acceptFriendRequest(bob.getId(), alice.getId()));
+    }
+
+    private static List<String> ids(List<UserSummary> users) {
+        return users.stream().map(UserSummary::getId).toList();
+    }
+
+    private User user(String name) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .email(name + "-" + run + "@example.com")
+                .username(name + "-" + run)
+                .fullname(name)
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+    }
+}
@@ -0,0 +1,197 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.ChatRepository;
+import com.socialmedia.demo.repositories.MessageRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.MessageResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Phân trang lịch sử chat theo (sendAt, id) với before/after, trên dữ liệu có nhiều tin cùng sendAt.
+ * Thứ tự mong đợi là (sendAt, id) tăng dần: không tin nào bị lặp hay bị bỏ qua ở ranh giới trang.
+ */
+@SpringBootTest
+class MessagePagingTest {
+
+    private static final int PAGE = 3;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Chat chat;
+    private LocalDateTime base;
+    private List<Message> messages;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("paging-" + run + "@example.com")
+                .username("paging-" + run)
+                .fullname("Paging")
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        chat = chatRepository.save(Chat.builder().members(new ArrayList<>(List.of(user))).build());
+
+        // Ba tin cùng giây thứ 1 và hai tin cùng giây thứ 3 nằm vắt qua ranh giới trang (PAGE = 3)
+        base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(5);
+        int[] offsets = {0, 1, 1, 1, 2, 3, 3};
+        messages = new ArrayList<>();
+        for (int i = 0; i < offsets.length; i++) {
+            messages.add(save(base.plusSeconds(offsets[i]), i + 1));
+        }
+        messages.sort(Comparator.comparing(Message::getSendAt).thenComparing(Message::getId));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM chat_members WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void walkingBackwardsVisitsEveryMessageOnceInOrder() {
+        List<List<String>> pages = new ArrayList<>();
+        CursorPage<MessageResponse> page = messageService.getMessagesByChatId(chat.getId(), null, null, PAGE);
+        pages.add(ids(page));
+        assertNewestCursorIsLastItem(page);
+        while (page.isHasMore()) {
+            page = messageService.getMessagesByChatId(chat.getId(), page.getNextCursor(), null, PAGE);
+            pages.add(ids(page));
+            assertNewestCursorIsLastItem(page);
+        }
+        assertNull(page.getNextCursor());
+
+        Collections.reverse(pages);
+        assertEquals(expectedIds(0, messages.size()), pages.stream().flatMap(List::stream).collect(Collectors.toList()));
+        assertEquals(List.of(1, 3, 3), pages.stream().map(List::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    void walkingForwardFromAnOlderPageReachesTheNewestMessage() {
+        CursorPage<MessageResponse> latest = messageService.getMessagesByChatId(chat.getId(), null, null, PAGE);
+        CursorPage<MessageResponse> older = messageService.getMessagesByChatId(chat.getId(), latest.getNextCursor(), null, PAGE);
+        assertEquals(expectedIds(1, 4), ids(older));
+
+        // newestCursor của trang cũ hơn là điểm bắt đầu đi tới, kể cả khi tin ở ranh giới có cùng sendAt
+        List<String> forward = new ArrayList<>();
+        CursorPage<MessageResponse> page = messageService.getMessagesByChatId(chat.getId(), null, older.getNewestCursor(), 2);
+        forward.addAll(ids(page));
+        while (page.isHasMore()) {
+            page = messageService.getMessagesByChatId(chat.getId(), null, page.getNextCursor(), 2);
+            forward.addAll(ids(page));
+        }
+        assertEquals(expectedIds(4, messages.size()), forward);
+        assertEquals(latest.getNewestCursor(), page.getNewestCursor());
+    }
+
+    @Test
+    void newestCursorOfLatestPagePicksUpMessagesSentLater() {
+        CursorPage<MessageResponse> latest = messageService.getMessagesByChatId(chat.getId(), null, null, PAGE);
+        assertTrue(latest.isHasMore());
+        assertNotNull(latest.getNewestCursor());
+
+        CursorPage<MessageResponse> nothingNew = messageService.getMessagesByChatId(chat.getId(), null, latest.getNewestCursor(), PAGE);
+        assertTrue(nothingNew.getItems().isEmpty());
+        assertFalse(nothingNew.isHasMore());
+        assertEquals(latest.getNewestCursor(), nothingNew.getNextCursor());
+        assertEquals(latest.getNewestCursor(), nothingNew.getNewestCursor());
+
+        // Trang mới nhất không có nextCursor theo hướng tới; newestCursor nhận được tin gửi sau đó
+        Message last = messages.get(messages.size() - 1);
+        Message later = save(last.getSendAt().plusSeconds(1), messages.size() + 1);
+        CursorPage<MessageResponse> caughtUp = messageService.getMessagesByChatId(chat.getId(), null, latest.getNewestCursor(), PAGE);
+        assertEquals(List.of(later.getId()), ids(caughtUp));
+        assertNewestCursorIsLastItem(caughtUp);
+    }
+
+    @Test
+    void emptyChatHasNoCursors() {
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+
+        CursorPage<MessageResponse> page = messageService.getMessagesByChatId(chat.getId(), null, null, PAGE);
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        assertNull(page.getNewestCursor());
+    }
+
+    private Message save(LocalDateTime sendAt, long seq) {
+        return messageRepository.save(Message.builder()
+                .chat(chat)
+                .sender(user)
+                .content("message " + seq)
+                .sendAt(sendAt)
+                .seq(seq)
+                .build());
+    }
+
+    // after = newestCursor phải trả về đúng các tin sau tin cuối cùng của trang
+    private void assertNewestCursorIsLastItem(CursorPage<MessageResponse> page) {
+        MessageResponse newest = page.getItems().get(page.getItems().size() - 1);
+        CursorPage<MessageResponse> after = messageService.getMessagesByChatId(chat.getId(), null, page.getNewestCursor(), messages.size() + 1);
+        List<String> expected = new ArrayList<>();
+        boolean seen = false;
+        for (Message message : messages) {
+            if (seen) {
+                expected.add(message.getId());
+            }
+            seen |= message.getId().equals(newest.getId());
+        }
+        assertEquals(expected, ids(after));
+    }
+
+    private List<String> expectedIds(int from, int to) {
+        return messages.subList(from, to).stream().map(Message::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(CursorPage<MessageResponse> page) {
+        return page.getItems().stream().map(MessageResponse::getId).collect(Collectors.toList());
+    }
+}
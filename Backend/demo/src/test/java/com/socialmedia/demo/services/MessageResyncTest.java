@@ -0,0 +1,226 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.Message;
+import com.socialmedia.demo.entities.MessageDeadLetter;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.ChatRepository;
+import com.socialmedia.demo.repositories.MessageDeadLetterRepository;
+import com.socialmedia.demo.repositories.MessageRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.MessageResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resync theo seq (getMessagesAfterSeq) khi có seq chưa được ghi: chờ seq còn có thể tới, bỏ qua seq đã mất hẳn
+ * (dead-letter, hoặc tin sau nó đã cũ hơn app.messages.resync.lost-after-ms) và seq của tin đã bị xóa.
+ */
+@SpringBootTest(properties = "app.messages.resync.lost-after-ms=60000")
+class MessageResyncTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private MessageDeadLetterRepository messageDeadLetterRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Chat chat;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("resync-" + run + "@example.com")
+                .username("resync-" + run)
+                .fullname("Resync")
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        chat = chatRepository.save(Chat.builder().members(new ArrayList<>(List.of(user))).build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM message_dead_letters WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM message_deletions WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM chat_members WHERE chat_id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chat.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void contiguousSeqsArePagedWithSeqCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        for (long seq = 1; seq <= 5; seq++) {
+            save(seq, now);
+        }
+
+        CursorPage<MessageResponse> first = messageService.getMessagesAfterSeq(chat.getId(), 0, 3);
+        assertEquals(List.of(1L, 2L, 3L), seqs(first));
+        assertEquals("3", first.getNextCursor());
+        assertTrue(first.isHasMore());
+
+        CursorPage<MessageResponse> second = messageService.getMessagesAfterSeq(chat.getId(), 3, 3);
+        assertEquals(List.of(4L, 5L), seqs(second));
+        assertEquals("5", second.getNextCursor());
+        assertFalse(second.isHasMore());
+
+        CursorPage<MessageResponse> caughtUp = messageService.getMessagesAfterSeq(chat.getId(), 5, 3);
+        assertTrue(caughtUp.getItems().isEmpty());
+        assertEquals("5", caughtUp.getNextCursor());
+        assertFalse(caughtUp.isHasMore());
+    }
+
+    @Test
+    void recentGapStopsThePageAndWaitsForTheUnwrittenSeq() {
+        LocalDateTime now = LocalDateTime.now();
+        save(1, now);
+        save(2, now);
+        // seq 3 đã broadcast nhưng chưa được ghi; tin sau nó còn mới nên seq 3 vẫn có thể tới
+        for (long seq = 4; seq <= 8; seq++) {
+            save(seq, now);
+        }
+
+        CursorPage<MessageResponse> page = messageService.getMessagesAfterSeq(chat.getId(), 0, 5);
+        assertEquals(List.of(1L, 2L), seqs(page));
+        assertEquals("2", page.getNextCursor());
+        assertTrue(page.getMissingSeqs().isEmpty());
+        // Đang chờ seq 3: không báo còn trang, client hỏi lại sau với afterSeq = 2
+        assertFalse(page.isHasMore());
+
+        save(3, now);
+        CursorPage<MessageResponse> afterWrite = messageService.getMessagesAfterSeq(chat.getId(), 2, 5);
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L), seqs(afterWrite));
+        assertTrue(afterWrite.isHasMore());
+    }
+
+    @Test
+    void gapOlderThanLostAfterIsReportedMissing() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        save(1, old);
+        save(2, old);
+        save(5, old);
+        save(6, LocalDateTime.now());
+
+        CursorPage<MessageResponse> page = messageService.getMessagesAfterSeq(chat.getId(), 0, 10);
+        assertEquals(List.of(1L, 2L, 5L, 6L), seqs(page));
+        assertEquals(List.of(3L, 4L), page.getMissingSeqs());
+        assertEquals("6", page.getNextCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void missingSeqsCountTowardsTheLimit() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        save(1, old);
+        save(5, old);
+
+        CursorPage<MessageResponse> page = messageService.getMessagesAfterSeq(chat.getId(), 0, 3);
+        assertEquals(List.of(1L), seqs(page));
+        assertEquals(List.of(2L, 3L), page.getMissingSeqs());
+        assertEquals("3", page.getNextCursor());
+        assertTrue(page.isHasMore());
+
+        CursorPage<MessageResponse> next = messageService.getMessagesAfterSeq(chat.getId(), 3, 3);
+        assertEquals(List.of(5L), seqs(next));
+        assertEquals(List.of(4L), next.getMissingSeqs());
+    }
+
+    @Test
+    void deadLetteredSeqIsSkippedWithoutWaiting() {
+        LocalDateTime now = LocalDateTime.now();
+        save(1, now);
+        save(3, now);
+        messageDeadLetterRepository.save(MessageDeadLetter.builder()
+                .id(UUID.randomUUID().toString())
+                .chatId(chat.getId())
+                .senderId(user.getId())
+                .seq(2)
+                .sendAt(now)
+                .content("rejected".getBytes())
+                .error("rejected by test")
+                .deadAt(now)
+                .build());
+
+        CursorPage<MessageResponse> page = messageService.getMessagesAfterSeq(chat.getId(), 0, 10);
+        assertEquals(List.of(1L, 3L), seqs(page));
+        assertEquals(List.of(2L), page.getMissingSeqs());
+        assertEquals("3", page.getNextCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void deletedSeqIsSkippedWithoutWaitingAndReportedAsDeleted() {
+        LocalDateTime now = LocalDateTime.now();
+        save(1, now);
+        Message second = save(2, now);
+        save(3, now);
+        save(4, now);
+
+        messageService.deleteMessage(second.getId(), user.getId());
+
+        // Tin sau seq 2 còn mới, nhưng seq 2 đã bị xóa nên không phải chờ
+        CursorPage<MessageResponse> page = messageService.getMessagesAfterSeq(chat.getId(), 0, 10);
+        assertEquals(List.of(1L, 3L, 4L), seqs(page));
+        assertEquals(List.of(2L), page.getDeletedSeqs());
+        assertTrue(page.getMissingSeqs().isEmpty());
+        assertEquals("4", page.getNextCursor());
+        assertFalse(page.isHasMore());
+
+        CursorPage<MessageResponse> limited = messageService.getMessagesAfterSeq(chat.getId(), 1, 2);
+        assertEquals(List.of(3L), seqs(limited));
+        assertEquals(List.of(2L), limited.getDeletedSeqs());
+        assertEquals("3", limited.getNextCursor());
+        assertTrue(limited.isHasMore());
+    }
+
+    private Message save(long seq, LocalDateTime sendAt) {
+        return messageRepository.save(Message.builder()
+                .chat(chat)
+                .sender(user)
+                .content("message " + seq)
+                .sendAt(sendAt)
+                .seq(seq)
+                .build());
+    }
+
+    private static List<Long> seqs(CursorPage<MessageResponse> page) {
+        return page.getItems().stream().map(MessageResponse::getSeq).collect(Collectors.toList());
+    }
+}
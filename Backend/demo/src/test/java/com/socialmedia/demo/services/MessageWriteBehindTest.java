@@ -0,0 +1,145 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Chat;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.ChatRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.responses.CursorPage;
+import com.socialmedia.demo.responses.MessageResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batch bị DB từ chối vì một tin lỗi dữ liệu: các chat khác vẫn được ghi, các tin sau của chat có tin lỗi chờ tin đó,
+ * và sau max-attempts lần tin lỗi được chuyển vào message_dead_letters để chat tiếp tục được ghi.
+ */
+@SpringBootTest(properties = {
+        "app.messages.async-persistence.enabled=true",
+        "app.messages.async-persistence.flush-interval-ms=3600000",
+        "app.messages.async-persistence.max-attempts=2"
+})
+class MessageWriteBehindTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageWriteBehind messageWriteBehind;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Chat blocked;
+    private Chat other;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("mwb-" + run + "@example.com")
+                .username("mwb-" + run)
+                .fullname("Message Write Behind")
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        blocked = chatRepository.save(Chat.builder().members(new ArrayList<>(List.of(user))).build());
+        other = chatRepository.save(Chat.builder().members(new ArrayList<>(List.of(user))).build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (Chat chat : List.of(blocked, other)) {
+            jdbcTemplate.update("DELETE FROM message_dead_letters WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chat_members WHERE chat_id = ?", chat.getId());
+            jdbcTemplate.update("DELETE FROM chats WHERE id = ?", chat.getId());
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void rejectedMessageBlocksItsChatUntilDeadLettered() {
+        // PostgreSQL không nhận ký tự NUL trong text: lỗi dữ liệu, không phải lỗi kết nối
+        submit(blocked, 1, "bad \u0000 content");
+        submit(blocked, 2, "after bad");
+        submit(other, 1, "unrelated");
+
+        messageWriteBehind.flush();
+
+        assertEquals(List.of(1L), writtenSeqs(other));
+        assertEquals(List.of(), writtenSeqs(blocked));
+        assertEquals(List.of(), deadLetteredSeqs(blocked));
+        // Seq 1 còn đang được thử lại: resync chờ, không báo mất và không báo còn trang
+        CursorPage<MessageResponse> waiting = messageService.getMessagesAfterSeq(blocked.getId(), 0, 10);
+        assertTrue(waiting.getItems().isEmpty());
+        assertTrue(waiting.getMissingSeqs().isEmpty());
+        assertFalse(waiting.isHasMore());
+        assertEquals("0", waiting.getNextCursor());
+
+        messageWriteBehind.flush();
+
+        assertEquals(List.of(1L), deadLetteredSeqs(blocked));
+        assertEquals(List.of(2L), writtenSeqs(blocked));
+        CursorPage<MessageResponse> resynced = messageService.getMessagesAfterSeq(blocked.getId(), 0, 10);
+        assertEquals(List.of(2L), resynced.getItems().stream().map(MessageResponse::getSeq).collect(Collectors.toList()));
+        assertEquals(List.of(1L), resynced.getMissingSeqs());
+        assertEquals("2", resynced.getNextCursor());
+    }
+
+    @Test
+    void dataErrorBelowMaxAttemptsIsRetriedOnNextFlush() {
+        submit(blocked, 1, "bad \u0000 content");
+
+        messageWriteBehind.flush();
+        assertEquals(List.of(), deadLetteredSeqs(blocked));
+
+        // Tin mới của chat đang bị chặn xếp sau tin lỗi, kể cả khi tới sau lần flush trước
+        submit(blocked, 2, "after bad");
+        messageWriteBehind.flush();
+
+        assertEquals(List.of(1L), deadLetteredSeqs(blocked));
+        assertEquals(List.of(2L), writtenSeqs(blocked));
+    }
+
+    private void submit(Chat chat, long seq, String content) {
+        messageWriteBehind.reserve();
+        messageWriteBehind.submit(new MessageWriteBehind.PendingMessage(
+                UUID.randomUUID().toString(), chat.getId(), user.getId(), content, LocalDateTime.now(), seq));
+    }
+
+    private List<Long> writtenSeqs(Chat chat) {
+        return jdbcTemplate.queryForList("SELECT seq FROM messages WHERE chat_id = ? ORDER BY seq", Long.class, chat.getId());
+    }
+
+    private List<Long> deadLetteredSeqs(Chat chat) {
+        return jdbcTemplate.queryForList("SELECT seq FROM message_dead_letters WHERE chat_id = ? ORDER BY seq", Long.class, chat.getId());
+    }
+}
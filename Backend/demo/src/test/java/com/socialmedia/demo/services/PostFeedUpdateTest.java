@@ -0,0 +1,127 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.requests.Post.PostCreateRequest;
+import com.socialmedia.demo.requests.Post.PostUpdateRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Sửa bài đăng đã fan-out: các dòng feed_entries phải theo tác giả và privacy mới ngay trong transaction sửa bài.
+ */
+@SpringBootTest
+class PostFeedUpdateTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private FriendService friendService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+    private User authorFriend;
+    private User newAuthor;
+    private User newAuthorFriend;
+    private String postId;
+
+    @BeforeEach
+    void seed() {
+        author = user("author");
+        authorFriend = user("author-friend");
+        newAuthor = user("new-author");
+        newAuthorFriend = user("new-author-friend");
+        friendService.addFriend(author.getId(), authorFriend.getId());
+        friendService.addFriend(newAuthor.getId(), newAuthorFriend.getId());
+        postId = postService.createPost(PostCreateRequest.builder()
+                .authorId(author.getId())
+                .content("post")
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build()).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM feed_entries WHERE post_id = ?", postId);
+        jdbcTemplate.update("DELETE FROM posts WHERE id = ?", postId);
+        for (User user : List.of(author, authorFriend, newAuthor, newAuthorFriend)) {
+            jdbcTemplate.update("DELETE FROM user_friends WHERE user_id = ? OR friend_id = ?", user.getId(), user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        }
+    }
+
+    @Test
+    void changingAuthorMovesEntriesToTheNewAuthorsFriends() {
+        assertEquals(Set.of(author.getId(), authorFriend.getId()), timelineOwners());
+
+        postService.updatePost(postId, PostUpdateRequest.builder().authorId(newAuthor.getId()).build());
+
+        assertEquals(Set.of(newAuthor.getId(), newAuthorFriend.getId()), timelineOwners());
+        assertEquals(Set.of(newAuthor.getId()), entryAuthors());
+    }
+
+    @Test
+    void becomingPrivateKeepsOnlyTheAuthorsEntry() {
+        postService.updatePost(postId, PostUpdateRequest.builder().privacySetting(PrivacySetting.PRIVATE).build());
+
+        assertEquals(Set.of(author.getId()), timelineOwners());
+
+        postService.updatePost(postId, PostUpdateRequest.builder().privacySetting(PrivacySetting.FRIENDS_ONLY).build());
+
+        assertEquals(Set.of(author.getId(), authorFriend.getId()), timelineOwners());
+    }
+
+    @Test
+    void changingAuthorOfPrivatePostLeavesOnlyTheNewAuthorsEntry() {
+        postService.updatePost(postId, PostUpdateRequest.builder()
+                .authorId(newAuthor.getId())
+                .privacySetting(PrivacySetting.PRIVATE)
+                .build());
+
+        assertEquals(Set.of(newAuthor.getId()), timelineOwners());
+    }
+
+    private User user(String name) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .email(name + "-" + run + "@example.com")
+                .username(name + "-" + run)
+                .fullname(name)
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+    }
+
+    private Set<String> timelineOwners() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT user_id FROM feed_entries WHERE post_id = ?", String.class, postId));
+    }
+
+    private Set<String> entryAuthors() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT author_id FROM feed_entries WHERE post_id = ?", String.class, postId));
+    }
+}
@@ -0,0 +1,177 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.TestDatabase;
+import com.socialmedia.demo.entities.Post;
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.repositories.PostRepository;
+import com.socialmedia.demo.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Flush của ReactionWriteBehind chạy cùng lúc với một lần ghi đồng bộ (ví dụ từ node khác) trên cùng cặp (user, post).
+ * Lần ghi đồng bộ được giữ trong một transaction chưa commit trên connection riêng cho tới khi flush đang chờ khóa,
+ * rồi mới commit; sau đó bộ đếm phải khớp đúng với bảng post_reactions.
+ */
+@SpringBootTest(properties = {
+        "app.reactions.write-behind.enabled=true",
+        "app.reactions.write-behind.flush-interval-ms=3600000"
+})
+class ReactionWriteBehindConcurrencyTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private ReactionWriteBehind reactionWriteBehind;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+    private Post post;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .email("wb-" + run + "@example.com")
+                .username("wb-" + run)
+                .fullname("Write Behind")
+                .password("x")
+                .role(ROLE.USER)
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+        post = postRepository.save(Post.builder()
+                .author(user)
+                .content("post")
+                .privacySetting(PrivacySetting.PUBLIC)
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM post_reactions WHERE post_id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM post_reaction_counts WHERE post_id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM posts WHERE id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void upsertRacingWithConcurrentInsertMovesTheCountFromTheInsertedType() throws Exception {
+        assertTrue(reactionWriteBehind.submitPostReaction(user.getId(), post.getId(), ReactionType.LIKE));
+
+        flushWhileConcurrentInsertIsUncommitted(ReactionType.LOVE);
+
+        assertEquals(List.of("LIKE"), reactionTypes());
+        assertEquals(Map.of("LIKE", 1L, "LOVE", 0L), counts());
+    }
+
+    @Test
+    void deleteRacingWithConcurrentInsertKeepsCountsConsistent() throws Exception {
+        assertTrue(reactionWriteBehind.submitPostReaction(user.getId(), post.getId(), null));
+
+        flushWhileConcurrentInsertIsUncommitted(ReactionType.LOVE);
+
+        // Lần xóa được xếp trước lần tạo đồng thời: dòng vẫn còn và bộ đếm vẫn đếm nó
+        assertEquals(List.of("LOVE"), reactionTypes());
+        assertEquals(Map.of("LOVE", 1L), counts());
+    }
+
+    @Test
+    void deleteAfterSynchronousInsertRemovesRowAndCount() {
+        assertTrue(reactionWriteBehind.submitPostReaction(user.getId(), post.getId(), null));
+        // Ghi đồng bộ đã commit sau khi thay đổi vào bộ đệm nhưng trước khi flush
+        jdbcTemplate.update("INSERT INTO post_reactions (user_id, post_id, reaction_type, create_at) VALUES (?, ?, 'HAHA', now())",
+                user.getId(), post.getId());
+        jdbcTemplate.update("INSERT INTO post_reaction_counts (post_id, reaction_type, count) VALUES (?, 'HAHA', 1)", post.getId());
+
+        reactionWriteBehind.flush();
+
+        assertEquals(List.of(), reactionTypes());
+        assertEquals(Map.of("HAHA", 0L), counts());
+    }
+
+    // Mở transaction ghi reaction (kèm bộ đếm như service làm) nhưng chưa commit, chạy flush ở thread khác,
+    // đợi flush bị chặn bởi khóa của dòng chưa commit rồi mới commit
+    private void flushWhileConcurrentInsertIsUncommitted(ReactionType type) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO post_reactions (user_id, post_id, reaction_type, create_at) VALUES (?, ?, ?, now())");
+                 PreparedStatement count = connection.prepareStatement(
+                    "INSERT INTO post_reaction_counts (post_id, reaction_type, count) VALUES (?, ?, 1) " +
+                    "ON CONFLICT (post_id, reaction_type) DO UPDATE SET count = post_reaction_counts.count + 1")) {
+                insert.setString(1, user.getId());
+                insert.setString(2, post.getId());
+                insert.setString(3, type.name());
+                insert.executeUpdate();
+                count.setString(1, post.getId());
+                count.setString(2, type.name());
+                count.executeUpdate();
+            }
+
+            CompletableFuture<Void> flush = CompletableFuture.runAsync(reactionWriteBehind::flush);
+            awaitLockWait(flush);
+            connection.commit();
+            flush.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Flush không có gì phải chờ (ví dụ xóa một dòng chưa nhìn thấy) thì kết thúc luôn mà không cần khóa
+    private void awaitLockWait(CompletableFuture<Void> flush) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!flush.isDone() && System.nanoTime() < deadline) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' AND datname = current_database()",
+                    Integer.class);
+            if (waiting != null && waiting > 0) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private List<String> reactionTypes() {
+        return jdbcTemplate.queryForList("SELECT reaction_type FROM post_reactions WHERE post_id = ?", String.class, post.getId());
+    }
+
+    private Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT reaction_type, count FROM post_reaction_counts WHERE post_id = ?",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                },
+                post.getId());
+        return counts;
+    }
+}
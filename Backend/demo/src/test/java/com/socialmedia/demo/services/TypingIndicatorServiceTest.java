@@ -0,0 +1,83 @@
+package com.socialmedia.demo.services;
+
+import com.socialmedia.demo.responses.TypingEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * "Ngừng gõ" được gửi thay cho client khi trạng thái "đang gõ" hết hạn hoặc session của user đóng.
+ */
+class TypingIndicatorServiceTest {
+
+    private static final Duration TTL = Duration.ofMillis(300);
+
+    private SimpMessagingTemplate messagingTemplate;
+    private TypingIndicatorService typingIndicatorService;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        typingIndicatorService = new TypingIndicatorService(messagingTemplate, Duration.ofSeconds(2), TTL, 1000);
+    }
+
+    @Test
+    void expiredTypingStateBroadcastsStop() {
+        assertTrue(typingIndicatorService.typing("chat-1", "user-1", true));
+
+        verify(messagingTemplate, timeout(5000)).convertAndSend("/topic/chats/chat-1/typing",
+                new TypingEvent("chat-1", "user-1", false));
+    }
+
+    @Test
+    void expiredStoppedStateBroadcastsNothing() {
+        typingIndicatorService.typing("chat-1", "user-1", true);
+        assertTrue(typingIndicatorService.typing("chat-1", "user-1", false));
+
+        // Đúng một lần "ngừng gõ" (của client), không thêm lần nào khi trạng thái hết hạn
+        verify(messagingTemplate, after(TTL.toMillis() * 5).times(1)).convertAndSend("/topic/chats/chat-1/typing",
+                new TypingEvent("chat-1", "user-1", false));
+    }
+
+    @Test
+    void disconnectBroadcastsStopForEveryChatTheUserWasTypingIn() {
+        typingIndicatorService.typing("chat-1", "user-1", true);
+        typingIndicatorService.typing("chat-2", "user-1", true);
+        typingIndicatorService.typing("chat-1", "user-2", true);
+
+        typingIndicatorService.onDisconnect(disconnect("user-1"));
+
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/chats/chat-1/typing", new TypingEvent("chat-1", "user-1", false));
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/chats/chat-2/typing", new TypingEvent("chat-2", "user-1", false));
+        verify(messagingTemplate, never()).convertAndSend("/topic/chats/chat-1/typing", new TypingEvent("chat-1", "user-2", false));
+        // Trạng thái đã bị bỏ: "ngừng gõ" muộn của client không gửi thêm lần nữa, "đang gõ" mới được gửi ngay
+        assertFalse(typingIndicatorService.typing("chat-1", "user-1", false));
+        assertTrue(typingIndicatorService.typing("chat-1", "user-1", true));
+    }
+
+    private static SessionDisconnectEvent disconnect(String userId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId("session-" + userId);
+        Principal user = () -> userId;
+        return new SessionDisconnectEvent(new Object(),
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()),
+                "session-" + userId, CloseStatus.NORMAL, user);
+    }
+}
@@ -0,0 +1,157 @@
+package com.socialmedia.demo.loadtest;
+
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chat nhóm theo đợt: mỗi thành viên giữ một phiên STOMP (CONNECT với JWT) và subscribe /topic/chats/{chatId}
+ * của mọi nhóm mình tham gia; mỗi nhóm có một luồng chọn ngẫu nhiên một thành viên gửi liền --chat-burst-size tin
+ * rồi nghỉ --chat-burst-pause.
+ * Độ trễ được đo từ lúc gửi SEND tới lúc từng thành viên nhận MESSAGE (thời điểm gửi nằm trong nội dung tin,
+ * client và server cùng JVM nên dùng chung System.nanoTime). Tin không tới được người nhận được tính là lỗi.
+ */
+final class ChatBurstWorkload implements AutoCloseable {
+
+    static final String DELIVERY = "STOMP SEND /app/chat/{chatId} -> MESSAGE /topic/chats/{chatId}";
+
+    private static final String MARKER = "lt:";
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+
+    private final SocialGraph graph;
+    private final LoadStats stats;
+    private final String url;
+    private final WebSocketStompClient stompClient;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<String, StompSession> sessions = new LinkedHashMap<>();
+    private final Map<String, Integer> subscribers = new LinkedHashMap<>();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    ChatBurstWorkload(String url, SocialGraph graph, LoadStats stats) {
+        this.url = url;
+        this.graph = graph;
+        this.stats = stats;
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        this.stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.initialize();
+        this.stompClient.setTaskScheduler(scheduler);
+    }
+
+    void connect() throws Exception {
+        for (SocialGraph.GroupChat chat : graph.getChats()) {
+            int count = 0;
+            for (SocialGraph.Member member : chat.getMembers()) {
+                StompSession session = sessions.get(member.getId());
+                if (session == null) {
+                    session = connect(member);
+                    sessions.put(member.getId(), session);
+                }
+                session.subscribe("/topic/chats/" + chat.getId(), new DeliveryHandler());
+                count++;
+            }
+            subscribers.put(chat.getId(), count);
+        }
+        System.out.printf("Opened %d STOMP sessions for %d group chats%n", sessions.size(), graph.getChats().size());
+    }
+
+    private StompSession connect(SocialGraph.Member member) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + member.getToken());
+        return stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {})
+                .get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    Runnable burster(SocialGraph.GroupChat chat, AtomicBoolean running, long pauseMillis, int burstSize) {
+        return () -> {
+            String destination = "/app/chat/" + chat.getId();
+            int recipients = subscribers.getOrDefault(chat.getId(), 0);
+            while (running.get()) {
+                SocialGraph.Member sender = chat.getMembers()
+                        .get(ThreadLocalRandom.current().nextInt(chat.getMembers().size()));
+                StompSession session = sessions.get(sender.getId());
+                for (int i = 0; i < burstSize && running.get(); i++) {
+                    Map<String, Object> payload = Map.of("content", MARKER + System.nanoTime() + " burst message " + i);
+                    try {
+                        // Một user có thể ở nhiều nhóm: phiên WebSocket không cho hai luồng ghi cùng lúc
+                        synchronized (session) {
+                            session.send(destination, payload);
+                        }
+                        expected.add(recipients);
+                    } catch (RuntimeException e) {
+                        stats.recordError(DELIVERY);
+                    }
+                }
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        };
+    }
+
+    // Bỏ số đếm của giai đoạn warm-up cùng lúc với LoadStats.reset()
+    void resetCounters() {
+        expected.reset();
+        delivered.reset();
+    }
+
+    // Chờ các tin đang trên đường tới rồi ghi số tin không tới được người nhận thành lỗi
+    void drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (delivered.sum() < expected.sum() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        long missing = expected.sum() - delivered.sum();
+        if (missing > 0) {
+            stats.recordErrors(DELIVERY, missing);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (StompSession session : sessions.values()) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        stompClient.stop();
+        scheduler.shutdown();
+    }
+
+    private class DeliveryHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            Object content = ((Map<?, ?>) payload).get("content");
+            if (!(content instanceof String text) || !text.startsWith(MARKER)) {
+                return;
+            }
+            long sentAt = Long.parseLong(text.substring(MARKER.length(), text.indexOf(' ')));
+            stats.recordMicros(DELIVERY, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+            delivered.increment();
+        }
+    }
+}
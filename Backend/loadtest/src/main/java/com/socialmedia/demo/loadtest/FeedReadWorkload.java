@@ -0,0 +1,56 @@
+package com.socialmedia.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Một người dùng lướt feed: mở trang đầu, đôi khi cuộn sang trang tiếp theo, mở bình luận và tổng hợp reaction
+ * của một bài trong trang. User được chọn lệch về phía người nhiều bạn bè, feed của họ lớn nhất.
+ */
+final class FeedReadWorkload implements Runnable {
+
+    static final String FEED = "GET /api/v1/feed";
+    static final String FEED_NEXT_PAGE = "GET /api/v1/feed?cursor";
+    static final String COMMENTS = "GET /api/v1/posts/{postId}/comments";
+    static final String REACTION_SUMMARY = "GET /api/v1/posts/{postId}/reactions/summary";
+
+    private static final int PAGE_SIZE = 20;
+
+    private final RestClient client;
+    private final SocialGraph graph;
+    private final AtomicBoolean running;
+
+    FeedReadWorkload(RestClient client, SocialGraph graph, AtomicBoolean running) {
+        this.client = client;
+        this.graph = graph;
+        this.running = running;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+            SocialGraph.Member user = SocialGraph.pickSkewed(graph.getUsers());
+            JsonNode page = client.get(FEED, "/api/v1/feed?limit=" + PAGE_SIZE, user.getToken());
+            if (page == null) {
+                continue;
+            }
+            String nextCursor = page.path("nextCursor").asText(null);
+            if (nextCursor != null && random.nextInt(100) < 30) {
+                client.get(FEED_NEXT_PAGE, "/api/v1/feed?limit=" + PAGE_SIZE + "&cursor="
+                        + URLEncoder.encode(nextCursor, StandardCharsets.UTF_8), user.getToken());
+            }
+            JsonNode items = page.path("items");
+            if (items.isEmpty() || random.nextInt(100) >= 50) {
+                continue;
+            }
+            String postId = items.get(random.nextInt(items.size())).path("id").asText();
+            client.get(COMMENTS, "/api/v1/posts/" + postId + "/comments", user.getToken());
+            client.get(REACTION_SUMMARY, "/api/v1/posts/" + postId + "/reactions/summary", user.getToken());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.socialmedia.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In bảng throughput và p50/p99/p999 theo endpoint ra console và ghi cùng số liệu vào file JSON,
+ * để lưu lại theo commit và so sánh giữa các lần chạy.
+ */
+final class LoadReport {
+
+    private final List<LoadStats.EndpointResult> results;
+    private final double elapsedSeconds;
+
+    LoadReport(List<LoadStats.EndpointResult> results, double elapsedSeconds) {
+        this.results = results;
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nMeasured %.1f s%n", elapsedSeconds);
+        out.printf("%-62s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (LoadStats.EndpointResult result : results) {
+            out.printf("%-62s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    result.getEndpoint(), result.getCount(), result.getErrors(), result.getThroughput(),
+                    result.getP50Ms(), result.getP99Ms(), result.getP999Ms(), result.getMaxMs());
+        }
+    }
+
+    void write(File file, Map<String, Object> scenario) throws IOException {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("finishedAt", Instant.now().toString());
+        document.put("measuredSeconds", elapsedSeconds);
+        document.put("scenario", scenario);
+        document.put("endpoints", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, document);
+    }
+}
@@ -0,0 +1,119 @@
+package com.socialmedia.demo.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Độ trễ (micro giây, HdrHistogram 3 chữ số có nghĩa) và số lỗi theo endpoint, ghi được từ nhiều luồng cùng lúc.
+ * reset() bỏ số liệu của giai đoạn warm-up.
+ */
+final class LoadStats {
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void recordSince(String endpoint, long startNanos) {
+        recordMicros(endpoint, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    void recordMicros(String endpoint, long micros) {
+        endpoint(endpoint).latency.recordValue(Math.max(0, micros));
+    }
+
+    void recordError(String endpoint) {
+        recordErrors(endpoint, 1);
+    }
+
+    void recordErrors(String endpoint, long count) {
+        endpoint(endpoint).errors.add(count);
+    }
+
+    void reset() {
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.latency.reset();
+            endpoint.errors.reset();
+        }
+    }
+
+    List<EndpointResult> snapshot(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        List<EndpointResult> results = new ArrayList<>();
+        endpoints.forEach((name, endpoint) -> {
+            Histogram histogram = endpoint.latency.getIntervalHistogram();
+            results.add(new EndpointResult(name, histogram, endpoint.errors.sum(), seconds));
+        });
+        results.sort(Comparator.comparing(EndpointResult::getEndpoint));
+        return results;
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, ignored -> new Endpoint());
+    }
+
+    private static class Endpoint {
+        // Recorder tự mở rộng dải giá trị nên không mất mẫu khi có request chậm bất thường
+        private final Recorder latency = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+    }
+
+    static class EndpointResult {
+        private final String endpoint;
+        private final long count;
+        private final long errors;
+        private final double throughput;
+        private final double p50Ms;
+        private final double p99Ms;
+        private final double p999Ms;
+        private final double maxMs;
+
+        private EndpointResult(String endpoint, Histogram histogram, long errors, double seconds) {
+            this.endpoint = endpoint;
+            this.count = histogram.getTotalCount();
+            this.errors = errors;
+            this.throughput = seconds > 0 ? count / seconds : 0;
+            this.p50Ms = histogram.getValueAtPercentile(50) / 1000.0;
+            this.p99Ms = histogram.getValueAtPercentile(99) / 1000.0;
+            this.p999Ms = histogram.getValueAtPercentile(99.9) / 1000.0;
+            this.maxMs = histogram.getMaxValue() / 1000.0;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public double getP999Ms() {
+            return p999Ms;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+    }
+}
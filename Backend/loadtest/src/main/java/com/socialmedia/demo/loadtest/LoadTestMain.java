@@ -0,0 +1,114 @@
+package com.socialmedia.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmedia.demo.DemoApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load test chạy offline trên một máy: khởi động Postgres cục bộ và ứng dụng (cùng JVM, cổng ngẫu nhiên),
+ * seed một đồ thị xã hội (user, bạn bè, bài đăng, bình luận, reaction, chat nhóm) rồi chạy song song:
+ * đọc feed (FeedReadWorkload), reaction storm (ReactionStormWorkload) và chat nhóm theo đợt qua STOMP
+ * (ChatBurstWorkload). Sau warm-up, throughput và p50/p99/p999 theo endpoint được in ra và ghi vào loadtest-result.json.
+ *
+ * <pre>
+ * mvn -f Backend/pom.xml -pl loadtest -am package -DskipTests
+ * java -jar Backend/loadtest/target/loadtest.jar                                  # Postgres nhúng, kịch bản mặc định
+ * java -jar Backend/loadtest/target/loadtest.jar --users=2000 --duration=5m --feed-threads=64
+ * java -jar Backend/loadtest/target/loadtest.jar --app.messages.async-persistence.enabled=true
+ * java -jar Backend/loadtest/target/loadtest.jar --jdbc-url=jdbc:postgresql://localhost:5432/loadtest --db-password=...
+ * </pre>
+ * Các luồng là client vòng kín nên độ trễ là thời gian phục vụ dưới mức đồng thời đã chọn, không phải dưới
+ * một tốc độ request cố định; tăng số luồng để tìm điểm bão hòa. Xem LoadTestOptions cho toàn bộ tham số.
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Path mediaDir = Files.createTempDirectory("loadtest-media");
+        try (LocalDatabase database = LocalDatabase.start(options);
+             ConfigurableApplicationContext app = startApplication(options, database, mediaDir)) {
+            int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+            System.out.printf("Application started on port %d, seeding...%n", port);
+            SocialGraph graph = new SocialGraphSeeder(app, options).seed();
+            run(options, graph, port);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options, LocalDatabase database,
+                                                                   Path mediaDir) {
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + database.getJdbcUrl(),
+                "--spring.datasource.username=" + database.getUsername(),
+                "--spring.datasource.password=" + database.getPassword(),
+                // Schema sạch cho mỗi lần chạy
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--app.media.root-dir=" + mediaDir,
+                "--app.media.migrate-legacy-blobs=false",
+                // Token được phát một lần lúc seed và phải còn hạn đến hết lần chạy
+                "--app.jwt.expiration-ms=" + TimeUnit.DAYS.toMillis(1),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        // Đặt sau cùng để tham số của người chạy ghi đè các giá trị trên
+        appArgs.addAll(options.applicationArgs);
+        return new SpringApplicationBuilder(DemoApplication.class).run(appArgs.toArray(new String[0]));
+    }
+
+    private static void run(LoadTestOptions options, SocialGraph graph, int port) throws Exception {
+        LoadStats stats = new LoadStats();
+        RestClient restClient = new RestClient("http://localhost:" + port, new ObjectMapper(), stats);
+        AtomicBoolean running = new AtomicBoolean(true);
+        int threads = options.feedThreads + options.reactionThreads + graph.getChats().size();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads));
+
+        try (ChatBurstWorkload chatBursts = new ChatBurstWorkload("ws://localhost:" + port + "/ws", graph, stats)) {
+            chatBursts.connect();
+            for (int i = 0; i < options.feedThreads; i++) {
+                workers.submit(new FeedReadWorkload(restClient, graph, running));
+            }
+            for (int i = 0; i < options.reactionThreads && !graph.getHotPostIds().isEmpty(); i++) {
+                workers.submit(new ReactionStormWorkload(restClient, graph, running));
+            }
+            for (SocialGraph.GroupChat chat : graph.getChats()) {
+                workers.submit(chatBursts.burster(chat, running, options.chatBurstPause.toMillis(), options.chatBurstSize));
+            }
+
+            System.out.printf("Warming up for %d s...%n", options.warmup.toSeconds());
+            Thread.sleep(options.warmup.toMillis());
+            stats.reset();
+            chatBursts.resetCounters();
+            long start = System.nanoTime();
+
+            System.out.printf("Measuring for %d s...%n", options.duration.toSeconds());
+            Thread.sleep(options.duration.toMillis());
+            running.set(false);
+            long elapsed = System.nanoTime() - start;
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            chatBursts.drain(TimeUnit.SECONDS.toMillis(5));
+
+            LoadReport report = new LoadReport(stats.snapshot(elapsed), elapsed / 1e9);
+            report.print(System.out);
+            File resultFile = new File(options.resultFile);
+            report.write(resultFile, options.describe());
+            System.out.printf("%nResults written to %s%n", resultFile.getAbsolutePath());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
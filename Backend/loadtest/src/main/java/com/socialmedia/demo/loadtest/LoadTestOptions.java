@@ -0,0 +1,124 @@
+package com.socialmedia.demo.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tham số dòng lệnh dạng --key=value. Tham số có dấu chấm (ví dụ --app.messages.async-persistence.enabled=true)
+ * không thuộc load test mà được chuyển nguyên cho ứng dụng, để so sánh các cấu hình trên cùng một kịch bản.
+ */
+final class LoadTestOptions {
+
+    // Đồ thị xã hội được seed trước khi đo
+    int users = 500;
+    int friendsPerUser = 20;
+    int postsPerUser = 4;
+    int commentsPerPost = 3;
+    int reactionsPerPost = 5;
+    int chats = 40;
+    int chatSize = 8;
+    int messagesPerChat = 20;
+    int seedThreads = Runtime.getRuntime().availableProcessors();
+
+    // Tải: mỗi luồng là một client vòng kín (gửi request tiếp theo ngay khi nhận được response)
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    int feedThreads = 16;
+    int reactionThreads = 8;
+    int hotPosts = 10;
+    int chatBurstSize = 20;
+    Duration chatBurstPause = Duration.ofMillis(500);
+
+    // Database: để trống jdbc-url thì chạy Postgres nhúng (binary trong jar, không cần mạng hay Docker)
+    String jdbcUrl;
+    String dbUser = "postgres";
+    String dbPassword = "";
+
+    String resultFile = "loadtest-result.json";
+    long seed = 42;
+
+    final List<String> applicationArgs = new ArrayList<>();
+
+    private LoadTestOptions() {
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (key.contains(".")) {
+                options.applicationArgs.add(arg);
+                continue;
+            }
+            switch (key) {
+                case "users" -> options.users = positive(key, value);
+                case "friends-per-user" -> options.friendsPerUser = Integer.parseInt(value);
+                case "posts-per-user" -> options.postsPerUser = Integer.parseInt(value);
+                case "comments-per-post" -> options.commentsPerPost = Integer.parseInt(value);
+                case "reactions-per-post" -> options.reactionsPerPost = Integer.parseInt(value);
+                case "chats" -> options.chats = Integer.parseInt(value);
+                case "chat-size" -> options.chatSize = positive(key, value);
+                case "messages-per-chat" -> options.messagesPerChat = Integer.parseInt(value);
+                case "seed-threads" -> options.seedThreads = positive(key, value);
+                case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                case "feed-threads" -> options.feedThreads = Integer.parseInt(value);
+                case "reaction-threads" -> options.reactionThreads = Integer.parseInt(value);
+                case "hot-posts" -> options.hotPosts = positive(key, value);
+                case "chat-burst-size" -> options.chatBurstSize = positive(key, value);
+                case "chat-burst-pause" -> options.chatBurstPause = DurationStyle.detectAndParse(value);
+                case "jdbc-url" -> options.jdbcUrl = value;
+                case "db-user" -> options.dbUser = value;
+                case "db-password" -> options.dbPassword = value;
+                case "result-file" -> options.resultFile = value;
+                case "seed" -> options.seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + key);
+            }
+        }
+        if (options.chatSize < 2 || options.chatSize > options.users) {
+            throw new IllegalArgumentException("--chat-size must be between 2 and --users");
+        }
+        return options;
+    }
+
+    private static int positive(String key, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("--" + key + " must be positive");
+        }
+        return parsed;
+    }
+
+    // Ghi kèm vào file kết quả để biết số liệu được đo với kịch bản nào
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("users", users);
+        description.put("friendsPerUser", friendsPerUser);
+        description.put("postsPerUser", postsPerUser);
+        description.put("commentsPerPost", commentsPerPost);
+        description.put("reactionsPerPost", reactionsPerPost);
+        description.put("chats", chats);
+        description.put("chatSize", chatSize);
+        description.put("messagesPerChat", messagesPerChat);
+        description.put("warmupSeconds", warmup.toSeconds());
+        description.put("durationSeconds", duration.toSeconds());
+        description.put("feedThreads", feedThreads);
+        description.put("reactionThreads", reactionThreads);
+        description.put("hotPosts", hotPosts);
+        description.put("chatBurstSize", chatBurstSize);
+        description.put("chatBurstPauseMs", chatBurstPause.toMillis());
+        description.put("database", jdbcUrl == null ? "embedded" : "external");
+        description.put("seed", seed);
+        description.put("applicationArgs", applicationArgs);
+        return description;
+    }
+}
@@ -0,0 +1,57 @@
+package com.socialmedia.demo.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+
+/**
+ * Postgres cho một lần chạy: mặc định là Postgres nhúng (zonky, binary giải nén từ jar vào thư mục tạm,
+ * cổng ngẫu nhiên, bị xóa khi đóng); với --jdbc-url thì dùng database có sẵn.
+ * Schema được tạo lại bằng ddl-auto=create nên database ngoài phải là database dùng riêng cho load test.
+ */
+final class LocalDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    private LocalDatabase(EmbeddedPostgres embedded, String jdbcUrl, String username, String password) {
+        this.embedded = embedded;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    static LocalDatabase start(LoadTestOptions options) throws IOException {
+        if (options.jdbcUrl != null) {
+            return new LocalDatabase(null, options.jdbcUrl, options.dbUser, options.dbPassword);
+        }
+        // Postgres không chạy dưới quyền root: khi đó dùng --jdbc-url tới một instance chạy bằng user khác
+        EmbeddedPostgres embedded = EmbeddedPostgres.builder()
+                // Mặc định của initdb quá nhỏ so với server thật; fsync giữ nguyên để độ trễ ghi không bị đẹp hơn thực tế
+                .setServerConfig("max_connections", "200")
+                .setServerConfig("shared_buffers", "256MB")
+                .start();
+        return new LocalDatabase(embedded, embedded.getJdbcUrl("postgres", "postgres"), "postgres", "");
+    }
+
+    String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.socialmedia.demo.loadtest;
+
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.requests.PostReaction.PostReactionCreateRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reaction storm: nhiều user cùng thả/đổi reaction trên một nhóm nhỏ bài "nóng", dồn ghi vào cùng vài dòng
+ * bộ đếm reaction như khi một bài viral.
+ */
+final class ReactionStormWorkload implements Runnable {
+
+    static final String REACT = "POST /api/v1/reactions";
+
+    private static final ReactionType[] TYPES = ReactionType.values();
+
+    private final RestClient client;
+    private final SocialGraph graph;
+    private final AtomicBoolean running;
+
+    ReactionStormWorkload(RestClient client, SocialGraph graph, AtomicBoolean running) {
+        this.client = client;
+        this.graph = graph;
+        this.running = running;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+            SocialGraph.Member user = graph.randomUser();
+            PostReactionCreateRequest request = PostReactionCreateRequest.builder()
+                    .userId(user.getId())
+                    .postId(SocialGraph.pickSkewed(graph.getHotPostIds()))
+                    .reactionType(TYPES[random.nextInt(TYPES.length)])
+                    .build();
+            client.post(REACT, "/api/v1/reactions", user.getToken(), request);
+        }
+    }
+}
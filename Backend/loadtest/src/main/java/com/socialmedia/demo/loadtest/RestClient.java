@@ -0,0 +1,80 @@
+package com.socialmedia.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Client HTTP dùng chung cho các workload REST: gửi request với JWT của user, ghi độ trễ vào LoadStats theo
+ * nhãn endpoint (mẫu đường dẫn, không phải đường dẫn cụ thể) và trả về trường "result" của ApiResponse.
+ * Response lỗi (4xx/5xx, timeout, mất kết nối) chỉ được đếm là lỗi, không ghi vào histogram độ trễ.
+ */
+final class RestClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final LoadStats stats;
+
+    RestClient(String baseUrl, ObjectMapper objectMapper, LoadStats stats) {
+        // HTTP/1.1 với keep-alive như trình duyệt, mỗi luồng workload giữ kết nối riêng trong pool của client
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.stats = stats;
+    }
+
+    JsonNode get(String endpoint, String path, String token) {
+        return send(endpoint, request(path, token).GET().build());
+    }
+
+    JsonNode post(String endpoint, String path, String token, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return send(endpoint, request(path, token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                    .build());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize request body", e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json");
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() >= 400) {
+                stats.recordError(endpoint);
+                return null;
+            }
+            // Thời gian tính cả việc đọc hết body, giống thời gian client thật chờ
+            stats.recordSince(endpoint, start);
+            return objectMapper.readTree(response.body()).path("result");
+        } catch (IOException e) {
+            stats.recordError(endpoint);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
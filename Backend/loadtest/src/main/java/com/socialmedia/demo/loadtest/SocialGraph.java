@@ -0,0 +1,88 @@
+package com.socialmedia.demo.loadtest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kết quả seed mà các workload cần: user kèm JWT, bài đăng, bài "nóng" cho reaction storm và chat nhóm.
+ * User có chỉ số nhỏ có nhiều bạn bè hơn (xem SocialGraphSeeder), nên pickSkewed cũng dồn tải về phía họ.
+ */
+final class SocialGraph {
+
+    private final List<Member> users;
+    private final List<String> postIds;
+    private final List<String> hotPostIds;
+    private final List<GroupChat> chats;
+
+    SocialGraph(List<Member> users, List<String> postIds, List<String> hotPostIds, List<GroupChat> chats) {
+        this.users = users;
+        this.postIds = postIds;
+        this.hotPostIds = hotPostIds;
+        this.chats = chats;
+    }
+
+    List<Member> getUsers() {
+        return users;
+    }
+
+    List<String> getPostIds() {
+        return postIds;
+    }
+
+    List<String> getHotPostIds() {
+        return hotPostIds;
+    }
+
+    List<GroupChat> getChats() {
+        return chats;
+    }
+
+    Member randomUser() {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    // Phân bố lệch về đầu danh sách: phần tử đầu được chọn nhiều hơn phần tử cuối hàng chục lần
+    static <T> T pickSkewed(List<T> items) {
+        return items.get(skewedIndex(items.size(), ThreadLocalRandom.current().nextDouble()));
+    }
+
+    static int skewedIndex(int size, double uniform) {
+        return Math.min(size - 1, (int) (size * uniform * uniform * uniform));
+    }
+
+    static class Member {
+        private final String id;
+        private final String token;
+
+        Member(String id, String token) {
+            this.id = id;
+            this.token = token;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getToken() {
+            return token;
+        }
+    }
+
+    static class GroupChat {
+        private final String id;
+        private final List<Member> members;
+
+        GroupChat(String id, List<Member> members) {
+            this.id = id;
+            this.members = members;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        List<Member> getMembers() {
+            return members;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.socialmedia.demo.loadtest;
+
+import com.socialmedia.demo.entities.User;
+import com.socialmedia.demo.enums.PrivacySetting;
+import com.socialmedia.demo.enums.ROLE;
+import com.socialmedia.demo.enums.ReactionType;
+import com.socialmedia.demo.repositories.UserRepository;
+import com.socialmedia.demo.requests.Chat.ChatCreateRequest;
+import com.socialmedia.demo.requests.Comment.CommentCreateRequest;
+import com.socialmedia.demo.requests.Message.MessageCreateRequest;
+import com.socialmedia.demo.requests.Post.PostCreateRequest;
+import com.socialmedia.demo.requests.PostReaction.PostReactionCreateRequest;
+import com.socialmedia.demo.security.JwtTokenProvider;
+import com.socialmedia.demo.services.ChatService;
+import com.socialmedia.demo.services.CommentService;
+import com.socialmedia.demo.services.FriendService;
+import com.socialmedia.demo.services.MessageService;
+import com.socialmedia.demo.services.PostReactionService;
+import com.socialmedia.demo.services.PostService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Seed đồ thị xã hội qua các service của ứng dụng (không insert thẳng vào bảng), để feed_entries, bộ đếm bạn bè
+ * và bộ đếm reaction nhất quán như khi người dùng thật tạo dữ liệu.
+ * Bạn bè được chọn lệch về các user đầu danh sách, tạo ra vài "người nổi tiếng" có nhiều bạn và đuôi dài ít bạn.
+ * Cấu trúc đồ thị chỉ phụ thuộc --seed nên hai lần chạy cùng tham số cho cùng dữ liệu.
+ */
+final class SocialGraphSeeder {
+
+    private static final String PASSWORD = "loadtest-password";
+    private static final int USER_BATCH_SIZE = 500;
+    private static final String[] POST_TEXTS = {
+            "Just finished a 10k run along the river, the weather was perfect today!",
+            "Anyone up for board games this weekend? I have a new one to try.",
+            "Throwback to last summer at the beach, can't wait to go back.",
+            "Finally fixed that bug I was chasing for three days. Coffee time.",
+            "New recipe: pho with homemade broth, took all afternoon but worth it.",
+    };
+    private static final String[] COMMENT_TEXTS = {
+            "Love this!", "Count me in", "Where was this taken?", "Congrats!!", "Haha same here",
+    };
+
+    private final LoadTestOptions options;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final FriendService friendService;
+    private final PostService postService;
+    private final CommentService commentService;
+    private final PostReactionService postReactionService;
+    private final ChatService chatService;
+    private final MessageService messageService;
+
+    SocialGraphSeeder(ApplicationContext context, LoadTestOptions options) {
+        this.options = options;
+        this.userRepository = context.getBean(UserRepository.class);
+        this.passwordEncoder = context.getBean(PasswordEncoder.class);
+        this.jwtTokenProvider = context.getBean(JwtTokenProvider.class);
+        this.friendService = context.getBean(FriendService.class);
+        this.postService = context.getBean(PostService.class);
+        this.commentService = context.getBean(CommentService.class);
+        this.postReactionService = context.getBean(PostReactionService.class);
+        this.chatService = context.getBean(ChatService.class);
+        this.messageService = context.getBean(MessageService.class);
+    }
+
+    SocialGraph seed() throws Exception {
+        Random random = new Random(options.seed);
+        List<SocialGraph.Member> users = seedUsers();
+        List<List<Integer>> friends = seedFriendships(random, users);
+        List<List<String>> postsByUser = seedPosts(users);
+        List<String> postIds = postsByUser.stream().flatMap(List::stream).toList();
+        seedCommentsAndReactions(users, postIds);
+        List<SocialGraph.GroupChat> chats = seedChats(random, users, friends);
+
+        // Bài mới nhất của các user nhiều bạn nhất: nơi reaction dồn về trong thực tế
+        List<String> hotPostIds = new ArrayList<>();
+        for (int i = 0; i < users.size() && hotPostIds.size() < options.hotPosts; i++) {
+            List<String> posts = postsByUser.get(i);
+            if (!posts.isEmpty()) {
+                hotPostIds.add(posts.get(posts.size() - 1));
+            }
+        }
+        return new SocialGraph(users, postIds, hotPostIds, chats);
+    }
+
+    private List<SocialGraph.Member> seedUsers() {
+        // Hash một lần: BCrypt cost 10 cho vài nghìn user sẽ chiếm phần lớn thời gian seed
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        List<SocialGraph.Member> members = new ArrayList<>(options.users);
+        for (int start = 0; start < options.users; start += USER_BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (int i = start; i < Math.min(options.users, start + USER_BATCH_SIZE); i++) {
+                batch.add(User.builder()
+                        .email("loadtest" + i + "@example.com")
+                        .username("loadtest" + i)
+                        .fullname("Load Test User " + i)
+                        .password(passwordHash)
+                        .bio("Seeded user " + i)
+                        .role(ROLE.USER)
+                        .privacySetting(PrivacySetting.PUBLIC)
+                        .createdAt(new Date())
+                        .build());
+            }
+            for (User user : userRepository.saveAll(batch)) {
+                members.add(new SocialGraph.Member(user.getId(), jwtTokenProvider.generateToken(user)));
+            }
+        }
+        log("users", members.size());
+        return members;
+    }
+
+    private List<List<Integer>> seedFriendships(Random random, List<SocialGraph.Member> users) {
+        int n = users.size();
+        List<List<Integer>> friends = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            friends.add(new ArrayList<>());
+        }
+        // Mỗi cạnh tạo quan hệ hai chiều nên mỗi user chủ động kết bạn với một nửa số bạn trung bình
+        Set<Long> edges = new HashSet<>();
+        int initiated = Math.max(1, options.friendsPerUser / 2);
+        for (int i = 0; i < n && options.friendsPerUser > 0; i++) {
+            for (int k = 0; k < initiated; k++) {
+                int j = SocialGraph.skewedIndex(n, random.nextDouble());
+                if (j == i || !edges.add((long) Math.min(i, j) * n + Math.max(i, j))) {
+                    continue;
+                }
+                friends.get(i).add(j);
+                friends.get(j).add(i);
+            }
+        }
+        // Tuần tự: addFriend cập nhật friend_count của cả hai user, chạy song song dễ deadlock giữa hai cạnh chung đỉnh
+        for (long edge : edges) {
+            friendService.addFriend(users.get((int) (edge / n)).getId(), users.get((int) (edge % n)).getId());
+        }
+        log("friendships", edges.size());
+        return friends;
+    }
+
+    private List<List<String>> seedPosts(List<SocialGraph.Member> users) throws Exception {
+        List<List<String>> postsByUser = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            postsByUser.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        runParallel(users.size(), i -> {
+            for (int p = 0; p < options.postsPerUser; p++) {
+                String postId = postService.createPost(PostCreateRequest.builder()
+                        .authorId(users.get(i).getId())
+                        .content(POST_TEXTS[(i + p) % POST_TEXTS.length])
+                        .privacySetting(PrivacySetting.PUBLIC)
+                        .build()).getId();
+                postsByUser.get(i).add(postId);
+            }
+        });
+        log("posts", postsByUser.stream().mapToInt(List::size).sum());
+        return postsByUser;
+    }
+
+    private void seedCommentsAndReactions(List<SocialGraph.Member> users, List<String> postIds) throws Exception {
+        ReactionType[] types = ReactionType.values();
+        runParallel(postIds.size(), index -> {
+            Random random = new Random(options.seed + index);
+            String postId = postIds.get(index);
+            int comments = options.commentsPerPost > 0 ? random.nextInt(2 * options.commentsPerPost + 1) : 0;
+            for (int c = 0; c < comments; c++) {
+                commentService.createComment(CommentCreateRequest.builder()
+                        .authorId(users.get(random.nextInt(users.size())).getId())
+                        .postId(postId)
+                        .content(COMMENT_TEXTS[random.nextInt(COMMENT_TEXTS.length)])
+                        .build());
+            }
+            int reactions = options.reactionsPerPost > 0
+                    ? Math.min(users.size(), random.nextInt(2 * options.reactionsPerPost + 1)) : 0;
+            Set<Integer> reactors = new HashSet<>();
+            while (reactors.size() < reactions) {
+                reactors.add(random.nextInt(users.size()));
+            }
+            for (int reactor : reactors) {
+                postReactionService.createOrUpdateReaction(PostReactionCreateRequest.builder()
+                        .userId(users.get(reactor).getId())
+                        .postId(postId)
+                        .reactionType(types[random.nextInt(types.length)])
+                        .build());
+            }
+        });
+        log("posts with comments and reactions", postIds.size());
+    }
+
+    private List<SocialGraph.GroupChat> seedChats(Random random, List<SocialGraph.Member> users,
+                                                  List<List<Integer>> friends) throws Exception {
+        // Nhóm chat gồm một user và bạn bè của họ, thiếu thì bổ sung user ngẫu nhiên
+        List<List<SocialGraph.Member>> groups = new ArrayList<>();
+        for (int c = 0; c < options.chats; c++) {
+            int owner = SocialGraph.skewedIndex(users.size(), random.nextDouble());
+            List<Integer> candidates = new ArrayList<>(friends.get(owner));
+            Collections.shuffle(candidates, random);
+            Set<Integer> memberIndexes = new LinkedHashSet<>();
+            memberIndexes.add(owner);
+            for (int candidate : candidates) {
+                if (memberIndexes.size() == options.chatSize) {
+                    break;
+                }
+                memberIndexes.add(candidate);
+            }
+            while (memberIndexes.size() < options.chatSize) {
+                memberIndexes.add(random.nextInt(users.size()));
+            }
+            groups.add(memberIndexes.stream().map(users::get).toList());
+        }
+
+        SocialGraph.GroupChat[] chats = new SocialGraph.GroupChat[groups.size()];
+        runParallel(groups.size(), c -> {
+            List<SocialGraph.Member> members = groups.get(c);
+            String chatId = chatService.createChat(ChatCreateRequest.builder()
+                    .memberIds(members.stream().map(SocialGraph.Member::getId).toList())
+                    .build()).getId();
+            for (int m = 0; m < options.messagesPerChat; m++) {
+                messageService.createMessage(MessageCreateRequest.builder()
+                        .chatId(chatId)
+                        .senderId(members.get(m % members.size()).getId())
+                        .content("Seeded message " + m)
+                        .build());
+            }
+            chats[c] = new SocialGraph.GroupChat(chatId, members);
+        });
+        log("group chats", chats.length);
+        return List.of(chats);
+    }
+
+    private void runParallel(int tasks, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(options.seedThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> task.accept(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void log(String what, int count) {
+        System.out.printf("Seeded %d %s%n", count, what);
+    }
+}
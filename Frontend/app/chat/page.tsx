@@ -10,7 +10,7 @@ import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card"
 import { Avatar, AvatarFallback, AvatarImage } from "@/components/ui/avatar"
 import { Send, Search, Plus, Phone, Video, MoreVertical } from "lucide-react"
 import { wsClient } from "@/lib/websocket"
-import { apiClient, byteArrayToImageUrl } from "@/lib/api"
+import { apiClient, mediaUrl } from "@/lib/api"
 import type { MessageCreateRequest, ChatResponse, MessageResponse } from "@/lib/api"
 
 // Mock data with proper response structure
@@ -21,25 +21,13 @@ const mockChats: ChatResponse[] = [
     members: [
       {
         id: "user1",
-        email: "john@example.com",
         username: "john_doe",
         fullname: "John Doe",
-        gender: "MALE",
-        dob: "1990-01-15",
-        createdAt: "2023-01-15T00:00:00Z",
-        privacySetting: "PUBLIC",
-        role: "USER",
       },
       {
         id: "user2",
-        email: "jane@example.com",
         username: "jane_smith",
         fullname: "Jane Smith",
-        gender: "FEMALE",
-        dob: "1992-03-20",
-        createdAt: "2023-02-10T00:00:00Z",
-        privacySetting: "PUBLIC",
-        role: "USER",
       },
     ],
     messages: [],
@@ -51,14 +39,8 @@ const mockMessages: MessageResponse[] = [
     id: "1",
     sender: {
       id: "user2",
-      email: "jane@example.com",
       username: "jane_smith",
       fullname: "Jane Smith",
-      gender: "FEMALE",
-      dob: "1992-03-20",
-      createdAt: "2023-02-10T00:00:00Z",
-      privacySetting: "PUBLIC",
-      role: "USER",
     },
     chatId: "1",
     sendAt: "2024-01-15T10:30:00Z",
@@ -68,14 +50,8 @@ const mockMessages: MessageResponse[] = [
     id: "2",
     sender: {
       id: "user1",
-      email: "john@example.com",
       username: "john_doe",
       fullname: "John Doe",
-      gender: "MALE",
-      dob: "1990-01-15",
-      createdAt: "2023-01-15T00:00:00Z",
-      privacySetting: "PUBLIC",
-      role: "USER",
     },
     chatId: "1",
     sendAt: "2024-01-15T10:32:00Z",
@@ -86,6 +62,9 @@ const mockMessages: MessageResponse[] = [
 export default function ChatPage() {
   const [selectedChat, setSelectedChat] = useState<ChatResponse>(mockChats[0])
   const [messages, setMessages] = useState<MessageResponse[]>(mockMessages)
+  // Cursor for the next older page (null when the beginning of the chat is loaded) and for catching up on newer ones
+  const [olderCursor, setOlderCursor] = useState<string | null>(null)
+  const [newestCursor, setNewestCursor] = useState<string | null>(null)
   const [newMessage, setNewMessage] = useState("")
   const [searchQuery, setSearchQuery] = useState("")
   const messagesEndRef = useRef<HTMLDivElement>(null)
@@ -105,16 +84,69 @@ export default function ChatPage() {
     }
   }, [selectedChat])
 
+  useEffect(() => {
+    // Catch up on messages missed while the tab was in the background
+    const onVisible = () => {
+      if (document.visibilityState === "visible" && selectedChat) {
+        loadNewerMessages(selectedChat.id)
+      }
+    }
+    document.addEventListener("visibilitychange", onVisible)
+    return () => document.removeEventListener("visibilitychange", onVisible)
+  }, [selectedChat, newestCursor])
+
   const loadChatMessages = async (chatId: string) => {
     try {
       const response = await apiClient.getChatMessages(chatId)
       if (response.code === "200") {
-        setMessages(response.result)
+        setMessages(response.result.items)
+        setOlderCursor(response.result.hasMore ? response.result.nextCursor ?? null : null)
+        setNewestCursor(response.result.newestCursor ?? null)
       }
     } catch (error) {
       console.error("Error loading messages:", error)
       // Use mock data for demo
       setMessages(mockMessages)
+      setOlderCursor(null)
+      setNewestCursor(null)
+    }
+  }
+
+  const loadOlderMessages = async () => {
+    if (!selectedChat || !olderCursor) return
+    try {
+      const response = await apiClient.getChatMessages(selectedChat.id, { before: olderCursor })
+      if (response.code === "200") {
+        setMessages((current) => [...response.result.items, ...current])
+        setOlderCursor(response.result.hasMore ? response.result.nextCursor ?? null : null)
+      }
+    } catch (error) {
+      console.error("Error loading older messages:", error)
+    }
+  }
+
+  const loadNewerMessages = async (chatId: string) => {
+    if (!newestCursor) {
+      loadChatMessages(chatId)
+      return
+    }
+    try {
+      let after: string | null = newestCursor
+      let hasMore = true
+      while (after && hasMore) {
+        const response = await apiClient.getChatMessages(chatId, { after })
+        if (response.code !== "200") return
+        const page = response.result
+        setMessages((current) => {
+          const known = new Set(current.map((message) => message.id))
+          return [...current, ...page.items.filter((message) => !known.has(message.id))]
+        })
+        after = page.newestCursor ?? after
+        hasMore = page.hasMore && page.items.length > 0
+      }
+      setNewestCursor(after)
+    } catch (error) {
+      console.error("Error loading newer messages:", error)
     }
   }
 
@@ -136,14 +168,8 @@ export default function ChatPage() {
       id: Date.now().toString(),
       sender: {
         id: "user1",
-        email: "john@example.com",
         username: "john_doe",
         fullname: "John Doe",
-        gender: "MALE",
-        dob: "1990-01-15",
-        createdAt: "2023-01-15T00:00:00Z",
-        privacySetting: "PUBLIC",
-        role: "USER",
       },
       chatId: selectedChat.id,
       sendAt: new Date().toISOString(),
@@ -160,10 +186,7 @@ export default function ChatPage() {
     if (otherMember) {
       return {
         name: otherMember.fullname,
-        avatar:
-          otherMember.avatar && otherMember.avatarType
-            ? byteArrayToImageUrl(otherMember.avatar, otherMember.avatarType)
-            : "/placeholder.svg?height=40&width=40",
+        avatar: mediaUrl(otherMember.avatarUrl, "/placeholder.svg?height=40&width=40"),
         isOnline: true, // Mock online status
         type: "PRIVATE" as const,
       }
@@ -308,12 +331,16 @@ export default function ChatPage() {
 
             {/* Messages */}
             <CardContent className="flex-1 overflow-y-auto p-4 space-y-4">
+              {olderCursor && (
+                <div className="flex justify-center">
+                  <Button variant="ghost" size="sm" onClick={loadOlderMessages}>
+                    Load older messages
+                  </Button>
+                </div>
+              )}
               {messages.map((message) => {
                 const isCurrentUser = message.sender.id === "user1"
-                const senderAvatar =
-                  message.sender.avatar && message.sender.avatarType
-                    ? byteArrayToImageUrl(message.sender.avatar, message.sender.avatarType)
-                    : "/placeholder.svg?height=32&width=32"
+                const senderAvatar = mediaUrl(message.sender.avatarUrl, "/placeholder.svg?height=32&width=32")
 
                 return (
                   <div key={message.id} className={`flex ${isCurrentUser ? "justify-end" : "justify-start"}`}>
@@ -18,7 +18,7 @@ import {
   Angry,
   FrownIcon as Sad,
 } from "lucide-react"
-import { apiClient, byteArrayToImageUrl } from "@/lib/api"
+import { apiClient, mediaUrl } from "@/lib/api"
 import type { PostResponse, PostReactionResponse, CommentResponse } from "@/lib/api"
 
 interface PostCardProps {
@@ -67,10 +67,7 @@ export function PostCard({ post }: PostCardProps) {
         id: post.author?.id || "unknown",
         username: post.author?.username || "unknown",
         fullname: post.author?.fullname || "Unknown User",
-        avatar:
-          post.author?.avatar && post.author?.avatarType
-            ? byteArrayToImageUrl(post.author.avatar, post.author.avatarType)
-            : "/placeholder.svg?height=40&width=40",
+        avatar: mediaUrl(post.author?.avatarUrl, "/placeholder.svg?height=40&width=40"),
       }
     : {
         id: (post as any).author?.id || "unknown",
@@ -83,10 +80,10 @@ export function PostCard({ post }: PostCardProps) {
   const postContent = post.content || ""
   const postDate = isPostResponse ? post.createAt : (post as any).createdAt || new Date().toISOString()
 
-  // Get post image URL from byte array (for PostResponse) or images array (for legacy)
+  // Get post image URL from the media endpoint (for PostResponse) or images array (for legacy)
   const postImageUrl = isPostResponse
-    ? post.imageData && post.imageType
-      ? byteArrayToImageUrl(post.imageData, post.imageType)
+    ? post.imageUrl
+      ? mediaUrl(post.imageUrl, "/placeholder.svg")
       : null
     : (post as any).images && (post as any).images.length > 0
       ? (post as any).images[0]
@@ -343,10 +340,7 @@ export function PostCard({ post }: PostCardProps) {
             {/* Comments List */}
             <div className="space-y-3">
               {comments.map((comment) => {
-                const commentAvatarUrl =
-                  comment.author?.avatar && comment.author?.avatarType
-                    ? byteArrayToImageUrl(comment.author.avatar, comment.author.avatarType)
-                    : "/placeholder.svg?height=32&width=32"
+                const commentAvatarUrl = mediaUrl(comment.author?.avatarUrl, "/placeholder.svg?height=32&width=32")
 
                 return (
                   <div key={comment.id} className="flex gap-3">
@@ -366,10 +360,10 @@ export function PostCard({ post }: PostCardProps) {
                       <div className="bg-gray-100 rounded-lg px-3 py-2">
                         <p className="font-semibold text-sm">{comment.author?.fullname || "Unknown User"}</p>
                         <p className="text-sm">{comment.content}</p>
-                        {comment.imageData && comment.imageType && (
+                        {comment.imageUrl && (
                           <div className="mt-2">
                             <Image
-                              src={byteArrayToImageUrl(comment.imageData, comment.imageType) || "/placeholder.svg"}
+                              src={mediaUrl(comment.imageUrl, "/placeholder.svg")}
                               alt="Comment image"
                               width={200}
                               height={150}
@@ -21,36 +21,49 @@ interface UserResponse {
   dob: string // Date as ISO string
   createdAt: string
   privacySetting: "PUBLIC" | "FRIENDS" | "PRIVATE"
-  avatar?: number[] // byte array
+  avatarUrl?: string // /api/v1/media/{key}, see mediaUrl()
+  avatarSize?: number
   avatarType?: string
-  coverPicture?: number[]
+  coverPictureUrl?: string
+  coverPictureSize?: number
   coverPictureType?: string
   role: "USER" | "ADMIN" | "MODERATOR"
+  friendCount?: number
+}
+
+// Slim user embedded in posts, comments, messages, reactions and chats
+interface UserSummary {
+  id: string
+  username: string
+  fullname: string
+  avatarUrl?: string
 }
 
 interface PostResponse {
   id: string
   content: string
-  imageData?: number[]
+  imageUrl?: string
+  imageSize?: number
   imageType?: string
   createAt: string // LocalDateTime as ISO string
   privacySetting: "PUBLIC" | "FRIENDS" | "PRIVATE"
-  author: UserResponse
+  author: UserSummary
 }
 
 interface CommentResponse {
   id: string
   content: string
-  imageData?: number[]
+  imageUrl?: string
+  imageSize?: number
   imageType?: string
   createAt: string
-  author: UserResponse
+  author: UserSummary
   postId: string
 }
 
 interface PostReactionResponse {
   id: string
-  user: UserResponse
+  user: UserSummary
   postId: string
   reactionType: "LIKE" | "LOVE" | "HAHA" | "WOW" | "SAD" | "ANGRY"
   createAt: string
@@ -58,7 +71,7 @@ interface PostReactionResponse {
 
 interface CommentReactionResponse {
   id: string
-  user: UserResponse
+  user: UserSummary
   commentId: string
   reactionType: "LIKE" | "LOVE" | "HAHA" | "WOW" | "SAD" | "ANGRY"
   createAt: string
@@ -66,16 +79,28 @@ interface CommentReactionResponse {
 
 interface MessageResponse {
   id: string
-  sender: UserResponse
+  sender: UserSummary
   chatId: string
   sendAt: string
+  seq?: number
   content: string
 }
 
+// Keyset page: items are oldest -> newest. nextCursor continues in the same direction (older for the
+// latest/before pages); newestCursor, sent as after, fetches anything newer than this page
+interface CursorPage<T> {
+  items: T[]
+  nextCursor?: string
+  hasMore: boolean
+  newestCursor?: string
+  missingSeqs?: number[]
+  deletedSeqs?: number[]
+}
+
 interface ChatResponse {
   id: string
   createAt: string
-  members: UserResponse[]
+  members: UserSummary[]
   messages: MessageResponse[]
 }
 
@@ -163,13 +188,11 @@ interface MessageUpdateRequest {
   content: string
 }
 
-// Utility function to convert byte array to blob URL
-function byteArrayToImageUrl(byteArray: number[], mimeType: string): string {
-  if (!byteArray || byteArray.length === 0) return "/placeholder.svg"
-
-  const uint8Array = new Uint8Array(byteArray)
-  const blob = new Blob([uint8Array], { type: mimeType })
-  return URL.createObjectURL(blob)
+// Media URLs from the API are server-relative (/api/v1/media/{key}); resolve them against the API origin
+function mediaUrl(url: string | null | undefined, fallback: string): string {
+  if (!url) return fallback
+  if (/^https?:\/\//.test(url)) return url
+  return new URL(url, API_BASE_URL).toString()
 }
 
 class ApiClient {
@@ -466,8 +489,16 @@ class ApiClient {
   }
 
   // Message endpoints
-  async getChatMessages(chatId: string): Promise<ApiResponse<MessageResponse[]>> {
-    const response = await fetch(`${API_BASE_URL}/messages/chat/${chatId}`, {
+  async getChatMessages(
+    chatId: string,
+    page: { before?: string; after?: string; limit?: number } = {},
+  ): Promise<ApiResponse<CursorPage<MessageResponse>>> {
+    const params = new URLSearchParams()
+    if (page.before) params.set("before", page.before)
+    if (page.after) params.set("after", page.after)
+    if (page.limit) params.set("limit", String(page.limit))
+    const query = params.toString()
+    const response = await fetch(`${API_BASE_URL}/messages/chat/${chatId}${query ? `?${query}` : ""}`, {
       headers: this.getAuthHeaders(),
     })
     return response.json()
@@ -501,18 +532,20 @@ class ApiClient {
 export const apiClient = new ApiClient()
 
 // Export utility function
-export { byteArrayToImageUrl }
+export { mediaUrl }
 
 // Export types for use in components
 export type {
   ApiResponse,
   JwtAuthenticationResponse,
   UserResponse,
+  UserSummary,
   PostResponse,
   CommentResponse,
   PostReactionResponse,
   CommentReactionResponse,
   MessageResponse,
+  CursorPage,
   ChatResponse,
   LoginRequest,
   UserCreateRequest,